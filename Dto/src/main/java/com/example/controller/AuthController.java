@@ -1,118 +1,131 @@
 package com.example.controller;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.UUID;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.example.dto.LoginData;
 import com.example.dto.LoginRequest;
 import com.example.dto.LogoutRequest;
+import com.example.netconf.GetConfigCache;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfMetrics;
+import com.example.netconf.NetconfReplyParser;
+import com.example.netconf.NetconfSessionPool;
+import com.example.session.LoginService;
 
 @RestController
 @RequestMapping("/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AuthController {
-    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
-	private final Map<String, LoginData>activeSessions = new HashMap<>();
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCache getConfigCache;
+	private final NetconfMetrics metrics;
+	private final LoginService loginService;
+	private final GatewayOperations gateway;
+
+	public AuthController(NetconfSessionPool sessionPool, GetConfigCache getConfigCache, NetconfMetrics metrics,
+			LoginService loginService, GatewayOperations gateway) {
+		this.sessionPool = sessionPool;
+		this.getConfigCache = getConfigCache;
+		this.metrics = metrics;
+		this.loginService = loginService;
+		this.gateway = gateway;
+	}
+
 	@PostMapping("/login")
-	public Map<String,String>login(@RequestBody LoginRequest request) {
-		String sessionId = UUID.randomUUID().toString();
-		LoginData loginData = new LoginData (
-				request.getUsername(),
-				"LOGIN",
-				request.getIp(),
-				request.getPort(),
-				sessionId
-		);
-		activeSessions.put(sessionId, loginData);
-	    logger.info("User {} logged in with session ID{}",request.getUsername(),sessionId);
-		
-		Map<String,String>response = new HashMap<>();
-		response.put("username",request.getUsername());
-		response.put("status","LOGIN SUCCESS");
-		response.put("ip",request.getIp());
-		response.put("username",String.valueOf(request.getPort()));
-		response.put("sessionId",sessionId);
-		
-		return response;
+	public ResponseEntity<Map<String,String>>login(@RequestBody LoginRequest request) throws InterruptedException {
+		try {
+			return ResponseEntity.ok(loginService.login(request));
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(loginService.loginFailed(request, e));
+		}
 	}
 	@PostMapping("/logout")
 	public String logout(@RequestBody LogoutRequest request) {
-		if(!activeSessions.containsKey(request.getSessionId())) {
-			return "Invalid session";
-		}
-		activeSessions.remove(request.getSessionId());
-		return "Logout successful";
+		return loginService.logout(request.getSessionId());
 	}
 	@PostMapping(value ="/get",produces = MediaType.APPLICATION_XML_VALUE)
-	public ResponseEntity<String>get(@RequestBody Map<String,String> request) {
+	public ResponseEntity<StreamingResponseBody>get(@RequestBody Map<String,String> request) {
 		return processRequest(request,"get");
 	}
 	@PostMapping(value ="/get-config",produces = MediaType.APPLICATION_XML_VALUE)
-	public ResponseEntity<String>getConfig(@RequestBody Map<String,String> request) {
+	public ResponseEntity<StreamingResponseBody>getConfig(@RequestBody Map<String,String> request) {
 		return processRequest(request,"get-config");
 	}
 	@PostMapping(value ="/edit-config",produces = MediaType.APPLICATION_XML_VALUE)
-	public ResponseEntity<String>editConfig(@RequestBody Map<String,String> request) {
+	public ResponseEntity<StreamingResponseBody>editConfig(@RequestBody Map<String,String> request) {
 		return processRequest(request,"edit-config");
 	}
+	//named templates from netconf.rpc.templates, the rest of the request fills their parameters
+	@PostMapping(value ="/rpc/{name}",produces = MediaType.APPLICATION_XML_VALUE)
+	public ResponseEntity<StreamingResponseBody>rpc(@PathVariable String name,@RequestBody Map<String,String> request) {
+		return gateway.template(name,request).map(operation -> processRequest(request,operation))
+				.orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(text("Unknown rpc template " + name)));
+	}
+	
+	private ResponseEntity<StreamingResponseBody>processRequest(Map<String,String>request,String operation){
+		return processRequest(request,gateway.operation(operation,request));
+	}
 	
-	private ResponseEntity<String>processRequest(Map<String,String>request,String operation){
-		String sessionId = request.get("sessionId");
+	//the reply is written to the servlet stream as it is serialized, with chunked transfer encoding
+	private ResponseEntity<StreamingResponseBody>processRequest(Map<String,String>request,
+			GatewayOperations.Operation operation){
 		String messageId = request.get("messageId");
 		
-		if(!activeSessions.containsKey(sessionId)) {
-			return ResponseEntity.badRequest().body("Invalid session");
+		NetconfDeviceKey device = gateway.device(request.get("sessionId"),operation.name()).orElse(null);
+		if(device == null) {
+			return ResponseEntity.badRequest().body(text("Invalid session"));
 		}
-		logger.info("Session ID {}-{} operation invoked",sessionId,operation);
-		String response = generateXmlResponse(operation,messageId);
-		return ResponseEntity.ok(response);
-	}
-	private String generateXmlResponse (String operation,String messageId) {
-		switch(operation) {
-		case "get":
-			return    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + 
-		              "<rpc messageId = \"" + messageId + "\">\n" +
-					   "<get>\n" +
-		              "<filter type =\"subtree\"></filter>\n" +
-					   "</get>\n" +
-		              "</rpc>";
-		case "get-config":
-			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + 
-		              "<rpc messageId = \"" + messageId + "\">\n" +
-					   "<get-config>\n" +
-		              "<source>\n" +
-					   "<running/>\n" +
-		               "</source>\n" +
-					   "</get-config>\n" +
-		              "</rpc>";
-			
-		case "edit-config":
-			 return   "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + 
-		              "<rpc messageId = \"" + messageId + "\">\n" +
-					   "<edit-config>\n" +
-		              "<target>\n"+
-					   "<running/>\n" +
-		               "</target>\n" +
-					   "<config>\n" +
-		               "<data>\n" +
-					   "    "+  "" +"\n"+
-		               "</data>\n" +
-					   "</edit-config>\n" +
-		              "</rpc>";
-			 default:
-				 return "<error>Invalid operation</error>";
+		long start = System.nanoTime();
+		String outcome = NetconfMetrics.ERROR;
+		try {
+			if("get-config".equals(operation.name())) {
+				GetConfigCache.Reply cached = getConfigCache.getConfig(device, request);
+				outcome = cached.error() ? NetconfMetrics.RPC_ERROR : NetconfMetrics.OK;
+				return ResponseEntity.ok().body(out -> cached.writeTo(out, messageId));
+			}
+			NetconfMessage rpc = operation.rpc().get();
+			NetconfMessage reply;
+			try {
+				reply = sessionPool.execute(device, rpc);
+			} finally {
+				gateway.sent(device, operation);
+			}
+			outcome = NetconfMetrics.outcome(reply, null);
+			return ResponseEntity.ok().body(out -> {
+				try (OutputStream counted = metrics.countReceived(device.toString(), out)) {
+					NetconfReplyParser.writeTo(reply, counted);
+				}
+			});
+		} catch (Exception e) {
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			GatewayOperations.Failure failure = gateway.failure(device,operation.name(),e);
+			outcome = failure.outcome();
+			ResponseEntity.BodyBuilder response = ResponseEntity.status(failure.status());
+			if(failure.retryLater()) {
+				response.header(HttpHeaders.RETRY_AFTER, "1");
+			}
+			return response.body(text(failure.message()));
+		} finally {
+			metrics.operationCompleted(device.toString(), operation.name(), outcome, System.nanoTime() - start);
 		}
 	}
+	private static StreamingResponseBody text(String message) {
+		return out -> out.write(String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+	}
 }
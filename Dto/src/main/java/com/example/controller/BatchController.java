@@ -0,0 +1,140 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import com.example.dto.BatchEntry;
+import com.example.dto.BatchRequest;
+import com.example.dto.BatchResult;
+import com.example.netconf.BatchExecutor;
+import com.example.netconf.BatchProperties;
+import com.example.netconf.BatchTask;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.session.LoginService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs one operation per entry against many devices concurrently. Results are
+ * streamed back as newline delimited JSON in the order they finish.
+ */
+@RestController
+@RequestMapping("/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BatchController {
+	private static final Logger logger = LoggerFactory.getLogger(BatchController.class);
+	private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+	//after the batch timeout the unfinished entries are still written, as timeouts
+	private static final Duration STREAM_GRACE = Duration.ofSeconds(30);
+
+	private final LoginService loginService;
+	private final BatchExecutor batchExecutor;
+	private final ObjectMapper objectMapper;
+
+	public BatchController(LoginService loginService, BatchExecutor batchExecutor, ObjectMapper objectMapper) {
+		this.loginService = loginService;
+		this.batchExecutor = batchExecutor;
+		this.objectMapper = objectMapper;
+	}
+
+	//the stream has its own async timeout, spring.mvc.async.request-timeout is far shorter than a batch may run
+	@PostMapping(value = "/batch", produces = "application/x-ndjson")
+	public ResponseEntity<?> batch(@RequestBody BatchRequest request) {
+		BatchProperties properties = batchExecutor.getProperties();
+		if (request.getEntries() == null) {
+			return badRequest("No entries");
+		}
+		if (request.getEntries().size() > properties.getMaxEntries()) {
+			return badRequest("At most " + properties.getMaxEntries() + " entries per batch");
+		}
+		if (!positive(request.getEntryTimeoutMs()) || !positive(request.getBatchTimeoutMs())) {
+			return badRequest("Timeouts must be positive");
+		}
+		Duration entryTimeout = timeout(request.getEntryTimeoutMs(), properties.getEntryTimeout(),
+				properties.getMaxEntryTimeout());
+		Duration batchTimeout = timeout(request.getBatchTimeoutMs(), properties.getBatchTimeout(),
+				properties.getMaxBatchTimeout());
+
+		List<BatchTask> tasks = new ArrayList<>();
+		List<BatchResult> rejected = new ArrayList<>();
+		for (int i = 0; i < request.getEntries().size(); i++) {
+			BatchEntry entry = request.getEntries().get(i);
+			NetconfDeviceKey device = entry == null ? null : resolve(entry);
+			if (device == null) {
+				BatchResult result = new BatchResult(i, entry == null ? null : entry.getSessionId(),
+						entry == null ? null : entry.getOperation(), BatchResult.Status.REJECTED);
+				result.setError("Invalid session");
+				rejected.add(result);
+			} else {
+				tasks.add(new BatchTask(i, device, entry.getOperation(), entry.getMessageId(), entry.getPayload()));
+			}
+		}
+		logger.info("Batch of {} entries ({} rejected) invoked", request.getEntries().size(), rejected.size());
+
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout.plus(STREAM_GRACE).toMillis());
+		Thread worker = Thread.ofVirtual().name("batch").unstarted(() -> {
+			try {
+				rejected.forEach(result -> writeLine(emitter, result));
+				batchExecutor.execute(tasks, entryTimeout, batchTimeout, result -> writeLine(emitter, result));
+				emitter.complete();
+			} catch (InterruptedException e) {
+				emitter.complete();
+			} catch (RuntimeException e) {
+				logger.warn("Batch stream ended early: {}", e.getMessage());
+				emitter.completeWithError(e);
+			}
+		});
+		//the client went away or the stream timed out, the batch's tasks are cancelled
+		emitter.onTimeout(worker::interrupt);
+		emitter.onError(failure -> worker.interrupt());
+		worker.start();
+		return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+	}
+
+	//a device is only reached through a login, its credentials are not the caller's to borrow otherwise
+	private NetconfDeviceKey resolve(BatchEntry entry) {
+		return entry.getSessionId() == null ? null : loginService.device(entry.getSessionId()).orElse(null);
+	}
+
+	private static boolean positive(Long millis) {
+		return millis == null || millis > 0;
+	}
+
+	private static Duration timeout(Long requestedMillis, Duration fallback, Duration max) {
+		if (requestedMillis == null) {
+			return fallback;
+		}
+		Duration requested = Duration.ofMillis(requestedMillis);
+		return requested.compareTo(max) > 0 ? max : requested;
+	}
+
+	private static ResponseEntity<String> badRequest(String message) {
+		return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(message);
+	}
+
+	//one JSON object per line, each send is flushed so clients see a result as soon as it is ready
+	private void writeLine(ResponseBodyEmitter emitter, BatchResult result) {
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(result);
+			byte[] line = new byte[json.length + 1];
+			System.arraycopy(json, 0, line, 0, json.length);
+			line[json.length] = '\n';
+			emitter.send(line, NDJSON);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
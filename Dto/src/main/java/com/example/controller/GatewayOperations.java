@@ -0,0 +1,116 @@
+package com.example.controller;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.example.netconf.DeviceOverloadedException;
+import com.example.netconf.GetConfigCache;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfMetrics;
+import com.example.netconf.NetconfRpcEncoder;
+import com.example.netconf.RpcTemplates;
+import com.example.session.LoginService;
+
+/**
+ * The request handling {@code AuthController} and the WebFlux
+ * {@code ReactiveGatewayController} share: which device a session talks to,
+ * which rpc an operation or template sends, what an edit drops from the
+ * get-config cache and how a failure becomes an HTTP status. The controllers
+ * only differ in how they wait for the device and write the reply.
+ */
+@Component
+public class GatewayOperations {
+	private static final Logger logger = LoggerFactory.getLogger(GatewayOperations.class);
+
+	private final LoginService loginService;
+	private final GetConfigCache getConfigCache;
+	private final RpcTemplates rpcTemplates;
+
+	public GatewayOperations(LoginService loginService, GetConfigCache getConfigCache, RpcTemplates rpcTemplates) {
+		this.loginService = loginService;
+		this.getConfigCache = getConfigCache;
+		this.rpcTemplates = rpcTemplates;
+	}
+
+	//empty when the session is unknown or has expired
+	public Optional<NetconfDeviceKey> device(String sessionId, String operation) {
+		Optional<NetconfDeviceKey> device = loginService.device(sessionId);
+		if (device.isPresent()) {
+			logger.info("Session ID {}-{} operation invoked", sessionId, operation);
+		}
+		return device;
+	}
+
+	//get, get-config or edit-config
+	public Operation operation(String operation, Map<String, String> request) {
+		return new Operation(operation, "edit-config".equals(operation), request.getOrDefault("datastore", "running"),
+				() -> NetconfRpcEncoder.forOperation(operation, request.get("messageId"), request));
+	}
+
+	//a template from netconf.rpc.templates, empty if there is none by that name
+	public Optional<Operation> template(String name, Map<String, String> request) {
+		return rpcTemplates.get(name).map(template -> {
+			String operation = template.getOperation();
+			//commit, copy-config, discard-changes or a vendor rpc may change any datastore; an edit-config
+			//template may fix its target, then every datastore of the device is dropped as well
+			boolean edits = !"get".equals(operation) && !"get-config".equals(operation);
+			String datastore = "edit-config".equals(operation) ? request.get("datastore") : null;
+			return new Operation("rpc/" + name, edits, datastore,
+					() -> template.toMessage(request.get("messageId"), request));
+		});
+	}
+
+	//called once the rpc has completed, failed or timed out: even a timed out edit may have been applied
+	public void sent(NetconfDeviceKey device, Operation operation) {
+		if (operation.edits()) {
+			getConfigCache.invalidate(device, operation.datastore());
+		}
+	}
+
+	//logs the failure of an operation and maps it to its response
+	public Failure failure(NetconfDeviceKey device, String operation, Throwable failure) {
+		Throwable cause = (failure instanceof CompletionException || failure instanceof ExecutionException)
+				&& failure.getCause() != null ? failure.getCause() : failure;
+		if (cause instanceof TimeoutException) {
+			logger.warn("{} on {} timed out: {}", operation, device, cause.getMessage());
+			return new Failure(HttpStatus.GATEWAY_TIMEOUT, NetconfMetrics.TIMEOUT, cause.getMessage());
+		}
+		if (cause instanceof InterruptedException) {
+			return new Failure(HttpStatus.SERVICE_UNAVAILABLE, NetconfMetrics.CANCELLED, "Interrupted");
+		}
+		if (cause instanceof DeviceOverloadedException) {
+			logger.warn("{} on {} rejected: {}", operation, device, cause.getMessage());
+			return new Failure(HttpStatus.SERVICE_UNAVAILABLE, NetconfMetrics.REJECTED, cause.getMessage());
+		}
+		if (cause instanceof IllegalArgumentException) {
+			return new Failure(HttpStatus.BAD_REQUEST, NetconfMetrics.BAD_REQUEST, cause.getMessage());
+		}
+		logger.error("{} on {} failed", operation, device, cause);
+		return new Failure(HttpStatus.BAD_GATEWAY, NetconfMetrics.ERROR, cause.getMessage());
+	}
+
+	/**
+	 * One operation of a request: its name in logs and metrics, whether it
+	 * may change the configuration and of which datastore (null for any), and
+	 * how its rpc is built.
+	 */
+	public record Operation(String name, boolean edits, String datastore, Supplier<NetconfMessage> rpc) {
+	}
+
+	//a rejected request is worth retrying shortly, with Retry-After
+	public record Failure(HttpStatus status, String outcome, String message) {
+		public boolean retryLater() {
+			return NetconfMetrics.REJECTED.equals(outcome);
+		}
+	}
+}
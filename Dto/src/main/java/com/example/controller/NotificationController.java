@@ -0,0 +1,124 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.dto.LoginData;
+import com.example.netconf.DeviceNotification;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfSessionPool;
+import com.example.netconf.NotificationBus;
+import com.example.netconf.NotificationProperties;
+import com.example.netconf.NotificationService;
+import com.example.netconf.NotificationSubscriber;
+import com.example.session.SessionStore;
+
+/**
+ * Streams a device's NETCONF notifications to the browser as server-sent
+ * events, one event per notification named after its type.
+ */
+@RestController
+@RequestMapping("/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class NotificationController {
+	private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
+
+	private final SessionStore activeSessions;
+	private final NetconfSessionPool sessionPool;
+	private final NotificationService notificationService;
+	private final NotificationBus notificationBus;
+	private final NotificationProperties properties;
+
+	public NotificationController(SessionStore activeSessions, NetconfSessionPool sessionPool,
+			NotificationService notificationService, NotificationBus notificationBus, NotificationProperties properties) {
+		this.activeSessions = activeSessions;
+		this.sessionPool = sessionPool;
+		this.notificationService = notificationService;
+		this.notificationBus = notificationBus;
+		this.properties = properties;
+	}
+
+	/**
+	 * With {@code overflow=DISCONNECT} a client that cannot keep up is closed
+	 * instead of silently missing notifications; the default skips ahead and
+	 * sends a {@code dropped} event with the number lost.
+	 */
+	@GetMapping(value = "/notifications", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> notifications(@RequestParam String sessionId,
+			@RequestParam(required = false) String stream,
+			@RequestParam(defaultValue = "DROP_OLDEST") NotificationBus.Overflow overflow) {
+		LoginData loginData = activeSessions.get(sessionId).orElse(null);
+		if (loginData == null) {
+			return ResponseEntity.badRequest().build();
+		}
+		NetconfDeviceKey device = sessionPool.deviceKey(loginData.getIp(), loginData.getPort(),
+				loginData.getUsername());
+		try {
+			notificationService.acquire(device, stream);
+		} catch (TimeoutException e) {
+			return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		} catch (Exception e) {
+			logger.warn("Subscribing to {} failed: {}", device, e.getMessage());
+			return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+		}
+		logger.info("Session ID {} listening to notifications from {}", sessionId, device);
+
+		SseEmitter emitter = new SseEmitter(properties.getSseTimeout().toMillis());
+		AtomicBoolean released = new AtomicBoolean();
+		NotificationBus.Subscription subscription = notificationBus.subscribe("sse",
+				notification -> notification.device().equals(device), overflow, new NotificationSubscriber() {
+					@Override
+					public void onNotification(DeviceNotification notification) {
+						send(emitter, SseEmitter.event().id(Long.toString(notification.sequence()))
+								.name(notification.type()).data(notification.xml(), MediaType.APPLICATION_XML));
+					}
+
+					@Override
+					public void onDropped(long count) {
+						send(emitter, SseEmitter.event().name("dropped").data(count));
+					}
+
+					@Override
+					public void onClosed() {
+						emitter.complete();
+					}
+				});
+		Runnable cleanup = () -> {
+			subscription.close();
+			if (released.compareAndSet(false, true)) {
+				notificationService.release(device);
+			}
+		};
+		emitter.onCompletion(cleanup);
+		emitter.onTimeout(cleanup);
+		emitter.onError(error -> cleanup.run());
+		return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+	}
+
+	//a failed send means the client went away; the emitter's error callback cleans up
+	private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+		try {
+			emitter.send(event);
+		} catch (IOException | IllegalStateException e) {
+			emitter.completeWithError(e);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.dto.TransactionEntry;
+import com.example.dto.TransactionRequest;
+import com.example.dto.TransactionResult;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfRpcEncoder;
+import com.example.netconf.TransactionCoordinator;
+import com.example.session.LoginService;
+
+/**
+ * Commits one change to a group of devices all or nothing, see
+ * {@link TransactionCoordinator}. Answers 200 when every device committed and
+ * 409 with the per-device outcome otherwise.
+ */
+@RestController
+@RequestMapping("/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TransactionController {
+	private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
+
+	private final LoginService loginService;
+	private final TransactionCoordinator transactionCoordinator;
+
+	public TransactionController(LoginService loginService, TransactionCoordinator transactionCoordinator) {
+		this.loginService = loginService;
+		this.transactionCoordinator = transactionCoordinator;
+	}
+
+	@PostMapping("/transaction")
+	public ResponseEntity<TransactionResult> transaction(@RequestBody TransactionRequest request) {
+		if (request.getEntries() == null) {
+			return ResponseEntity.badRequest().build();
+		}
+		//entries for the same device go into one edit-config, joined only once each is well-formed on its own
+		Map<NetconfDeviceKey, String> configs = new LinkedHashMap<>();
+		for (TransactionEntry entry : request.getEntries()) {
+			NetconfDeviceKey device = entry == null ? null : resolve(entry);
+			if (device == null) {
+				return ResponseEntity.badRequest().build();
+			}
+			if (entry.getConfig() == null || entry.getConfig().isBlank()) {
+				return ResponseEntity.badRequest().build();
+			}
+			try {
+				NetconfRpcEncoder.checkFragment(entry.getConfig());
+			} catch (IllegalArgumentException e) {
+				logger.info("Transaction entry for {} rejected: {}", device, e.getMessage());
+				return ResponseEntity.badRequest().build();
+			}
+			configs.merge(device, entry.getConfig(), String::concat);
+		}
+		int maxDevices = transactionCoordinator.getProperties().getMaxDevices();
+		if (configs.isEmpty() || configs.size() > maxDevices) {
+			return ResponseEntity.badRequest().build();
+		}
+		boolean confirmed = request.getConfirmed() != null ? request.getConfirmed()
+				: transactionCoordinator.getProperties().isConfirmed();
+		logger.info("Transaction on {} devices invoked", configs.size());
+		try {
+			TransactionResult result = transactionCoordinator.execute(configs, confirmed);
+			return ResponseEntity.status(result.isCommitted() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+		}
+	}
+
+	//like a batch entry, a device is only reached through a login
+	private NetconfDeviceKey resolve(TransactionEntry entry) {
+		return entry.getSessionId() == null ? null : loginService.device(entry.getSessionId()).orElse(null);
+	}
+}
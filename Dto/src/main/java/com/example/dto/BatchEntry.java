@@ -0,0 +1,21 @@
+package com.example.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One operation of a batch, on the device of the login {@code sessionId}.
+ */
+@Getter
+@Setter
+public class BatchEntry {
+	private String sessionId;
+	private String operation;
+	private String messageId;
+	//namespace, container, datastore, config - as for the single-operation endpoints;
+	//merge/replace/create/delete/remove take container, list, key and the leaves, see ConfigChange
+	private Map<String, String> payload = new HashMap<>();
+}
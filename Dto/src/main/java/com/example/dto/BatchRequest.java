@@ -0,0 +1,16 @@
+package com.example.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchRequest {
+	private List<BatchEntry> entries = new ArrayList<>();
+	//optional overrides of netconf.batch.entry-timeout / batch-timeout, up to max-entry-timeout / max-batch-timeout
+	private Long entryTimeoutMs;
+	private Long batchTimeoutMs;
+}
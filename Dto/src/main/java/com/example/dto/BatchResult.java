@@ -0,0 +1,27 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchResult {
+	public enum Status { OK, ERROR, TIMEOUT, REJECTED }
+
+	private int index;
+	private String target;
+	private String operation;
+	private Status status;
+	private String reply;
+	private String error;
+	private long elapsedMs;
+
+	public BatchResult() {}
+
+	public BatchResult(int index, String target, String operation, Status status) {
+		this.index = index;
+		this.target = target;
+		this.operation = operation;
+		this.status = status;
+	}
+}
@@ -4,7 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
 
-@SpringBootApplication(scanBasePackages = {"com.example.controller" , "com.example.shell"})
+@SpringBootApplication(scanBasePackages = {"com.example.controller" , "com.example.shell" , "com.example.netconf" , "com.example.session" , "com.example.reactive"})
 
 public class DtoApplication {
 
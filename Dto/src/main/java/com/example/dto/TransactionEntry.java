@@ -0,0 +1,16 @@
+package com.example.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One device's part of a transaction, on the device of the login
+ * {@code sessionId}. Entries for the same device are applied in one edit-config.
+ */
+@Getter
+@Setter
+public class TransactionEntry {
+	private String sessionId;
+	//edit-config payload, the children of <config>
+	private String config;
+}
@@ -0,0 +1,15 @@
+package com.example.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TransactionRequest {
+	private List<TransactionEntry> entries = new ArrayList<>();
+	//optional override of netconf.transaction.confirmed
+	private Boolean confirmed;
+}
@@ -0,0 +1,41 @@
+package com.example.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TransactionResult {
+	public enum Status { COMMITTED, ROLLED_BACK, FAILED, IN_DOUBT }
+
+	private String id;
+	private boolean committed;
+	private List<DeviceResult> devices = new ArrayList<>();
+	private long elapsedMs;
+
+	/**
+	 * {@code IN_DOUBT} marks a device whose change stayed committed although
+	 * the transaction failed elsewhere, e.g. one without a candidate datastore,
+	 * or whose commit went unanswered.
+	 */
+	@Getter
+	@Setter
+	public static class DeviceResult {
+		private String target;
+		private Status status;
+		//candidate or running
+		private String mode;
+		//phase that failed: lock, edit, validate, commit or confirm
+		private String phase;
+		private String error;
+
+		public DeviceResult() {}
+
+		public DeviceResult(String target) {
+			this.target = target;
+		}
+	}
+}
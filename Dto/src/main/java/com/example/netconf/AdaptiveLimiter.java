@@ -0,0 +1,254 @@
+package com.example.netconf;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Concurrency limit and RPC timeouts for one device, learned from its replies.
+ * The limit grows by about one per round of full use and shrinks
+ * multiplicatively when replies slow down against the operation's median
+ * (the Vegas-style delay signal) or time out (the loss signal). Timeouts
+ * follow a high percentile of recent reply times per {@link #latencyKey}, so
+ * an unfiltered get is not held to what filtered ones take.
+ */
+final class AdaptiveLimiter {
+	//a timeout is a stronger signal than a slow reply
+	private static final double TIMEOUT_BACKOFF = 0.5;
+	//request shapes with their own reply times; more than that, e.g. from many ad hoc filters, get the ceiling
+	private static final int MAX_TRACKED = 64;
+	private static final int MAX_KEY_DEPTH = 4;
+
+	private final NetconfDeviceKey device;
+	private final NetconfLimitProperties properties;
+	private final NetconfMetrics metrics;
+	private final ConcurrentMap<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final Condition available = lock.newCondition();
+	private volatile double limit; //written under lock
+	private int inFlight; //guarded by lock
+	private int queued; //guarded by lock
+
+	AdaptiveLimiter(NetconfDeviceKey device, NetconfLimitProperties properties, NetconfMetrics metrics) {
+		this.device = device;
+		this.properties = properties;
+		this.metrics = metrics;
+		this.limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), properties.getInitialLimit()));
+		metrics.gauge("netconf.limit", device.toString(), this, AdaptiveLimiter::getLimit);
+	}
+
+	/**
+	 * Takes a slot, waiting at most {@code maxWaitNanos} (and never longer
+	 * than the queue timeout) behind requests already in flight.
+	 *
+	 * @throws DeviceOverloadedException if the queue is full or no slot freed up in time
+	 */
+	void acquire(long maxWaitNanos) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (inFlight >= permitted()) {
+				if (queued >= properties.getMaxQueued()) {
+					throw reject("its queue is full");
+				}
+				long wait = Math.min(maxWaitNanos, properties.getQueueTimeout().toNanos());
+				queued++;
+				try {
+					while (inFlight >= permitted()) {
+						if (wait <= 0) {
+							throw reject("no slot freed up in time");
+						}
+						wait = available.awaitNanos(wait);
+					}
+				} finally {
+					queued--;
+				}
+			}
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//a free slot right now, or false; never jumps ahead of callers already queued in acquire
+	boolean tryAcquire() {
+		lock.lock();
+		try {
+			if (queued > 0 || inFlight >= permitted()) {
+				return false;
+			}
+			inFlight++;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//latency only says something about load while the limit is actually in use
+	void onSuccess(String key, long nanos) {
+		LatencyTracker tracker = tracker(key);
+		boolean congested = tracker != null && tracker.count() >= properties.getMinSamples()
+				&& nanos > tracker.median() * properties.getLatencyTolerance();
+		if (tracker != null) {
+			tracker.record(nanos);
+		}
+		lock.lock();
+		try {
+			if (congested) {
+				decrease(properties.getBackoffRatio());
+			} else if (inFlight * 2 >= limit) {
+				int before = permitted();
+				limit = Math.min(properties.getMaxLimit(), limit + 1.0 / limit);
+				if (permitted() > before) {
+					available.signalAll();
+				}
+			}
+			release();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//the time waited is a lower bound on the real reply time, so recording it lets the timeout
+	//grow when the device has really become slower instead of timing out forever
+	void onTimeout(String key, long nanos) {
+		LatencyTracker tracker = tracker(key);
+		if (tracker != null) {
+			tracker.record(nanos);
+		}
+		lock.lock();
+		try {
+			decrease(TIMEOUT_BACKOFF);
+			release();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//failures such as a dropped session say nothing about load
+	void onFailure() {
+		lock.lock();
+		try {
+			release();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//ceiling until enough replies were seen for requests of this shape
+	Duration timeout(String key, Duration ceiling) {
+		LatencyTracker tracker = latencies.get(key);
+		if (tracker == null || tracker.count() < properties.getMinSamples()) {
+			return ceiling;
+		}
+		long nanos = (long) (tracker.percentile() * properties.getTimeoutMultiplier());
+		return Duration.ofNanos(Math.min(ceiling.toNanos(), Math.max(properties.getMinTimeout().toNanos(), nanos)));
+	}
+
+	double getLimit() {
+		return limit;
+	}
+
+	/**
+	 * What a request's reply time depends on: the operation, the element path
+	 * its filter or config selects and, for many entries of one list, their
+	 * count rounded down to a power of two. E.g. {@code get},
+	 * {@code get interfaces/interface/name} or
+	 * {@code edit-config interfaces/interface x64}. Leaf values are left out
+	 * so the number of keys stays small.
+	 */
+	static String latencyKey(NetconfMessage rpc) {
+		Element operation = firstElement(rpc.getDocument().getDocumentElement());
+		if (operation == null) {
+			return "unknown";
+		}
+		StringBuilder key = new StringBuilder(operation.getLocalName());
+		Element selection = child(operation, "filter");
+		if (selection == null) {
+			selection = child(operation, "config");
+		}
+		if (selection == null) {
+			return key.toString();
+		}
+		Element top = firstElement(selection);
+		if (top == null) {
+			//e.g. an xpath filter
+			return key.append(' ').append(selection.getLocalName()).toString();
+		}
+		Element element = top;
+		for (int depth = 0; element != null && depth < MAX_KEY_DEPTH; depth++) {
+			key.append(depth == 0 ? ' ' : '/').append(element.getLocalName());
+			element = firstElement(element);
+		}
+		int entries = elementCount(top);
+		if (entries > 1) {
+			key.append(" x").append(Integer.highestOneBit(entries));
+		}
+		return key.toString();
+	}
+
+	//null once MAX_TRACKED shapes are tracked; they are not learned, their timeout stays at the ceiling
+	private LatencyTracker tracker(String key) {
+		LatencyTracker tracker = latencies.get(key);
+		if (tracker != null || latencies.size() >= MAX_TRACKED) {
+			return tracker;
+		}
+		return latencies.computeIfAbsent(key, ignored -> new LatencyTracker(properties.getTimeoutPercentile()));
+	}
+
+	private static Element child(Element parent, String localName) {
+		for (Element element = firstElement(parent); element != null; element = nextElement(element)) {
+			if (localName.equals(element.getLocalName())) {
+				return element;
+			}
+		}
+		return null;
+	}
+
+	private static int elementCount(Element parent) {
+		int count = 0;
+		for (Element element = firstElement(parent); element != null; element = nextElement(element)) {
+			count++;
+		}
+		return count;
+	}
+
+	private static Element firstElement(Node parent) {
+		return element(parent.getFirstChild());
+	}
+
+	private static Element nextElement(Node node) {
+		return element(node.getNextSibling());
+	}
+
+	private static Element element(Node node) {
+		while (node != null && !(node instanceof Element)) {
+			node = node.getNextSibling();
+		}
+		return (Element) node;
+	}
+
+	private int permitted() {
+		return Math.max(1, (int) limit);
+	}
+
+	private void decrease(double ratio) {
+		limit = Math.max(properties.getMinLimit(), limit * ratio);
+	}
+
+	private void release() {
+		inFlight--;
+		available.signal();
+	}
+
+	private DeviceOverloadedException reject(String reason) {
+		metrics.rpcRejected(device.toString());
+		return new DeviceOverloadedException(device + " is at its limit of " + permitted()
+				+ " concurrent requests and " + reason);
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.netconf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.opendaylight.netconf.nettyutil.ReconnectStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+
+/**
+ * Retries a failed connect after an exponentially growing, jittered delay,
+ * until {@link ReconnectBackoff#maxAttempts()} retries have failed. One
+ * instance per client configuration.
+ */
+public class BackoffReconnectStrategy implements ReconnectStrategy {
+	private static final Logger logger = LoggerFactory.getLogger(BackoffReconnectStrategy.class);
+
+	private final EventExecutor executor;
+	private final int connectTimeoutMs;
+	private final ReconnectBackoff backoff;
+	private int attempts; //guarded by this
+
+	public BackoffReconnectStrategy(EventExecutor executor, int connectTimeoutMs, ReconnectBackoff backoff) {
+		this.executor = executor;
+		this.connectTimeoutMs = connectTimeoutMs;
+		this.backoff = backoff;
+	}
+
+	@Override
+	public int getConnectTimeout() {
+		return connectTimeoutMs;
+	}
+
+	@Override
+	public synchronized Future<Void> scheduleReconnect(Throwable cause) {
+		if (backoff.exhausted(attempts)) {
+			return executor.newFailedFuture(cause);
+		}
+		long delay = backoff.delayMillis(attempts++);
+		logger.info("Connect failed ({}), retry {} in {} ms", cause.getMessage(), attempts, delay);
+		return executor.<Void>schedule(() -> null, delay, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void reconnectSuccessful() {
+		attempts = 0;
+	}
+}
@@ -0,0 +1,322 @@
+package com.example.netconf;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.example.dto.BatchResult;
+
+/**
+ * Fans a batch of operations out to many devices at once, bounded by a global
+ * and a per-device concurrency limit. Results are handed to the caller in
+ * completion order.
+ */
+@Component
+public class BatchExecutor implements DisposableBean {
+
+	private final NetconfSessionPool sessionPool;
+	private final BatchProperties properties;
+	private final GetConfigCache getConfigCache;
+	private final EditConfigBatcher editConfigBatcher;
+	private final NetconfMetrics metrics;
+	private final BatchPermits permits;
+	private final ExecutorService executor;
+
+	public BatchExecutor(NetconfSessionPool sessionPool, BatchProperties properties, GetConfigCache getConfigCache,
+			EditConfigBatcher editConfigBatcher, NetconfMetrics metrics, BatchPermits permits) {
+		this.sessionPool = sessionPool;
+		this.properties = properties;
+		this.getConfigCache = getConfigCache;
+		this.editConfigBatcher = editConfigBatcher;
+		this.metrics = metrics;
+		this.permits = permits;
+		//tasks mostly wait on permits and devices, so platform threads are sized to the global limit
+		this.executor = properties.isVirtualThreads()
+				? Executors.newVirtualThreadPerTaskExecutor()
+				: Executors.newFixedThreadPool(properties.getMaxConcurrency());
+	}
+
+	public BatchProperties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Runs the tasks and blocks until every one has reported or the batch
+	 * timeout passes; unfinished tasks are then cancelled and reported as
+	 * {@link BatchResult.Status#TIMEOUT}. {@code onResult} is only called from
+	 * the calling thread.
+	 */
+	public void execute(List<BatchTask> tasks, Duration entryTimeout, Duration batchTimeout,
+			Consumer<BatchResult> onResult) throws InterruptedException {
+		execute(tasks, entryTimeout, batchTimeout, Integer.MAX_VALUE, onResult);
+	}
+
+	/**
+	 * As above, with at most {@code parallelism} tasks of this batch running
+	 * at once, on top of the global and per-device limits. Waiting for a turn
+	 * does not count against the entry timeout.
+	 */
+	public void execute(List<BatchTask> tasks, Duration entryTimeout, Duration batchTimeout, int parallelism,
+			Consumer<BatchResult> onResult) throws InterruptedException {
+		BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+		List<Future<?>> futures = new ArrayList<>(tasks.size());
+		Semaphore turns = new Semaphore(Math.max(1, parallelism));
+		for (BatchTask task : tasks) {
+			futures.add(executor.submit(() -> {
+				turns.acquire();
+				try {
+					completed.add(run(task, entryTimeout));
+				} finally {
+					turns.release();
+				}
+				return null;
+			}));
+		}
+		boolean[] reported = new boolean[tasks.size()];
+		long deadline = System.nanoTime() + batchTimeout.toNanos();
+		int remaining = tasks.size();
+		try {
+			while (remaining > 0) {
+				BatchResult result = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (result == null) {
+					break;
+				}
+				reported[indexOf(tasks, result.getIndex())] = true;
+				remaining--;
+				onResult.accept(result);
+			}
+		} finally {
+			for (int i = 0; i < tasks.size(); i++) {
+				if (!reported[i]) {
+					futures.get(i).cancel(true);
+				}
+			}
+		}
+		for (int i = 0; i < tasks.size() && remaining > 0; i++) {
+			if (!reported[i]) {
+				BatchTask task = tasks.get(i);
+				BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+						BatchResult.Status.TIMEOUT);
+				result.setError("Batch timeout of " + batchTimeout.toMillis() + " ms exceeded");
+				onResult.accept(result);
+			}
+		}
+	}
+
+	/**
+	 * Starts a batch whose tasks are handed over one at a time, for inputs too
+	 * long to hold at once. At most {@code window} tasks are submitted and not
+	 * yet reported, and a new one is taken as soon as any of them reports, so
+	 * no task waits for the slowest of a group. At most {@code parallelism}
+	 * run at once. Each task is bounded by the entry timeout only.
+	 */
+	public Run open(Duration entryTimeout, int window, int parallelism, Consumer<BatchResult> onResult) {
+		return new Run(entryTimeout, Math.max(1, window), parallelism, onResult);
+	}
+
+	/**
+	 * A batch fed from a single thread with {@link #submit}, then
+	 * {@link #finish}. {@code onResult} is only called from that thread, while
+	 * it submits or finishes.
+	 */
+	public final class Run {
+		private final Duration entryTimeout;
+		private final int window;
+		private final Semaphore turns;
+		private final Consumer<BatchResult> onResult;
+		private final BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+		//submitted and not yet reported
+		private int outstanding;
+
+		private Run(Duration entryTimeout, int window, int parallelism, Consumer<BatchResult> onResult) {
+			this.entryTimeout = entryTimeout;
+			this.window = window;
+			this.turns = new Semaphore(Math.max(1, parallelism));
+			this.onResult = onResult;
+		}
+
+		//waits for a free place in the window, reporting what has completed meanwhile
+		public void submit(BatchTask task) throws InterruptedException {
+			submit(task, CompletableFuture.completedFuture(null));
+		}
+
+		//as above, run once the device's login has gone through
+		public void submit(BatchTask task, CompletableFuture<?> login) throws InterruptedException {
+			report(completed.poll());
+			while (outstanding >= window) {
+				report(completed.take());
+			}
+			outstanding++;
+			executor.execute(() -> {
+				BatchResult result;
+				try {
+					result = loginFailure(task, login, entryTimeout);
+					if (result == null) {
+						turns.acquire();
+						try {
+							result = run(task, entryTimeout);
+						} finally {
+							turns.release();
+						}
+					}
+				} catch (InterruptedException e) {
+					result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+							BatchResult.Status.TIMEOUT);
+					result.setError("Cancelled");
+				}
+				completed.add(result);
+			});
+		}
+
+		//waits until every submitted task has reported
+		public void finish() throws InterruptedException {
+			while (outstanding > 0) {
+				report(completed.take());
+			}
+		}
+
+		private void report(BatchResult result) {
+			for (; result != null; result = completed.poll()) {
+				outstanding--;
+				onResult.accept(result);
+			}
+		}
+	}
+
+	//null once the device's login has gone through, otherwise the task's result
+	static BatchResult loginFailure(BatchTask task, CompletableFuture<?> login, Duration timeout)
+			throws InterruptedException {
+		try {
+			login.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			return null;
+		} catch (TimeoutException e) {
+			BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+					BatchResult.Status.TIMEOUT);
+			result.setError("Timed out logging in to " + task.device());
+			return result;
+		} catch (ExecutionException e) {
+			BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+					BatchResult.Status.ERROR);
+			result.setError(e.getCause().getMessage());
+			return result;
+		}
+	}
+
+	private BatchResult run(BatchTask task, Duration entryTimeout) {
+		long start = System.nanoTime();
+		long deadline = start + entryTimeout.toNanos();
+		BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+				BatchResult.Status.OK);
+		String outcome = NetconfMetrics.OK;
+		boolean acquired = false;
+		try {
+			//list entry changes only wait for their edit-config batch, which takes the permits when it is sent;
+			//holding one here would keep the batch small
+			if (ConfigChange.OPERATIONS.contains(task.operation())) {
+				EditConfigBatcher.ChangeResult change = editConfigBatcher
+						.submit(task.device(), task.payload().get("datastore"),
+								ConfigChange.fromPayload(task.operation(), task.payload()),
+								Duration.ofNanos(Math.max(1, deadline - System.nanoTime())))
+						.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (!change.applied()) {
+					//in doubt: the edit-config went out but its answer never came
+					result.setStatus(change.inDoubt() ? BatchResult.Status.TIMEOUT : BatchResult.Status.ERROR);
+					result.setError(change.error());
+					outcome = change.inDoubt() ? NetconfMetrics.TIMEOUT : NetconfMetrics.RPC_ERROR;
+				}
+				return finish(task, result, start, outcome);
+			}
+			acquired = permits.acquire(task.device(), Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+			if (!acquired) {
+				throw new TimeoutException("Timed out waiting for a concurrency slot");
+			}
+			NetconfMessage rpc = NetconfRpcEncoder.forOperation(task.operation(), task.messageId(), task.payload());
+			NetconfMessage reply;
+			try {
+				reply = sessionPool.execute(task.device(), rpc, Duration.ofNanos(Math.max(1, deadline - System.nanoTime())));
+			} finally {
+				if ("edit-config".equals(task.operation())) {
+					getConfigCache.invalidate(task.device(), task.payload().getOrDefault("datastore", "running"));
+				}
+			}
+			result.setReply(XmlUtil.toString(reply.getDocument()));
+			metrics.bytesReceived(task.device().toString(), result.getReply().getBytes(StandardCharsets.UTF_8).length);
+			//the reply is kept, the entry still failed
+			if (NetconfReplyParser.hasError(reply)) {
+				result.setStatus(BatchResult.Status.ERROR);
+				result.setError(NetconfReplyParser.rpcErrors(reply).stream().map(RpcError::toString)
+						.collect(Collectors.joining("; ")));
+				outcome = NetconfMetrics.RPC_ERROR;
+			}
+		} catch (TimeoutException e) {
+			result.setStatus(BatchResult.Status.TIMEOUT);
+			result.setError(e.getMessage());
+			outcome = NetconfMetrics.TIMEOUT;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result.setStatus(BatchResult.Status.TIMEOUT);
+			result.setError("Cancelled");
+			outcome = NetconfMetrics.CANCELLED;
+		} catch (DeviceOverloadedException e) {
+			result.setStatus(BatchResult.Status.REJECTED);
+			result.setError(e.getMessage());
+			outcome = NetconfMetrics.REJECTED;
+		} catch (IllegalArgumentException e) {
+			result.setStatus(BatchResult.Status.REJECTED);
+			result.setError(e.getMessage());
+			outcome = NetconfMetrics.BAD_REQUEST;
+		} catch (ExecutionException | RuntimeException e) {
+			result.setStatus(BatchResult.Status.ERROR);
+			result.setError(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+			outcome = NetconfMetrics.ERROR;
+		} finally {
+			if (acquired) {
+				permits.release(task.device());
+			}
+		}
+		return finish(task, result, start, outcome);
+	}
+
+	private BatchResult finish(BatchTask task, BatchResult result, long start, String outcome) {
+		long elapsed = System.nanoTime() - start;
+		result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsed));
+		metrics.operationCompleted(task.device().toString(), task.operation(), outcome, elapsed);
+		return result;
+	}
+
+	private static int indexOf(List<BatchTask> tasks, int index) {
+		//tasks keep their position unless the caller filtered some out
+		if (index < tasks.size() && tasks.get(index).index() == index) {
+			return index;
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			if (tasks.get(i).index() == index) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Unknown batch index " + index);
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,58 @@
+package com.example.netconf;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The global and per-device RPC limits of batches,
+ * {@code netconf.batch.max-concurrency} and {@code max-concurrency-per-device}.
+ * A single operation and a coalesced edit-config each hold one permit of both
+ * while their RPC is out.
+ */
+@Component
+class BatchPermits {
+	private final BatchProperties properties;
+	private final Semaphore global;
+	private final ConcurrentMap<NetconfDeviceKey, Semaphore> devices = new ConcurrentHashMap<>();
+
+	BatchPermits(BatchProperties properties) {
+		this.properties = properties;
+		this.global = new Semaphore(properties.getMaxConcurrency(), true);
+	}
+
+	//waits up to netconf.batch.entry-timeout
+	boolean acquire(NetconfDeviceKey device) throws InterruptedException {
+		return acquire(device, properties.getEntryTimeout());
+	}
+
+	//true once both permits are held, false if the timeout passed first
+	boolean acquire(NetconfDeviceKey device, Duration timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		if (!global.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+			return false;
+		}
+		boolean local = false;
+		try {
+			local = device(device).tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			return local;
+		} finally {
+			if (!local) {
+				global.release();
+			}
+		}
+	}
+
+	void release(NetconfDeviceKey device) {
+		device(device).release();
+		global.release();
+	}
+
+	private Semaphore device(NetconfDeviceKey device) {
+		return devices.computeIfAbsent(device, key -> new Semaphore(properties.getMaxConcurrencyPerDevice(), true));
+	}
+}
@@ -0,0 +1,26 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.batch")
+public class BatchProperties {
+	//RPCs running at once across all batches
+	private int maxConcurrency = 256;
+	private int maxConcurrencyPerDevice = 4;
+	private boolean virtualThreads = true;
+	private Duration entryTimeout = Duration.ofSeconds(30);
+	private Duration batchTimeout = Duration.ofMinutes(5);
+	//upper bounds for the timeouts a request may ask for
+	private Duration maxEntryTimeout = Duration.ofMinutes(5);
+	private Duration maxBatchTimeout = Duration.ofMinutes(30);
+	private int maxEntries = 10_000;
+}
@@ -0,0 +1,7 @@
+package com.example.netconf;
+
+import java.util.Map;
+
+public record BatchTask(int index, NetconfDeviceKey device, String operation, String messageId,
+		Map<String, String> payload) {
+}
@@ -0,0 +1,228 @@
+package com.example.netconf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers what every device advertised in its last hello, across sessions
+ * and restarts. Capability sets are stored once per distinct set, keyed by
+ * their sorted URIs, and devices point at a set, so thousands of devices of
+ * the same model and release cost one entry. A set no device points at any
+ * more is dropped.
+ * <p>
+ * The file is a small binary snapshot: magic and version, the distinct sets
+ * (count, URIs), then every device (host, port, username, set index), with
+ * strings as a length and their UTF-8 bytes. It is rewritten to a temporary
+ * file and moved into place, so a crash leaves the previous snapshot intact.
+ */
+@Component
+public class CapabilityCache implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(CapabilityCache.class);
+	private static final int MAGIC = 0x4e434331; //NCC1
+	private static final int VERSION = 2;
+	//no capability URI comes near this, a larger length means a corrupt file
+	private static final int MAX_STRING = 1 << 24;
+
+	private final CapabilityCacheProperties properties;
+	private final ConcurrentMap<List<String>, DeviceCapabilities> sets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<NetconfDeviceKey, DeviceCapabilities> devices = new ConcurrentHashMap<>();
+	private final AtomicBoolean dirty = new AtomicBoolean();
+	private final ScheduledExecutorService flusher;
+
+	public CapabilityCache(CapabilityCacheProperties properties) {
+		this.properties = properties;
+		if (!properties.isPersistent()) {
+			this.flusher = null;
+			return;
+		}
+		load(properties.getFile());
+		this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "capability-cache-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = properties.getFlushInterval().toMillis();
+		flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Records a device's hello and returns the parsed capabilities; a hello
+	 * seen before is sorted and looked up, not parsed again.
+	 */
+	public DeviceCapabilities record(NetconfDeviceKey device, Collection<String> capabilities) {
+		DeviceCapabilities parsed = parse(capabilities);
+		DeviceCapabilities previous = devices.put(device, parsed);
+		if (previous != parsed) {
+			dirty.set(true);
+			prune(previous);
+		}
+		return parsed;
+	}
+
+	//the shared instance for this set, parsed only the first time any device advertises it
+	public DeviceCapabilities parse(Collection<String> capabilities) {
+		List<String> sorted = capabilities.stream().sorted().toList();
+		return sets.computeIfAbsent(sorted, DeviceCapabilities::of);
+	}
+
+	//last known capabilities, without opening a session
+	public Optional<DeviceCapabilities> get(NetconfDeviceKey device) {
+		return Optional.ofNullable(devices.get(device));
+	}
+
+	public boolean supports(NetconfDeviceKey device, NetconfFeature feature) {
+		DeviceCapabilities capabilities = devices.get(device);
+		return capabilities != null && capabilities.supports(feature);
+	}
+
+	public void forget(NetconfDeviceKey device) {
+		DeviceCapabilities removed = devices.remove(device);
+		if (removed != null) {
+			dirty.set(true);
+			prune(removed);
+		}
+	}
+
+	//a set parsed concurrently for a new device may be dropped here, it is then just parsed again
+	private void prune(DeviceCapabilities capabilities) {
+		if (capabilities != null && !devices.containsValue(capabilities)) {
+			sets.remove(capabilities.capabilities(), capabilities);
+		}
+	}
+
+	public int size() {
+		return devices.size();
+	}
+
+	@Override
+	public void destroy() {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flush();
+		}
+	}
+
+	void flush() {
+		if (!dirty.getAndSet(false)) {
+			return;
+		}
+		try {
+			write(properties.getFile());
+		} catch (IOException | RuntimeException e) {
+			dirty.set(true);
+			logger.warn("Unable to write capability cache {}: {}", properties.getFile(), e.getMessage());
+		}
+	}
+
+	private void write(Path file) throws IOException {
+		Map<NetconfDeviceKey, DeviceCapabilities> snapshot = new HashMap<>(devices);
+		Map<DeviceCapabilities, Integer> used = new IdentityHashMap<>();
+		snapshot.values().forEach(capabilities -> used.putIfAbsent(capabilities, used.size()));
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(used.size());
+				//in index order, IdentityHashMap iterates in no particular one
+				DeviceCapabilities[] indexed = new DeviceCapabilities[used.size()];
+				used.forEach((capabilities, index) -> indexed[index] = capabilities);
+				for (DeviceCapabilities capabilities : indexed) {
+					out.writeInt(capabilities.capabilities().size());
+					for (String capability : capabilities.capabilities()) {
+						writeString(out, capability);
+					}
+				}
+				out.writeInt(snapshot.size());
+				for (Map.Entry<NetconfDeviceKey, DeviceCapabilities> entry : snapshot.entrySet()) {
+					writeString(out, entry.getKey().host());
+					out.writeInt(entry.getKey().port());
+					writeString(out, entry.getKey().username());
+					out.writeInt(used.get(entry.getValue()));
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		logger.debug("Wrote capabilities of {} devices ({} distinct) to {}", snapshot.size(), used.size(), file);
+	}
+
+	//a missing or unreadable file only means devices are learned again as they connect
+	private void load(Path file) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				logger.warn("Ignoring capability cache {} with unknown format", file);
+				return;
+			}
+			int setCount = in.readInt();
+			List<DeviceCapabilities> indexed = new ArrayList<>();
+			for (int i = 0; i < setCount; i++) {
+				int count = in.readInt();
+				List<String> capabilities = new ArrayList<>();
+				for (int j = 0; j < count; j++) {
+					capabilities.add(readString(in));
+				}
+				DeviceCapabilities parsed = DeviceCapabilities.of(capabilities);
+				indexed.add(sets.computeIfAbsent(parsed.capabilities(), key -> parsed));
+			}
+			int deviceCount = in.readInt();
+			for (int i = 0; i < deviceCount; i++) {
+				NetconfDeviceKey device = new NetconfDeviceKey(readString(in), in.readInt(), readString(in));
+				devices.put(device, indexed.get(in.readInt()));
+			}
+			logger.info("Loaded capabilities of {} devices ({} distinct) from {}", devices.size(), sets.size(), file);
+		} catch (NoSuchFileException e) {
+			logger.debug("No capability cache at {}", file);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Ignoring unreadable capability cache {}: {}", file, e.getMessage());
+			sets.clear();
+			devices.clear();
+		}
+	}
+
+	//writeUTF is limited to 64 KB, a capability URI is not
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_STRING) {
+			throw new IOException("Bad string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
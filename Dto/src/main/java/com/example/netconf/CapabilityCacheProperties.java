@@ -0,0 +1,22 @@
+package com.example.netconf;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.capabilities")
+public class CapabilityCacheProperties {
+	//off: capabilities are still cached in memory, just not written to disk
+	private boolean persistent = true;
+	private Path file = Path.of("netconf-capabilities.bin");
+	//changes are written out at most this often, and once more on shutdown
+	private Duration flushInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,60 @@
+package com.example.netconf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One list entry to create, merge, replace or delete through edit-config, e.g.
+ * an {@code interface} under {@code interfaces}. {@code keyLeaf} names the
+ * list key; deletes only carry that leaf.
+ */
+public record ConfigChange(String namespace, String container, String list, String keyLeaf, String operation,
+		Map<String, String> leaves) {
+
+	//RFC 6241 section 7.2 operation attribute values
+	public static final Set<String> OPERATIONS = Set.of("merge", "replace", "create", "delete", "remove");
+
+	private static final Set<String> RESERVED = Set.of("datastore", "namespace", "container", "list", "key");
+
+	public ConfigChange {
+		if (!OPERATIONS.contains(operation)) {
+			throw new IllegalArgumentException("Invalid edit operation " + operation);
+		}
+		if (container == null || container.isBlank() || list == null || list.isBlank()) {
+			throw new IllegalArgumentException("container and list are required");
+		}
+		if (leaves.get(keyLeaf) == null) {
+			throw new IllegalArgumentException("Missing key leaf " + keyLeaf);
+		}
+	}
+
+	/**
+	 * Reads a change from batch payload parameters: {@code namespace},
+	 * {@code container}, {@code list}, {@code key} (defaults to {@code name})
+	 * and every other parameter except {@code datastore} as a leaf.
+	 */
+	public static ConfigChange fromPayload(String operation, Map<String, String> payload) {
+		String keyLeaf = payload.getOrDefault("key", "name");
+		Map<String, String> leaves = new LinkedHashMap<>();
+		//key first, as YANG requires for list entries
+		if (payload.containsKey(keyLeaf)) {
+			leaves.put(keyLeaf, payload.get(keyLeaf));
+		}
+		payload.forEach((name, value) -> {
+			if (!RESERVED.contains(name)) {
+				leaves.putIfAbsent(name, value);
+			}
+		});
+		return new ConfigChange(payload.getOrDefault("namespace", ""), payload.get("container"), payload.get("list"),
+				keyLeaf, operation, leaves);
+	}
+
+	public String key() {
+		return leaves.get(keyLeaf);
+	}
+
+	public boolean removes() {
+		return "delete".equals(operation) || "remove".equals(operation);
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.netconf;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What one hello advertised, parsed once: protocol features as an
+ * {@link java.util.EnumSet} and YANG modules by name, both for O(1) lookups.
+ * Devices that advertise the same set share one instance, keyed by its
+ * sorted URIs.
+ *
+ * @param capabilities sorted capability URIs
+ */
+public record DeviceCapabilities(List<String> capabilities, Set<NetconfFeature> features,
+		Map<String, Module> modules) {
+
+	/**
+	 * A {@code ?module=} capability; revision is null when not advertised.
+	 */
+	public record Module(String name, String namespace, String revision) {
+	}
+
+	public static DeviceCapabilities of(Collection<String> capabilities) {
+		List<String> sorted = capabilities.stream().sorted().toList();
+		Map<String, Module> modules = new LinkedHashMap<>();
+		for (String capability : sorted) {
+			Module module = parseModule(capability);
+			if (module != null) {
+				modules.put(module.name(), module);
+			}
+		}
+		return new DeviceCapabilities(sorted, Collections.unmodifiableSet(NetconfFeature.of(sorted)),
+				Collections.unmodifiableMap(modules));
+	}
+
+	public boolean supports(NetconfFeature feature) {
+		return features.contains(feature);
+	}
+
+	public Module module(String name) {
+		return modules.get(name);
+	}
+
+	//urn:ietf:params:xml:ns:yang:ietf-interfaces?module=ietf-interfaces&revision=2014-05-08
+	private static Module parseModule(String capability) {
+		int query = capability.indexOf('?');
+		if (query < 0) {
+			return null;
+		}
+		String name = null;
+		String revision = null;
+		for (String parameter : capability.substring(query + 1).split("&")) {
+			if (parameter.startsWith("module=")) {
+				name = parameter.substring("module=".length());
+			} else if (parameter.startsWith("revision=")) {
+				revision = parameter.substring("revision=".length());
+			}
+		}
+		return name == null ? null : new Module(name, capability.substring(0, query), revision);
+	}
+}
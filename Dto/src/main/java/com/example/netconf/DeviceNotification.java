@@ -0,0 +1,39 @@
+package com.example.netconf;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * One {@code <notification>} as it travels through the {@link NotificationBus}.
+ * The DOM is serialized once when the notification arrives, so subscribers on
+ * other threads never touch it.
+ *
+ * @param type local name of the event element, e.g. {@code netconf-config-change}
+ */
+public record DeviceNotification(long sequence, NetconfDeviceKey device, String type, String eventTime,
+		String xml) {
+
+	//sequence is assigned when the notification is published
+	static DeviceNotification of(NetconfDeviceKey device, NetconfMessage message) {
+		String type = "unknown";
+		String eventTime = null;
+		Element root = message.getDocument().getDocumentElement();
+		for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (!(child instanceof Element element)) {
+				continue;
+			}
+			if ("eventTime".equals(element.getLocalName())) {
+				eventTime = element.getTextContent().trim();
+			} else {
+				type = element.getLocalName();
+			}
+		}
+		return new DeviceNotification(-1, device, type, eventTime, XmlUtil.toString(message.getDocument()));
+	}
+
+	DeviceNotification withSequence(long sequence) {
+		return new DeviceNotification(sequence, device, type, eventTime, xml);
+	}
+}
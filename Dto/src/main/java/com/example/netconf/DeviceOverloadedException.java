@@ -0,0 +1,15 @@
+package com.example.netconf;
+
+/**
+ * A request was turned away before reaching the device because the device
+ * already has as many requests outstanding as its adaptive limit allows and
+ * the queue in front of it is full or did not move in time, or because the
+ * session it was given to has its own queue full.
+ */
+public class DeviceOverloadedException extends IllegalStateException {
+	private static final long serialVersionUID = 1L;
+
+	public DeviceOverloadedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.batch.edit-config")
+public class EditConfigBatchProperties {
+	//off: every change is sent in an edit-config of its own
+	private boolean enabled = true;
+	//how long the first change of a batch waits for others to the same device and datastore
+	private Duration window = Duration.ofMillis(20);
+	//a batch is sent as soon as it holds this many changes
+	private int maxEntries = 500;
+	//rollback-on-error lets failed batches be split and retried; the device needs :rollback-on-error
+	private String errorOption = "rollback-on-error";
+}
@@ -0,0 +1,333 @@
+package com.example.netconf;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces list entry changes bound for the same device and datastore into
+ * one {@code edit-config}. A batch is sent when it reaches
+ * {@code max-entries} or its window closes, whichever comes first.
+ * <p>
+ * Each change gets its own result. Changes named by an {@code error-path} of
+ * the reply fail with that error. With {@code rollback-on-error} nothing was
+ * applied, so the rest are sent again, and a batch whose errors name no entry
+ * is split in half until the culprits are isolated. Otherwise the rest
+ * succeed ({@code continue-on-error}) or, after the first failure, were never
+ * tried ({@code stop-on-error}). An edit-config that timed out or lost its
+ * session after it was sent leaves its changes in doubt.
+ * <p>
+ * A batch never holds two changes to the same list entry: the second starts
+ * a new batch, which is sent once the first has been answered.
+ */
+@Component
+public class EditConfigBatcher implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(EditConfigBatcher.class);
+
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCache getConfigCache;
+	private final EditConfigBatchProperties properties;
+	private final NetconfMetrics metrics;
+	private final BatchPermits permits;
+	private final ConcurrentMap<Target, Batch> batches = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService windows;
+	//sending blocks on the device, one virtual thread per edit-config
+	private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+	public EditConfigBatcher(NetconfSessionPool sessionPool, GetConfigCache getConfigCache,
+			EditConfigBatchProperties properties, NetconfMetrics metrics, BatchPermits permits) {
+		this.sessionPool = sessionPool;
+		this.getConfigCache = getConfigCache;
+		this.properties = properties;
+		this.metrics = metrics;
+		this.permits = permits;
+		this.windows = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "edit-config-batcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues a change; the future completes once the edit-config carrying it
+	 * has been answered. A null datastore means running. The edit-config is
+	 * given until the latest {@code timeout} of the changes it carries.
+	 */
+	public CompletableFuture<ChangeResult> submit(NetconfDeviceKey device, String datastore, ConfigChange change,
+			Duration timeout) {
+		Target target = new Target(device, datastore == null || datastore.isBlank() ? "running" : datastore);
+		Pending pending = new Pending(change, System.nanoTime() + timeout.toNanos(), new CompletableFuture<>());
+		if (!properties.isEnabled()) {
+			senders.execute(() -> sendLimited(target, List.of(pending)));
+			return pending.result();
+		}
+		Batch batch = batches.computeIfAbsent(target, key -> new Batch());
+		synchronized (batch) {
+			if (batch.holds(change)) {
+				dispatch(target, batch, batch.drain());
+			}
+			batch.add(pending);
+			if (batch.entries.size() >= properties.getMaxEntries()) {
+				dispatch(target, batch, batch.drain());
+			} else if (batch.entries.size() == 1) {
+				batch.window = windows.schedule(() -> flush(target, batch), properties.getWindow().toNanos(),
+						TimeUnit.NANOSECONDS);
+			}
+		}
+		return pending.result();
+	}
+
+	@Override
+	public void destroy() {
+		windows.shutdownNow();
+		batches.forEach(this::flush);
+		senders.shutdown();
+	}
+
+	private void flush(Target target, Batch batch) {
+		synchronized (batch) {
+			List<Pending> ready = batch.drain();
+			if (!ready.isEmpty()) {
+				dispatch(target, batch, ready);
+			}
+		}
+	}
+
+	//called holding the batch; waits for earlier sends carrying any of the same list entries, so changes to
+	//one entry reach the device in the order they were submitted
+	private void dispatch(Target target, Batch batch, List<Pending> ready) {
+		CompletableFuture<?>[] earlier = ready.stream().map(pending -> batch.sending.get(entry(pending.change())))
+				.filter(Objects::nonNull).distinct().toArray(CompletableFuture[]::new);
+		CompletableFuture<Void> sent = CompletableFuture.allOf(earlier).exceptionally(failure -> null)
+				.thenRunAsync(() -> sendLimited(target, ready), senders);
+		ready.forEach(pending -> batch.sending.put(entry(pending.change()), sent));
+		sent.whenComplete((ignored, failure) -> {
+			if (failure != null) {
+				ready.forEach(pending -> pending.result().completeExceptionally(failure));
+			}
+			synchronized (batch) {
+				ready.forEach(pending -> batch.sending.remove(entry(pending.change()), sent));
+			}
+		});
+	}
+
+	//one edit-config is one RPC against the batch limits; the sends of a split run under the same permits
+	private void sendLimited(Target target, List<Pending> entries) {
+		boolean acquired = false;
+		try {
+			acquired = permits.acquire(target.device(), remaining(entries));
+			if (!acquired) {
+				TimeoutException timeout = new TimeoutException("Timed out waiting for a concurrency slot");
+				entries.forEach(pending -> pending.result().completeExceptionally(timeout));
+				return;
+			}
+			send(target, entries);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			entries.forEach(pending -> pending.result().completeExceptionally(e));
+		} finally {
+			if (acquired) {
+				permits.release(target.device());
+			}
+		}
+	}
+
+	private void send(Target target, List<Pending> entries) {
+		//entries of one container are written under a single element, in this order
+		List<Pending> ordered = grouped(entries);
+		List<ConfigChange> changes = ordered.stream().map(Pending::change).toList();
+		String errorOption = errorOption(target.device());
+		NetconfMessage reply;
+		try {
+			NetconfMessage rpc = NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.editConfig(target.datastore(),
+					errorOption, NetconfRpcEncoder.changes(changes)));
+			reply = sessionPool.execute(target.device(), rpc, remaining(ordered));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			ordered.forEach(pending -> pending.result().completeExceptionally(e));
+			return;
+		} catch (Exception e) {
+			//once sent, the device may have applied the batch before the answer was lost
+			Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+			if (cause instanceof TimeoutException || cause instanceof SessionDownException down && down.isSent()) {
+				ChangeResult inDoubt = ChangeResult.inDoubt(cause.getMessage());
+				ordered.forEach(pending -> pending.result().complete(inDoubt));
+			} else {
+				ordered.forEach(pending -> pending.result().completeExceptionally(cause));
+			}
+			return;
+		} finally {
+			getConfigCache.invalidate(target.device(), target.datastore());
+			metrics.editConfigBatch(target.device().toString(), entries.size());
+		}
+		if (!NetconfReplyParser.hasError(reply)) {
+			ordered.forEach(pending -> pending.result().complete(ChangeResult.APPLIED));
+			return;
+		}
+		attribute(target, ordered, errorOption, NetconfReplyParser.rpcErrors(reply));
+	}
+
+	//rollback-on-error is only sent to devices whose hello offered it, anything else would reject every
+	//batch and split it entry by entry; before the first session to a device its batches stop at the first error
+	private String errorOption(NetconfDeviceKey device) {
+		String configured = properties.getErrorOption();
+		boolean supported = !"rollback-on-error".equals(configured) || sessionPool.capabilities(device)
+				.map(capabilities -> capabilities.supports(NetconfFeature.ROLLBACK_ON_ERROR)).orElse(false);
+		return supported ? configured : "stop-on-error";
+	}
+
+	private void attribute(Target target, List<Pending> ordered, String errorOption, List<RpcError> errors) {
+		List<Pending> rest = new ArrayList<>();
+		int firstFailure = -1;
+		for (int i = 0; i < ordered.size(); i++) {
+			Pending pending = ordered.get(i);
+			RpcError error = errorFor(pending.change(), errors);
+			if (error != null) {
+				pending.result().complete(ChangeResult.failed(error.toString()));
+				firstFailure = firstFailure < 0 ? i : firstFailure;
+			} else {
+				rest.add(pending);
+			}
+		}
+		if (rest.isEmpty()) {
+			return;
+		}
+		String summary = errors.isEmpty() ? "rpc-error" : errors.get(0).toString();
+		switch (errorOption) {
+		case "rollback-on-error":
+			if (firstFailure >= 0) {
+				send(target, rest);
+			} else if (rest.size() > 1) {
+				logger.debug("Splitting edit-config of {} entries to {} after an unattributed error: {}", rest.size(),
+						target.device(), summary);
+				send(target, rest.subList(0, rest.size() / 2));
+				send(target, rest.subList(rest.size() / 2, rest.size()));
+			} else {
+				rest.get(0).result().complete(ChangeResult.failed(summary));
+			}
+			break;
+		case "continue-on-error":
+			ChangeResult unattributed = firstFailure >= 0 ? ChangeResult.APPLIED : ChangeResult.failed(summary);
+			rest.forEach(pending -> pending.result().complete(unattributed));
+			break;
+		default:
+			//stop-on-error: the device stopped at the first failing entry in document order
+			int stop = firstFailure;
+			for (Pending pending : rest) {
+				int index = ordered.indexOf(pending);
+				pending.result().complete(stop >= 0 && index < stop ? ChangeResult.APPLIED
+						: ChangeResult.failed("Not applied, the batch stopped at " + summary));
+			}
+			break;
+		}
+	}
+
+	//error-path names the entry by its key, e.g. .../t:interface[t:name='eth0']
+	private static RpcError errorFor(ConfigChange change, List<RpcError> errors) {
+		for (RpcError error : errors) {
+			String path = error.path();
+			if (path != null && path.contains(change.list())
+					&& (path.contains("'" + change.key() + "'") || path.contains("\"" + change.key() + "\""))) {
+				return error;
+			}
+		}
+		return null;
+	}
+
+	//until the last of the callers stops waiting, at least a nanosecond so the pool still tries
+	private static Duration remaining(List<Pending> entries) {
+		long deadline = entries.stream().mapToLong(Pending::deadline).max().orElse(System.nanoTime());
+		return Duration.ofNanos(Math.max(1, deadline - System.nanoTime()));
+	}
+
+	private static List<Pending> grouped(List<Pending> entries) {
+		Map<String, Integer> firstSeen = new LinkedHashMap<>();
+		for (Pending pending : entries) {
+			firstSeen.putIfAbsent(group(pending.change()), firstSeen.size());
+		}
+		List<Pending> ordered = new ArrayList<>(entries);
+		ordered.sort(Comparator.comparingInt(pending -> firstSeen.get(group(pending.change()))));
+		return ordered;
+	}
+
+	private static String group(ConfigChange change) {
+		return change.namespace() + ' ' + change.container();
+	}
+
+	private static String entry(ConfigChange change) {
+		return group(change) + ' ' + change.list() + ' ' + change.key();
+	}
+
+	/**
+	 * Outcome of one change; {@code error} says why it was not applied or,
+	 * {@code inDoubt}, why it is not known whether it was.
+	 */
+	public record ChangeResult(boolean applied, boolean inDoubt, String error) {
+		static final ChangeResult APPLIED = new ChangeResult(true, false, null);
+
+		static ChangeResult failed(String error) {
+			return new ChangeResult(false, false, error);
+		}
+
+		static ChangeResult inDoubt(String error) {
+			return new ChangeResult(false, true, error);
+		}
+	}
+
+	private record Target(NetconfDeviceKey device, String datastore) {
+	}
+
+	private record Pending(ConfigChange change, long deadline, CompletableFuture<ChangeResult> result) {
+	}
+
+	private static final class Batch {
+		private List<Pending> entries = new ArrayList<>(); //guarded by this
+		private ScheduledFuture<?> window; //guarded by this
+		//sends not answered yet, by the list entries they carry; guarded by this
+		private final Map<String, CompletableFuture<Void>> sending = new HashMap<>();
+		private final Set<String> held = new HashSet<>(); //list entries of the changes in entries, guarded by this
+
+		void add(Pending pending) {
+			entries.add(pending);
+			held.add(entry(pending.change()));
+		}
+
+		boolean holds(ConfigChange change) {
+			return held.contains(entry(change));
+		}
+
+		List<Pending> drain() {
+			List<Pending> drained = entries;
+			entries = new ArrayList<>();
+			held.clear();
+			if (window != null) {
+				window.cancel(false);
+				window = null;
+			}
+			return drained;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Element;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Read-through cache of {@code get-config} replies per device, datastore and
+ * subtree filter. Concurrent misses for one key share a single device call.
+ * Entries expire after a TTL and are dropped when the datastore changes: an
+ * {@code edit-config} sent through us or a {@code netconf-config-change}
+ * notification from the device. If notifications were dropped, everything is.
+ */
+@Component
+public class GetConfigCache {
+	private static final Logger logger = LoggerFactory.getLogger(GetConfigCache.class);
+
+	public static final String NOTIFICATIONS_NS = "urn:ietf:params:xml:ns:yang:ietf-netconf-notifications";
+	private static final String CONFIG_CHANGE = "netconf-config-change";
+
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCacheProperties properties;
+	private final NetconfMetrics metrics;
+	private final long waitMs;
+	private final AsyncCache<Key, Reply> cache;
+	//bumped on every invalidation, so a load that overlapped an edit is not kept
+	private final ConcurrentMap<NetconfDeviceKey, AtomicLong> generations = new ConcurrentHashMap<>();
+
+	public GetConfigCache(NetconfSessionPool sessionPool, NetconfPoolProperties poolProperties,
+			GetConfigCacheProperties properties, NetconfMetrics metrics, MeterRegistry meterRegistry,
+			NotificationBus notificationBus) {
+		this.sessionPool = sessionPool;
+		this.properties = properties;
+		this.metrics = metrics;
+		this.waitMs = poolProperties.getBorrowTimeout().plus(poolProperties.getRequestTimeout()).toMillis();
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(properties.getMaxSize().toBytes())
+				.weigher((Key key, Reply reply) -> reply.xml().length)
+				.expireAfterWrite(properties.getTtl())
+				.recordStats()
+				.buildAsync();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "netconf.get-config");
+		notificationBus.subscribe("get-config-cache", notification -> CONFIG_CHANGE.equals(notification.type()),
+				NotificationBus.Overflow.DROP_OLDEST, new NotificationSubscriber() {
+					@Override
+					public void onNotification(DeviceNotification notification) {
+						invalidate(notification.device(), changedDatastore(notification.xml()));
+					}
+
+					@Override
+					public void onDropped(long count) {
+						invalidateAll();
+					}
+				});
+	}
+
+	/**
+	 * Returns the reply for a get-config with the given {@code datastore},
+	 * {@code namespace} and {@code container} parameters, from the cache when
+	 * possible. Replies carrying an rpc-error are returned but not kept.
+	 */
+	public Reply getConfig(NetconfDeviceKey device, Map<String, String> params)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		Key key = key(device, params);
+		if (!properties.isEnabled()) {
+			return load(key);
+		}
+		long generation = generation(device).get();
+		CompletableFuture<Reply> loading = new CompletableFuture<>();
+		CompletableFuture<Reply> shared = cache.get(key, (k, executor) -> loading);
+		if (shared != loading) {
+			return await(shared);
+		}
+		//this caller won the miss; the device call runs on its own thread, not inside the cache
+		try {
+			Reply reply = load(key);
+			loading.complete(reply);
+			if (reply.error() || generation(device).get() != generation) {
+				cache.asMap().remove(key, loading);
+			}
+			return reply;
+		} catch (InterruptedException | TimeoutException | ExecutionException | RuntimeException e) {
+			loading.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	//same as getConfig without blocking the caller; a miss goes out through NetconfSessionPool.executeAsync
+	public CompletableFuture<Reply> getConfigAsync(NetconfDeviceKey device, Map<String, String> params) {
+		Key key = key(device, params);
+		if (!properties.isEnabled()) {
+			return loadAsync(key);
+		}
+		long generation = generation(device).get();
+		CompletableFuture<Reply> loading = new CompletableFuture<>();
+		CompletableFuture<Reply> shared = cache.get(key, (k, executor) -> loading);
+		if (shared != loading) {
+			return shared.copy().orTimeout(waitMs, TimeUnit.MILLISECONDS);
+		}
+		loadAsync(key).whenComplete((reply, failure) -> {
+			if (failure != null) {
+				loading.completeExceptionally(failure);
+				return;
+			}
+			loading.complete(reply);
+			if (reply.error() || generation(device).get() != generation) {
+				cache.asMap().remove(key, loading);
+			}
+		});
+		return loading.copy();
+	}
+
+	//datastore may be null to drop every cached datastore of the device
+	public void invalidate(NetconfDeviceKey device, String datastore) {
+		generation(device).incrementAndGet();
+		cache.asMap().keySet()
+				.removeIf(key -> key.device().equals(device) && (datastore == null || datastore.equals(key.datastore())));
+	}
+
+	public void invalidateAll() {
+		generations.values().forEach(AtomicLong::incrementAndGet);
+		cache.synchronous().invalidateAll();
+	}
+
+	private Reply load(Key key) throws InterruptedException, TimeoutException, ExecutionException {
+		return received(key, sessionPool.execute(key.device(), rpc(key)));
+	}
+
+	private CompletableFuture<Reply> loadAsync(Key key) {
+		return sessionPool.executeAsync(key.device(), rpc(key)).thenApply(message -> received(key, message));
+	}
+
+	private static NetconfMessage rpc(Key key) {
+		return NetconfRpcEncoder.toMessage(null,
+				NetconfRpcEncoder.getConfig(key.datastore(), key.namespace(), key.container()));
+	}
+
+	private Reply received(Key key, NetconfMessage message) {
+		Reply reply = Reply.of(message);
+		metrics.bytesReceived(key.device().toString(), reply.xml().length);
+		return reply;
+	}
+
+	private static Key key(NetconfDeviceKey device, Map<String, String> params) {
+		return new Key(device, params.getOrDefault("datastore", "running"), blankToNull(params.get("namespace")),
+				blankToNull(params.get("container")));
+	}
+
+	private Reply await(CompletableFuture<Reply> shared)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		try {
+			return shared.get(waitMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			//surface the loader's failure the same way as a direct call
+			if (e.getCause() instanceof TimeoutException timeout) {
+				throw new TimeoutException(timeout.getMessage());
+			}
+			if (e.getCause() instanceof RuntimeException runtime) {
+				throw runtime;
+			}
+			throw e;
+		}
+	}
+
+	//RFC 6470 names the datastore that changed, running when it is left out
+	private static String changedDatastore(String notification) {
+		try {
+			XMLStreamReader reader = XmlStreams.newReader(new StringReader(notification));
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT && "datastore".equals(reader.getLocalName())
+							&& NOTIFICATIONS_NS.equals(reader.getNamespaceURI())) {
+						return reader.getElementText().trim();
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			logger.debug("Unreadable {} notification, dropping all of its device's datastores", CONFIG_CHANGE, e);
+			return null;
+		}
+		return "running";
+	}
+
+	private AtomicLong generation(NetconfDeviceKey device) {
+		return generations.computeIfAbsent(device, k -> new AtomicLong());
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.isBlank() ? null : value;
+	}
+
+	private record Key(NetconfDeviceKey device, String datastore, String namespace, String container) {
+	}
+
+	/**
+	 * A serialized reply without its {@code message-id}; the caller's id is
+	 * spliced into the root tag when the reply is written out.
+	 */
+	public record Reply(byte[] xml, int messageIdAt, boolean error) {
+
+		static Reply of(NetconfMessage message) {
+			Element root = message.getDocument().getDocumentElement();
+			root.removeAttribute("message-id");
+			byte[] xml = NetconfReplyParser.toBytes(message);
+			return new Reply(xml, rootTagEnd(xml), NetconfReplyParser.hasError(message));
+		}
+
+		public void writeTo(OutputStream out, String messageId) throws IOException {
+			if (messageId == null || messageId.isBlank()) {
+				out.write(xml);
+				return;
+			}
+			String attribute = " message-id=\"" + messageId.replace("&", "&amp;").replace("<", "&lt;")
+					.replace("\"", "&quot;") + "\"";
+			out.write(xml, 0, messageIdAt);
+			out.write(attribute.getBytes(StandardCharsets.UTF_8));
+			out.write(xml, messageIdAt, xml.length - messageIdAt);
+		}
+
+		//offset of the '>' (or "/>") closing the root start tag, skipping any prolog
+		private static int rootTagEnd(byte[] xml) {
+			int i = 0;
+			while (i < xml.length - 1 && (xml[i] != '<' || xml[i + 1] == '?' || xml[i + 1] == '!')) {
+				i++;
+			}
+			while (i < xml.length && xml[i] != '>') {
+				i++;
+			}
+			return i > 0 && xml[i - 1] == '/' ? i - 1 : i;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.cache.get-config")
+public class GetConfigCacheProperties {
+	private boolean enabled = true;
+	//total size of cached replies, entries are weighed by their serialized length
+	private DataSize maxSize = DataSize.ofMegabytes(64);
+	//upper bound on staleness for changes made behind our back
+	private Duration ttl = Duration.ofSeconds(30);
+}
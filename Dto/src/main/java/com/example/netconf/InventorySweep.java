@@ -0,0 +1,307 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.dto.BatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Collects {@code <get>} or {@code <get-config>} from a whole fleet for an
+ * inventory. Devices are collected in parallel, each retried with backoff
+ * after timeouts, connection failures and rpc-errors, and results are appended to the
+ * {@link SweepJournal} as they come in. Starting a sweep again with the same
+ * input and directory skips the devices that were already written.
+ */
+@Component
+public class InventorySweep {
+	private static final Logger logger = LoggerFactory.getLogger(InventorySweep.class);
+	//a sweep only reads
+	public static final Set<String> OPERATIONS = Set.of("get", "get-config");
+	private static final BatchResult END = new BatchResult();
+
+	private final NetconfSessionPool sessionPool;
+	private final SweepProperties properties;
+	private final NetconfMetrics metrics;
+	private final ObjectMapper objectMapper;
+
+	public InventorySweep(NetconfSessionPool sessionPool, SweepProperties properties, NetconfMetrics metrics,
+			ObjectMapper objectMapper) {
+		this.sessionPool = sessionPool;
+		this.properties = properties;
+		this.metrics = metrics;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Starts or resumes a sweep into {@code directory}. {@code inputDigest}
+	 * identifies the device list; a directory holding a sweep of another list
+	 * is refused with an {@link IllegalStateException}.
+	 */
+	public Run open(Path directory, String inputDigest, int parallelism) throws IOException {
+		SweepJournal journal = SweepJournal.open(directory, inputDigest, properties.getSegmentSize().toBytes(),
+				objectMapper);
+		return new Run(directory, journal, parallelism > 0 ? parallelism : properties.getParallelism());
+	}
+
+	public record Summary(Map<BatchResult.Status, Integer> counts, int resumed) {
+	}
+
+	/**
+	 * One sweep. Feed it devices from a single thread with {@link #submit} or
+	 * {@link #reject}, skipping those {@link #isResumed}, then call
+	 * {@link #finish}. Closing without finishing stops the devices still being
+	 * collected; they are left for the next run.
+	 */
+	public final class Run implements AutoCloseable {
+		private final Path directory;
+		private final SweepJournal journal;
+		private final int parallelism;
+		//a slot is held from submit until the result is checkpointed, bounding replies held in memory
+		private final Semaphore slots;
+		private final BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+		private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		private final ReconnectBackoff backoff;
+		private final Map<BatchResult.Status, Integer> counts = new EnumMap<>(BatchResult.Status.class);
+		private final Thread writer;
+		private volatile IOException writeFailure;
+		private boolean finished;
+
+		private Run(Path directory, SweepJournal journal, int parallelism) {
+			this.directory = directory;
+			this.journal = journal;
+			this.parallelism = parallelism;
+			this.slots = new Semaphore(parallelism);
+			this.backoff = new ReconnectBackoff(properties.getRetryInitialDelay(), properties.getRetryMaxDelay(), 2.0,
+					0.5, Math.max(0, properties.getMaxAttempts() - 1));
+			this.writer = Thread.ofVirtual().name("sweep-writer").start(this::write);
+			if (journal.resumedCount() > 0) {
+				logger.info("Resuming sweep into {}, {} devices already collected", directory, journal.resumedCount());
+			}
+		}
+
+		public boolean isResumed(int index) {
+			return journal.isResumed(index);
+		}
+
+		public void submit(BatchTask task) throws InterruptedException, IOException {
+			submit(task, CompletableFuture.completedFuture(null));
+		}
+
+		//as above, collected once the device's login has gone through
+		public void submit(BatchTask task, CompletableFuture<?> login) throws InterruptedException, IOException {
+			if (!OPERATIONS.contains(task.operation())) {
+				BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+						BatchResult.Status.REJECTED);
+				result.setError("A sweep only runs " + String.join(" or ", OPERATIONS));
+				reject(result);
+				return;
+			}
+			acquire();
+			executor.execute(() -> {
+				BatchResult result;
+				try {
+					result = BatchExecutor.loginFailure(task, login, properties.getEntryTimeout());
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (result == null) {
+					result = collect(task);
+				}
+				//a device interrupted by close is not written, so the next run collects it
+				if (result != null) {
+					completed.add(result);
+				}
+			});
+		}
+
+		//records a device that cannot be collected, e.g. one with no credentials
+		public void reject(BatchResult result) throws InterruptedException, IOException {
+			acquire();
+			completed.add(result);
+		}
+
+		//waits until every submitted device is checkpointed
+		public Summary finish() throws InterruptedException, IOException {
+			while (!slots.tryAcquire(parallelism, 1, TimeUnit.SECONDS)) {
+				checkWriter();
+			}
+			slots.release(parallelism);
+			completed.add(END);
+			writer.join();
+			checkWriter();
+			finished = true;
+			return new Summary(new EnumMap<>(counts), journal.resumedCount());
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (!finished) {
+					executor.shutdownNow();
+					executor.awaitTermination(properties.getEntryTimeout().toMillis(), TimeUnit.MILLISECONDS);
+					completed.add(END);
+					writer.join();
+					logger.info("Sweep into {} stopped, run it again to resume", directory);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				executor.shutdownNow();
+				journal.close();
+			}
+		}
+
+		private void acquire() throws InterruptedException, IOException {
+			while (!slots.tryAcquire(1, TimeUnit.SECONDS)) {
+				checkWriter();
+			}
+			checkWriter();
+		}
+
+		private void checkWriter() throws IOException {
+			if (writeFailure != null) {
+				throw new IOException("Writing to " + directory + " failed", writeFailure);
+			}
+		}
+
+		//checkpoints results in groups, so a fleet of small replies is not one fsync each
+		private void write() {
+			List<BatchResult> pending = new ArrayList<>();
+			int groupSize = Math.max(1, Math.min(properties.getFlushEntries(), parallelism));
+			long intervalNanos = properties.getFlushInterval().toNanos();
+			long oldest = 0;
+			try {
+				while (true) {
+					BatchResult result = pending.isEmpty() ? completed.take()
+							: completed.poll(oldest + intervalNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (result == END) {
+						flush(pending);
+						return;
+					}
+					if (result != null) {
+						if (pending.isEmpty()) {
+							oldest = System.nanoTime();
+						}
+						pending.add(result);
+					}
+					if (pending.size() >= groupSize || System.nanoTime() - oldest >= intervalNanos) {
+						flush(pending);
+					}
+				}
+			} catch (IOException e) {
+				logger.error("Writing sweep results to {} failed", directory, e);
+				writeFailure = e;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void flush(List<BatchResult> pending) throws IOException {
+			if (pending.isEmpty()) {
+				return;
+			}
+			journal.append(pending);
+			for (BatchResult result : pending) {
+				counts.merge(result.getStatus(), 1, Integer::sum);
+			}
+			slots.release(pending.size());
+			pending.clear();
+		}
+
+		private BatchResult collect(BatchTask task) {
+			long start = System.nanoTime();
+			Attempt attempt;
+			int retries = 0;
+			while (true) {
+				attempt = attempt(task);
+				if (attempt == null) {
+					return null;
+				}
+				if (!attempt.retryable() || backoff.exhausted(retries)) {
+					break;
+				}
+				logger.debug("Retrying {} on {}: {}", task.operation(), task.device(), attempt.result().getError());
+				try {
+					Thread.sleep(backoff.delayMillis(retries++));
+				} catch (InterruptedException e) {
+					return null;
+				}
+			}
+			BatchResult result = attempt.result();
+			if (retries > 0 && result.getStatus() != BatchResult.Status.OK) {
+				result.setError(result.getError() + " (after " + (retries + 1) + " attempts)");
+			}
+			long elapsed = System.nanoTime() - start;
+			result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsed));
+			metrics.operationCompleted(task.device().toString(), task.operation(),
+					result.getStatus().name().toLowerCase(Locale.ROOT), elapsed);
+			return result;
+		}
+
+		//null when interrupted by close
+		private Attempt attempt(BatchTask task) {
+			BatchResult result = new BatchResult(task.index(), task.device().toString(), task.operation(),
+					BatchResult.Status.OK);
+			try {
+				NetconfMessage rpc = NetconfRpcEncoder.forOperation(task.operation(), task.messageId(), task.payload());
+				NetconfMessage reply = sessionPool.execute(task.device(), rpc, properties.getEntryTimeout());
+				result.setReply(XmlUtil.toString(reply.getDocument()));
+				metrics.bytesReceived(task.device().toString(),
+						result.getReply().getBytes(StandardCharsets.UTF_8).length);
+				//a sweep only reads, so an rpc-error such as lock-denied or resource-denied is worth another try
+				if (NetconfReplyParser.hasError(reply)) {
+					result.setStatus(BatchResult.Status.ERROR);
+					result.setError(NetconfReplyParser.rpcErrors(reply).stream().map(RpcError::toString)
+							.collect(Collectors.joining("; ")));
+					return new Attempt(result, true);
+				}
+				return new Attempt(result, false);
+			} catch (InterruptedException e) {
+				return null;
+			} catch (TimeoutException e) {
+				result.setStatus(BatchResult.Status.TIMEOUT);
+				result.setError(e.getMessage());
+				return new Attempt(result, true);
+			} catch (DeviceOverloadedException e) {
+				result.setStatus(BatchResult.Status.REJECTED);
+				result.setError(e.getMessage());
+				return new Attempt(result, true);
+			} catch (IllegalArgumentException e) {
+				result.setStatus(BatchResult.Status.REJECTED);
+				result.setError(e.getMessage());
+				return new Attempt(result, false);
+			} catch (ExecutionException | RuntimeException e) {
+				result.setStatus(BatchResult.Status.ERROR);
+				result.setError(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+				return new Attempt(result, true);
+			}
+		}
+	}
+
+	private record Attempt(BatchResult result, boolean retryable) {
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.netconf;
+
+import java.util.Arrays;
+
+/**
+ * Recent reply times of one operation on one device. Keeps a sliding window
+ * of samples and re-derives the median and the configured percentile every
+ * few samples, so readers never sort.
+ */
+final class LatencyTracker {
+	private static final int WINDOW = 256;
+	private static final int RECOMPUTE_EVERY = 16;
+
+	private final double quantile;
+	private final long[] samples = new long[WINDOW];
+	private long count; //guarded by this
+	private volatile long median;
+	private volatile long percentile;
+
+	LatencyTracker(double quantile) {
+		this.quantile = quantile;
+	}
+
+	synchronized void record(long nanos) {
+		samples[(int) (count % WINDOW)] = nanos;
+		count++;
+		if (count <= RECOMPUTE_EVERY || count % RECOMPUTE_EVERY == 0) {
+			long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW));
+			Arrays.sort(sorted);
+			median = sorted[sorted.length / 2];
+			int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+			percentile = sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+		}
+	}
+
+	synchronized long count() {
+		return count;
+	}
+
+	long median() {
+		return median;
+	}
+
+	long percentile() {
+		return percentile;
+	}
+}
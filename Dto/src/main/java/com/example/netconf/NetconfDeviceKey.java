@@ -0,0 +1,12 @@
+package com.example.netconf;
+
+/**
+ * Identifies the pool a NETCONF session belongs to: one pool per device and login user.
+ */
+public record NetconfDeviceKey(String host, int port, String username) {
+
+	@Override
+	public String toString() {
+		return username + "@" + host + ":" + port;
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.netconf;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Protocol capabilities from RFC 6241 and friends that change how we talk to
+ * a device. A feature is present when the hello lists any of its URIs,
+ * ignoring parameters after {@code ?}.
+ */
+public enum NetconfFeature {
+	BASE_1_1("urn:ietf:params:netconf:base:1.1"),
+	WRITABLE_RUNNING(Uris.CAPABILITY + "writable-running:1.0"),
+	CANDIDATE(Uris.CAPABILITY + "candidate:1.0"),
+	CONFIRMED_COMMIT(Uris.CAPABILITY + "confirmed-commit:1.0", Uris.CAPABILITY + "confirmed-commit:1.1"),
+	//cancel-commit and persist-id
+	CONFIRMED_COMMIT_1_1(Uris.CAPABILITY + "confirmed-commit:1.1"),
+	ROLLBACK_ON_ERROR(Uris.CAPABILITY + "rollback-on-error:1.0"),
+	VALIDATE(Uris.CAPABILITY + "validate:1.0", Uris.CAPABILITY + "validate:1.1"),
+	STARTUP(Uris.CAPABILITY + "startup:1.0"),
+	URL(Uris.CAPABILITY + "url:1.0"),
+	XPATH(Uris.CAPABILITY + "xpath:1.0"),
+	NOTIFICATION(Uris.CAPABILITY + "notification:1.0"),
+	INTERLEAVE(Uris.CAPABILITY + "interleave:1.0"),
+	YANG_LIBRARY(Uris.CAPABILITY + "yang-library:1.0", Uris.CAPABILITY + "yang-library:1.1");
+
+	private static final Map<String, List<NetconfFeature>> BY_URI = new HashMap<>();
+
+	static {
+		for (NetconfFeature feature : values()) {
+			for (String uri : feature.uris) {
+				BY_URI.computeIfAbsent(uri, key -> new ArrayList<>()).add(feature);
+			}
+		}
+	}
+
+	private final String[] uris;
+
+	NetconfFeature(String... uris) {
+		this.uris = uris;
+	}
+
+	public String uri() {
+		return uris[uris.length - 1];
+	}
+
+	public static Set<NetconfFeature> of(Iterable<String> capabilities) {
+		EnumSet<NetconfFeature> features = EnumSet.noneOf(NetconfFeature.class);
+		for (String capability : capabilities) {
+			int query = capability.indexOf('?');
+			List<NetconfFeature> matches = BY_URI.get(query < 0 ? capability : capability.substring(0, query));
+			if (matches != null) {
+				features.addAll(matches);
+			}
+		}
+		return features;
+	}
+
+	//enum constants cannot refer to static fields of their own class
+	private static final class Uris {
+		static final String CAPABILITY = "urn:ietf:params:netconf:capability:";
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.limit")
+public class NetconfLimitProperties {
+	//off: every request waits netconf.pool.request-timeout and nothing is throttled
+	private boolean enabled = true;
+	//concurrent requests per device, adjusted between min and max as replies come back
+	private int initialLimit = 8;
+	private int minLimit = 1;
+	private int maxLimit = 128;
+	//requests over the limit wait this long, at most max-queued of them, before being rejected
+	private int maxQueued = 64;
+	private Duration queueTimeout = Duration.ofSeconds(1);
+	//a reply slower than this many times the operation's median counts as congestion
+	private double latencyTolerance = 2.0;
+	//limit is multiplied by this on congestion and halved on a timeout
+	private double backoffRatio = 0.9;
+	//timeouts are this percentile of recent replies times the multiplier, capped by request-timeout
+	private double timeoutPercentile = 0.99;
+	private double timeoutMultiplier = 3.0;
+	private Duration minTimeout = Duration.ofMillis(500);
+	//replies seen for an operation before its latency is trusted
+	private int minSamples = 20;
+}
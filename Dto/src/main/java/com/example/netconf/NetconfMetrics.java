@@ -0,0 +1,223 @@
+package com.example.netconf;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Meters for NETCONF traffic, tagged by device ({@code user@host:port}),
+ * operation (the rpc's first child, e.g. {@code get-config}) and outcome.
+ * <p>
+ * The per-device timers {@code netconf.rpc} and {@code netconf.operation} only
+ * keep count, total and max. Their {@code .latency} twins drop the device tag
+ * and are the ones given histogram buckets, under
+ * {@code management.metrics.distribution.*.netconf.rpc.latency}; buckets per
+ * device are opt-in, by configuring {@code netconf.rpc} itself.
+ */
+@Component
+public class NetconfMetrics {
+
+	//for clients created outside Spring, e.g. the console
+	public static final NetconfMetrics NOOP = new NetconfMetrics(new CompositeMeterRegistry());
+
+	public static final String OK = "ok";
+	public static final String RPC_ERROR = "rpc-error";
+	public static final String TIMEOUT = "timeout";
+	public static final String CANCELLED = "cancelled";
+	public static final String ERROR = "error";
+	//turned away before reaching the device: over its limit, or not a valid request
+	public static final String REJECTED = "rejected";
+	public static final String BAD_REQUEST = "bad-request";
+
+	private final MeterRegistry registry;
+	private final boolean bytesSent;
+	private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+	public NetconfMetrics(MeterRegistry registry) {
+		this(registry, new NetconfMetricsProperties());
+	}
+
+	@Autowired
+	public NetconfMetrics(MeterRegistry registry, NetconfMetricsProperties properties) {
+		this.registry = registry;
+		this.bytesSent = properties.isBytesSent();
+	}
+
+	public void rpcStarted(String device, NetconfMessage request) {
+		inFlight.computeIfAbsent(device, key -> registry.gauge("netconf.rpc.in-flight",
+				Tags.of("device", key), new AtomicInteger())).incrementAndGet();
+		int bytes = bytesSent ? NetconfRpcEncoder.encodedSize(request) : -1;
+		if (bytes > 0) {
+			Counter.builder("netconf.bytes.sent").baseUnit("bytes").tag("device", device).register(registry)
+					.increment(bytes);
+		}
+	}
+
+	public void rpcCompleted(String device, String operation, String outcome, long nanos) {
+		AtomicInteger current = inFlight.get(device);
+		if (current != null) {
+			current.decrementAndGet();
+		}
+		Timer.builder("netconf.rpc").description("NETCONF RPC round trip")
+				.tags("device", device, "operation", operation, "outcome", outcome)
+				.register(registry).record(nanos, TimeUnit.NANOSECONDS);
+		Timer.builder("netconf.rpc.latency").description("NETCONF RPC round trip over all devices")
+				.tags("operation", operation, "outcome", outcome)
+				.register(registry).record(nanos, TimeUnit.NANOSECONDS);
+		if (TIMEOUT.equals(outcome)) {
+			Counter.builder("netconf.rpc.timeouts").tags("device", device, "operation", operation).register(registry)
+					.increment();
+		}
+	}
+
+	//turned away by the device's adaptive limit without being sent
+	public void rpcRejected(String device) {
+		Counter.builder("netconf.rpc.rejected").tag("device", device).register(registry).increment();
+	}
+
+	//a REST or batch operation end to end, including waiting for a session
+	public void operationCompleted(String device, String operation, String outcome, long nanos) {
+		Timer.builder("netconf.operation").description("NETCONF operation as seen by the HTTP client")
+				.tags("device", device, "operation", operation, "outcome", outcome)
+				.register(registry).record(nanos, TimeUnit.NANOSECONDS);
+		Timer.builder("netconf.operation.latency").description("NETCONF operation over all devices")
+				.tags("operation", operation, "outcome", outcome)
+				.register(registry).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	//changes carried by one coalesced edit-config
+	public void editConfigBatch(String device, int entries) {
+		DistributionSummary.builder("netconf.edit-config.batch").baseUnit("changes").tag("device", device)
+				.register(registry).record(entries);
+	}
+
+	public void bytesReceived(String device, long bytes) {
+		Counter.builder("netconf.bytes.received").baseUnit("bytes").tag("device", device).register(registry)
+				.increment(bytes);
+	}
+
+	//counts what is written through the returned stream; closing it records the count
+	//and leaves the wrapped stream open
+	public OutputStream countReceived(String device, OutputStream out) {
+		return new FilterOutputStream(out) {
+			private long count;
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				count++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				count += len;
+			}
+
+			@Override
+			public void flush() throws IOException {
+				out.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				bytesReceived(device, count);
+				count = 0;
+			}
+		};
+	}
+
+	public void sessionOpened(String device) {
+		Counter.builder("netconf.sessions.opened").tag("device", device).register(registry).increment();
+	}
+
+	public void sessionClosed(String device) {
+		Counter.builder("netconf.sessions.closed").tag("device", device).register(registry).increment();
+	}
+
+	public void connectFailed(String device) {
+		Counter.builder("netconf.connect.failures").tag("device", device).register(registry).increment();
+	}
+
+	public <T> void gauge(String name, String device, T state, ToDoubleFunction<T> value) {
+		Gauge.builder(name, state, value).tag("device", device).register(registry);
+	}
+
+	//gauges hold on to their state, so a device's pool gauges go with the pool;
+	//netconf.rpc.in-flight stays, requests that were running may still finish
+	public void removeGauges(String device) {
+		registry.getMeters().stream()
+				.filter(meter -> meter instanceof Gauge && device.equals(meter.getId().getTag("device"))
+						&& !"netconf.rpc.in-flight".equals(meter.getId().getName()))
+				.forEach(registry::remove);
+	}
+
+	public <T> void gauge(String name, T state, ToDoubleFunction<T> value) {
+		Gauge.builder(name, state, value).register(registry);
+	}
+
+	public void notificationPublished(String device, String type) {
+		Counter.builder("netconf.notifications").tags("device", device, "type", type).register(registry).increment();
+	}
+
+	public void notificationsDropped(String subscriber, long count) {
+		Counter.builder("netconf.notifications.dropped").tag("subscriber", subscriber).register(registry)
+				.increment(count);
+	}
+
+	public static String operation(NetconfMessage rpc) {
+		Element child = firstElement(rpc.getDocument().getDocumentElement());
+		return child == null ? "unknown" : child.getLocalName();
+	}
+
+	public static String outcome(NetconfMessage reply, Throwable failure) {
+		if (failure instanceof CompletionException && failure.getCause() != null) {
+			failure = failure.getCause();
+		}
+		if (failure == null) {
+			//rpc-error is a direct child of rpc-reply, no need to walk the whole reply
+			for (Node child = reply.getDocument().getDocumentElement().getFirstChild(); child != null;
+					child = child.getNextSibling()) {
+				if ("rpc-error".equals(child.getLocalName())) {
+					return RPC_ERROR;
+				}
+			}
+			return OK;
+		}
+		if (failure instanceof TimeoutException) {
+			return TIMEOUT;
+		}
+		return failure instanceof CancellationException ? CANCELLED : ERROR;
+	}
+
+	private static Element firstElement(Element parent) {
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element element) {
+				return element;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.netconf;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.metrics")
+public class NetconfMetricsProperties {
+	//netconf.bytes.sent; counting encodes every rpc a second time, so it is off unless asked for
+	private boolean bytesSent = false;
+}
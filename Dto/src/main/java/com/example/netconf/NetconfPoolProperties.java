@@ -0,0 +1,45 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.pool")
+public class NetconfPoolProperties {
+	//port used when a login does not name one
+	private int defaultPort = 2022;
+	private boolean ssh = true;
+	//0 lets netty pick (2 * cores)
+	private int eventLoopThreads = 0;
+	private int minSessionsPerDevice = 0;
+	private int maxSessionsPerDevice = 8;
+	private Duration borrowTimeout = Duration.ofSeconds(5);
+	private Duration requestTimeout = Duration.ofMillis(TestingNetconfClient.DEFAULT_CONNECT_TIMEOUT);
+	private Duration idleTimeout = Duration.ofMinutes(5);
+	private Duration evictionInterval = Duration.ofSeconds(30);
+	private boolean testOnBorrow = true;
+	//RPCs a single session keeps outstanding before further requests queue
+	private int maxInFlightPerSession = PipelinedNetconfClientSessionListener.DEFAULT_MAX_IN_FLIGHT;
+	//requests a session holds back beyond those before further ones are rejected
+	private int maxQueuedPerSession = PipelinedNetconfClientSessionListener.DEFAULT_MAX_QUEUED;
+	//execute() spreads callers over the open sessions of a device instead of taking one each
+	private boolean shareSessions = true;
+	//sessions quiet for this long are probed so devices and middleboxes do not drop them, 0 disables
+	private Duration keepaliveInterval = Duration.ofSeconds(60);
+	//after a failed connect the device is left alone for a jittered, doubling delay
+	private Duration reconnectInitialDelay = Duration.ofMillis(250);
+	private Duration reconnectMaxDelay = Duration.ofSeconds(30);
+	private double reconnectMultiplier = 2.0;
+	private double reconnectJitter = 0.5;
+	//consecutive failed connects before the device is given up on until its next login, negative for no limit
+	private int reconnectMaxAttempts = 10;
+	//times a request lost with its session is sent again, see NetconfSessionPool#execute
+	private int replayAttempts = 2;
+}
@@ -0,0 +1,137 @@
+package com.example.netconf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Pull-parses {@code <rpc-reply>} bytes and hands out matching subtrees one at
+ * a time, e.g. every {@code interface} entry of a large {@code <get>} reply.
+ * Only the subtree currently being emitted is held in memory.
+ */
+public final class NetconfReplyParser {
+
+	private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+	private NetconfReplyParser() {
+	}
+
+	//namespace may be null to match the local name in any namespace; returns the number of subtrees emitted
+	public static long forEachSubtree(InputStream in, String namespace, String localName, Consumer<String> consumer)
+			throws XMLStreamException {
+		XMLStreamReader reader = XmlStreams.newReader(in);
+		try {
+			long count = 0;
+			while (nextMatch(reader, namespace, localName)) {
+				consumer.accept(readSubtree(reader));
+				count++;
+			}
+			return count;
+		} finally {
+			reader.close();
+		}
+	}
+
+	//serializes a DOM reply directly to the stream, without an intermediate String
+	public static void writeTo(NetconfMessage message, OutputStream out) {
+		try {
+			Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+			transformer.transform(new DOMSource(message.getDocument()), new StreamResult(out));
+		} catch (TransformerException e) {
+			if (e.getCause() instanceof IOException io) {
+				throw new UncheckedIOException(io);
+			}
+			throw new IllegalStateException("Unable to serialize reply", e);
+		}
+	}
+
+	public static byte[] toBytes(NetconfMessage message) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeTo(message, out);
+		return out.toByteArray();
+	}
+
+	public static boolean hasError(NetconfMessage reply) {
+		return reply.getDocument().getElementsByTagNameNS(NetconfRpcEncoder.BASE_NS, "rpc-error").getLength() > 0;
+	}
+
+	public static List<RpcError> rpcErrors(NetconfMessage reply) {
+		NodeList nodes = reply.getDocument().getElementsByTagNameNS(NetconfRpcEncoder.BASE_NS, "rpc-error");
+		List<RpcError> errors = new ArrayList<>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element error = (Element) nodes.item(i);
+			errors.add(new RpcError(childText(error, "error-tag"), childText(error, "error-severity"),
+					childText(error, "error-path"), childText(error, "error-message")));
+		}
+		return errors;
+	}
+
+	private static String childText(Element parent, String localName) {
+		NodeList children = parent.getElementsByTagNameNS(NetconfRpcEncoder.BASE_NS, localName);
+		return children.getLength() == 0 ? null : children.item(0).getTextContent().trim();
+	}
+
+	private static boolean nextMatch(XMLStreamReader reader, String namespace, String localName)
+			throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT && localName.equals(reader.getLocalName())
+					&& (namespace == null || namespace.equals(reader.getNamespaceURI()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//reader is on the start tag; consumes through the matching end tag
+	private static String readSubtree(XMLStreamReader reader) throws XMLStreamException {
+		StringWriter out = new StringWriter();
+		XMLStreamWriter writer = XmlStreams.REPAIRING_OUTPUT_FACTORY.createXMLStreamWriter(out);
+		XmlStreams.copyStartElement(reader, writer);
+		int depth = 1;
+		while (depth > 0) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				XmlStreams.copyStartElement(reader, writer);
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				writer.writeEndElement();
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+				writer.writeCharacters(reader.getText());
+				break;
+			case XMLStreamConstants.CDATA:
+				writer.writeCData(reader.getText());
+				break;
+			default:
+				break;
+			}
+		}
+		writer.close();
+		return out.toString();
+	}
+}
@@ -0,0 +1,411 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes {@code <rpc>} envelopes with StAX, either straight to a stream or,
+ * for ODL sessions, straight into the DOM they send. Element text and
+ * attribute values are escaped by the writer.
+ */
+public final class NetconfRpcEncoder {
+
+	public static final String BASE_NS = "urn:ietf:params:xml:ns:netconf:base:1.0";
+	public static final String NOTIFICATION_NS = "urn:ietf:params:xml:ns:netconf:notification:1.0";
+
+	/**
+	 * Writes the content of one {@code <rpc>} element.
+	 */
+	@FunctionalInterface
+	public interface RpcBody {
+		void write(XMLStreamWriter writer) throws XMLStreamException;
+	}
+
+	private NetconfRpcEncoder() {
+	}
+
+	public static void encode(OutputStream out, String messageId, RpcBody body) throws XMLStreamException {
+		encode(XmlStreams.OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8"), messageId, body);
+	}
+
+	private static void encode(XMLStreamWriter writer, String messageId, RpcBody body) throws XMLStreamException {
+		try {
+			writer.writeStartElement("", "rpc", BASE_NS);
+			writer.writeDefaultNamespace(BASE_NS);
+			if (messageId != null && !messageId.isBlank()) {
+				//the namespaced form, so a DOM gets a level 2 attribute like a parser would build
+				writer.writeAttribute("", "", "message-id", messageId);
+			}
+			body.write(writer);
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * ODL sessions only accept a DOM, so the body is written into one directly
+	 * rather than encoded and parsed back. A name the DOM refuses, e.g. a
+	 * caller's container with a space in it, is an {@link IllegalArgumentException}.
+	 */
+	public static NetconfMessage toMessage(String messageId, RpcBody body) {
+		try {
+			Document document = XmlUtil.newDocument();
+			encode(XmlStreams.OUTPUT_FACTORY.createXMLStreamWriter(new DOMResult(document)), messageId, body);
+			return new EncodedRpc(document, messageId, body);
+		} catch (XMLStreamException | DOMException e) {
+			throw new IllegalArgumentException("Unable to encode rpc " + messageId + ": " + e.getMessage(), e);
+		}
+	}
+
+	//for bytes that have to be parsed anyway, e.g. a rendered RpcTemplate
+	static NetconfMessage toMessage(RpcBuffer encoded) throws SAXException, IOException {
+		return new EncodedRpc(XmlUtil.readXmlToDocument(encoded.asInputStream()), encoded.size());
+	}
+
+	//bytes of the encoded rpc, or -1 for messages that were not built here
+	public static int encodedSize(NetconfMessage message) {
+		return message instanceof EncodedRpc rpc ? rpc.encodedSize() : -1;
+	}
+
+	/**
+	 * A message built by this encoder. The size of its encoding is known when
+	 * it was parsed from it, otherwise counted on first use by encoding the
+	 * body again into a counter, far cheaper than a parse but not free.
+	 */
+	private static final class EncodedRpc extends NetconfMessage {
+		private final String messageId;
+		private final RpcBody body;
+		private volatile int encodedSize;
+
+		EncodedRpc(Document document, String messageId, RpcBody body) {
+			super(document);
+			this.messageId = messageId;
+			this.body = body;
+			this.encodedSize = -1;
+		}
+
+		EncodedRpc(Document document, int encodedSize) {
+			this(document, null, null);
+			this.encodedSize = encodedSize;
+		}
+
+		int encodedSize() {
+			int size = encodedSize;
+			if (size < 0 && body != null) {
+				ByteCounter counter = new ByteCounter();
+				try {
+					encode(counter, messageId, body);
+				} catch (XMLStreamException e) {
+					return -1;
+				}
+				size = counter.count;
+				encodedSize = size;
+			}
+			return size;
+		}
+	}
+
+	private static final class ByteCounter extends OutputStream {
+		private int count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	/**
+	 * Builds the rpc for a REST style operation name. Optional parameters:
+	 * {@code namespace}/{@code container} (subtree filter), {@code datastore}
+	 * and {@code config} (edit-config payload).
+	 */
+	public static NetconfMessage forOperation(String operation, String messageId, Map<String, String> params) {
+		String datastore = params.getOrDefault("datastore", "running");
+		switch (operation) {
+		case "get":
+			return toMessage(messageId, get(params.get("namespace"), params.get("container")));
+		case "get-config":
+			return toMessage(messageId, getConfig(datastore, params.get("namespace"), params.get("container")));
+		case "edit-config":
+			return toMessage(messageId, editConfig(datastore, fragment(params.get("config"))));
+		default:
+			throw new IllegalArgumentException("Invalid operation " + operation);
+		}
+	}
+
+	public static RpcBody get(String filterNamespace, String filterContainer) {
+		return writer -> {
+			start(writer, "get");
+			subtreeFilter(writer, filterNamespace, filterContainer);
+			writer.writeEndElement();
+		};
+	}
+
+	public static RpcBody getConfig(String source, String filterNamespace, String filterContainer) {
+		return writer -> {
+			start(writer, "get-config");
+			datastore(writer, "source", source);
+			subtreeFilter(writer, filterNamespace, filterContainer);
+			writer.writeEndElement();
+		};
+	}
+
+	public static RpcBody editConfig(String target, RpcBody config) {
+		return editConfig(target, null, config);
+	}
+
+	//errorOption is stop-on-error, continue-on-error or rollback-on-error; null leaves the device default
+	public static RpcBody editConfig(String target, String errorOption, RpcBody config) {
+		return writer -> {
+			start(writer, "edit-config");
+			datastore(writer, "target", target);
+			if (errorOption != null) {
+				start(writer, "error-option");
+				writer.writeCharacters(errorOption);
+				writer.writeEndElement();
+			}
+			start(writer, "config");
+			config.write(writer);
+			writer.writeEndElement();
+			writer.writeEndElement();
+		};
+	}
+
+	public static RpcBody lock(String target) {
+		return datastoreOperation("lock", "target", target);
+	}
+
+	public static RpcBody unlock(String target) {
+		return datastoreOperation("unlock", "target", target);
+	}
+
+	public static RpcBody validate(String source) {
+		return datastoreOperation("validate", "source", source);
+	}
+
+	public static RpcBody discardChanges() {
+		return writer -> writer.writeEmptyElement("", "discard-changes", BASE_NS);
+	}
+
+	//a non-null confirmTimeout makes it a confirmed commit that the device reverts unless confirmed in time
+	public static RpcBody commit(Duration confirmTimeout) {
+		return writer -> {
+			if (confirmTimeout == null) {
+				writer.writeEmptyElement("", "commit", BASE_NS);
+				return;
+			}
+			start(writer, "commit");
+			writer.writeEmptyElement("", "confirmed", BASE_NS);
+			start(writer, "confirm-timeout");
+			writer.writeCharacters(Long.toString(Math.max(1, confirmTimeout.toSeconds())));
+			writer.writeEndElement();
+			writer.writeEndElement();
+		};
+	}
+
+	//:confirmed-commit:1.1 only
+	public static RpcBody cancelCommit() {
+		return writer -> writer.writeEmptyElement("", "cancel-commit", BASE_NS);
+	}
+
+	//RFC 5277; a null stream subscribes to the default NETCONF stream
+	public static RpcBody createSubscription(String stream) {
+		return writer -> {
+			writer.writeStartElement("", "create-subscription", NOTIFICATION_NS);
+			writer.writeDefaultNamespace(NOTIFICATION_NS);
+			if (stream != null && !stream.isBlank()) {
+				writer.writeStartElement("", "stream", NOTIFICATION_NS);
+				writer.writeCharacters(stream);
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+		};
+	}
+
+	/**
+	 * One list entry inside its container, e.g. an {@code interface} under
+	 * {@code interfaces}. A non-null operation is written as the base
+	 * namespace {@code operation} attribute.
+	 */
+	public static RpcBody listEntry(String namespace, String container, String list, String operation,
+			Map<String, String> leaves) {
+		return writer -> {
+			writer.writeStartElement("", container, namespace);
+			writer.writeDefaultNamespace(namespace);
+			writer.writeStartElement("", list, namespace);
+			if (operation != null) {
+				writer.writeNamespace("xc", BASE_NS);
+				writer.writeAttribute("xc", BASE_NS, "operation", operation);
+			}
+			for (Map.Entry<String, String> leaf : leaves.entrySet()) {
+				writer.writeStartElement("", leaf.getKey(), namespace);
+				writer.writeCharacters(leaf.getValue());
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+		};
+	}
+
+	/**
+	 * Many list entries in one config payload, each with its own operation
+	 * attribute. Consecutive changes to the same container share one
+	 * container element, so callers should pass them grouped.
+	 */
+	public static RpcBody changes(List<ConfigChange> changes) {
+		return writer -> {
+			ConfigChange open = null;
+			for (ConfigChange change : changes) {
+				if (open != null && !(open.namespace().equals(change.namespace())
+						&& open.container().equals(change.container()))) {
+					writer.writeEndElement();
+					open = null;
+				}
+				if (open == null) {
+					writer.writeStartElement("", change.container(), change.namespace());
+					writer.writeDefaultNamespace(change.namespace());
+					writer.writeNamespace("xc", BASE_NS);
+					open = change;
+				}
+				writer.writeStartElement("", change.list(), change.namespace());
+				writer.writeAttribute("xc", BASE_NS, "operation", change.operation());
+				for (Map.Entry<String, String> leaf : change.leaves().entrySet()) {
+					if (change.removes() && !leaf.getKey().equals(change.keyLeaf())) {
+						continue;
+					}
+					writer.writeStartElement("", leaf.getKey(), change.namespace());
+					writer.writeCharacters(leaf.getValue());
+					writer.writeEndElement();
+				}
+				writer.writeEndElement();
+			}
+			if (open != null) {
+				writer.writeEndElement();
+			}
+		};
+	}
+
+	/**
+	 * Checks that caller supplied XML is a well-formed run of sibling elements,
+	 * so that two such fragments can be joined into one.
+	 *
+	 * @throws IllegalArgumentException if it is not
+	 */
+	public static void checkFragment(String xml) {
+		fragment(xml);
+	}
+
+	/**
+	 * Copies caller supplied XML (one or more sibling elements) into the rpc.
+	 * The fragment is parsed once, here, and replayed each time the rpc is
+	 * written.
+	 *
+	 * @throws IllegalArgumentException if the XML is malformed
+	 */
+	public static RpcBody fragment(String xml) {
+		if (xml == null || xml.isBlank()) {
+			return writer -> {
+			};
+		}
+		List<RpcBody> steps = new ArrayList<>();
+		try {
+			XMLStreamReader reader = XmlStreams.newReader(new StringReader("<fragment>" + xml + "</fragment>"));
+			try {
+				recordChildren(reader, steps);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Malformed config: " + e.getMessage(), e);
+		}
+		return writer -> {
+			for (RpcBody step : steps) {
+				step.write(writer);
+			}
+		};
+	}
+
+	//the wrapper's children as the writer calls that reproduce them
+	private static void recordChildren(XMLStreamReader reader, List<RpcBody> steps) throws XMLStreamException {
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (depth++ > 0) {
+					steps.add(XmlStreams.startElement(reader));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (--depth > 0) {
+					steps.add(XMLStreamWriter::writeEndElement);
+				}
+			} else if (depth > 0 && event == XMLStreamConstants.CHARACTERS) {
+				String text = reader.getText();
+				steps.add(writer -> writer.writeCharacters(text));
+			} else if (depth > 0 && event == XMLStreamConstants.CDATA) {
+				String text = reader.getText();
+				steps.add(writer -> writer.writeCData(text));
+			}
+		}
+	}
+
+	private static void start(XMLStreamWriter writer, String localName) throws XMLStreamException {
+		writer.writeStartElement("", localName, BASE_NS);
+	}
+
+	private static RpcBody datastoreOperation(String operation, String role, String datastore) {
+		return writer -> {
+			start(writer, operation);
+			datastore(writer, role, datastore);
+			writer.writeEndElement();
+		};
+	}
+
+	private static void datastore(XMLStreamWriter writer, String role, String datastore) throws XMLStreamException {
+		start(writer, role);
+		writer.writeEmptyElement("", datastore == null ? "running" : datastore, BASE_NS);
+		writer.writeEndElement();
+	}
+
+	private static void subtreeFilter(XMLStreamWriter writer, String namespace, String container)
+			throws XMLStreamException {
+		if (container == null || container.isBlank()) {
+			return;
+		}
+		//an element in no namespace matches nothing on the device, the filter would silently return empty data
+		if (namespace == null || namespace.isBlank()) {
+			throw new IllegalArgumentException("Subtree filter " + container + " needs a namespace");
+		}
+		start(writer, "filter");
+		writer.writeAttribute("", "", "type", "subtree");
+		//not an empty element, the DOM writer would put its namespace declaration on the filter
+		writer.writeStartElement("", container, namespace);
+		writer.writeDefaultNamespace(namespace);
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,817 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.client.NetconfClientDispatcher;
+import org.opendaylight.netconf.client.NetconfClientDispatcherImpl;
+import org.opendaylight.netconf.nettyutil.handler.ssh.authentication.LoginPasswordHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+
+/**
+ * Device-keyed pool of NETCONF sessions. Every session shares one event loop
+ * group and timer; callers borrow a connected client instead of logging in.
+ * With {@code share-sessions}, {@link #execute} multiplexes callers over the
+ * pipelined sessions already open to a device and only connects when all of
+ * them are saturated. Each device also gets an {@link AdaptiveLimiter} that
+ * bounds the requests {@link #execute} has outstanding on it and sets their
+ * timeouts from its recent reply times.
+ */
+@Component
+public class NetconfSessionPool implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(NetconfSessionPool.class);
+	private static final String KEEPALIVE_NS = "urn:x-netconf-gateway:keepalive";
+	private static final Set<String> IDEMPOTENT_OPERATIONS = Set.of("get", "get-config");
+
+	private final NetconfPoolProperties properties;
+	private final NetconfLimitProperties limits;
+	private final NetconfMetrics metrics;
+	private final CapabilityCache capabilityCache;
+	private final ReconnectBackoff reconnectBackoff;
+	private final HashedWheelTimer timer = new HashedWheelTimer();
+	private final NioEventLoopGroup eventLoopGroup;
+	private final NetconfClientDispatcher dispatcher;
+	private final ConcurrentMap<NetconfDeviceKey, DevicePool> devices = new ConcurrentHashMap<>();
+	private final List<BiConsumer<NetconfDeviceKey, NetconfMessage>> notificationListeners = new CopyOnWriteArrayList<>();
+	private volatile Timeout evictionTask;
+	//blocking work kept off callers and the timer: executeAsync's blocking path, logins and pre-opened sessions
+	private final ExecutorService blockingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	public NetconfSessionPool(NetconfPoolProperties properties, NetconfLimitProperties limits, NetconfMetrics metrics,
+			CapabilityCache capabilityCache) {
+		this.properties = properties;
+		this.limits = limits;
+		this.metrics = metrics;
+		this.capabilityCache = capabilityCache;
+		this.reconnectBackoff = new ReconnectBackoff(properties.getReconnectInitialDelay(),
+				properties.getReconnectMaxDelay(), properties.getReconnectMultiplier(), properties.getReconnectJitter(),
+				properties.getReconnectMaxAttempts());
+		this.eventLoopGroup = new NioEventLoopGroup(properties.getEventLoopThreads());
+		this.dispatcher = new NetconfClientDispatcherImpl(eventLoopGroup, eventLoopGroup, timer);
+		scheduleEviction();
+	}
+
+	public NetconfDeviceKey deviceKey(String host, int port, String username) {
+		return new NetconfDeviceKey(host, port > 0 ? port : properties.getDefaultPort(), username);
+	}
+
+	/**
+	 * Registers a login's credentials for a device and warms up the minimum
+	 * number of sessions. Registrations are counted, each login holds one
+	 * until it calls {@link #unregister}. Credentials other than the ones the
+	 * device's sessions are opened with are only taken once a session opened
+	 * with them has come up, so they can neither use sessions someone else
+	 * opened nor replace credentials that work.
+	 *
+	 * @throws IllegalStateException if no session could be opened with the credentials
+	 */
+	public void register(NetconfDeviceKey key, String password) throws InterruptedException {
+		byte[] digest = digest(password);
+		DevicePool known = devices.get(key);
+		if (known != null && known.opensWith(digest) && registerAgain(key, known)) {
+			return;
+		}
+		LoginPasswordHandler credentials = new LoginPasswordHandler(key.username(), password);
+		TestingNetconfClient client = openClient(key, credentials);
+		DevicePool pool = devices.compute(key, (device, existing) -> {
+			DevicePool registered = existing != null ? existing : new DevicePool(device);
+			registered.registrations++;
+			registered.credentials(credentials, digest);
+			registered.adopt(client);
+			return registered;
+		});
+		if (properties.getMinSessionsPerDevice() > 0) {
+			blockingExecutor.execute(pool::fillToMinimum);
+		}
+	}
+
+	//register on a virtual thread, for callers logging in to many devices at once
+	public CompletableFuture<Void> registerAsync(NetconfDeviceKey key, String password) {
+		return CompletableFuture.runAsync(() -> {
+			try {
+				register(key, password);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted logging in to " + key, e);
+			}
+		}, blockingExecutor);
+	}
+
+	//counts one more registration on a pool that is still the device's; a new login tries the device
+	//again, also after connecting was given up on
+	private boolean registerAgain(NetconfDeviceKey key, DevicePool known) {
+		boolean[] counted = new boolean[1];
+		devices.computeIfPresent(key, (device, pool) -> {
+			if (pool == known) {
+				pool.registrations++;
+				counted[0] = true;
+			}
+			return pool;
+		});
+		if (counted[0]) {
+			known.connectFailures = 0;
+		}
+		return counted[0];
+	}
+
+	private static byte[] digest(String password) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//the last registration gone drops the credentials and closes the device's sessions
+	public void unregister(NetconfDeviceKey key) {
+		DevicePool[] removed = new DevicePool[1];
+		devices.computeIfPresent(key, (device, pool) -> {
+			if (--pool.registrations > 0) {
+				return pool;
+			}
+			removed[0] = pool;
+			return null;
+		});
+		if (removed[0] != null) {
+			removed[0].closeIdle();
+			metrics.removeGauges(key.toString());
+			logger.info("Dropped credentials and sessions of {}", key);
+		}
+	}
+
+	public boolean isRegistered(NetconfDeviceKey key) {
+		return devices.containsKey(key);
+	}
+
+	//exclusive use, e.g. for a locked datastore; the session is not shared until released
+	public TestingNetconfClient borrow(NetconfDeviceKey key) throws InterruptedException, TimeoutException {
+		return devicePool(key).borrow();
+	}
+
+	public void release(NetconfDeviceKey key, TestingNetconfClient client) {
+		DevicePool pool = devices.get(key);
+		if (pool == null) {
+			closeQuietly(client);
+			return;
+		}
+		pool.release(client);
+	}
+
+	//drops a client that failed while borrowed
+	public void invalidate(NetconfDeviceKey key, TestingNetconfClient client) {
+		DevicePool pool = devices.get(key);
+		if (pool == null) {
+			closeQuietly(client);
+			return;
+		}
+		pool.invalidate(client);
+	}
+
+	//borrow, send and return the session in one step
+	public NetconfMessage execute(NetconfDeviceKey key, NetconfMessage request)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		return execute(key, request, properties.getRequestTimeout());
+	}
+
+	/**
+	 * Requests that die with their session are sent again on a new one while
+	 * the timeout allows: always when they were still queued, and for
+	 * {@code get}/{@code get-config} also when they were already sent. Anything
+	 * else, {@code edit-config} in particular, fails straight away.
+	 * <p>
+	 * {@code timeout} is an upper bound; once the device has answered enough
+	 * requests of this shape, a timeout derived from their reply times is
+	 * used when that is shorter.
+	 *
+	 * @throws DeviceOverloadedException if the device's adaptive limit turned the request away
+	 */
+	public NetconfMessage execute(NetconfDeviceKey key, NetconfMessage request, Duration timeout)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		DevicePool pool = devicePool(key);
+		String operation = NetconfMetrics.operation(request);
+		String latencyKey = AdaptiveLimiter.latencyKey(request);
+		if (limits.isEnabled()) {
+			timeout = pool.limiter.timeout(latencyKey, timeout);
+		}
+		long deadline = System.nanoTime() + timeout.toNanos();
+		for (int attempt = 0;; attempt++) {
+			try {
+				return limited(pool, request, latencyKey, deadline);
+			} catch (ExecutionException e) {
+				if (attempt >= properties.getReplayAttempts() || deadline - System.nanoTime() <= 0
+						|| !replayable(request, e.getCause())) {
+					throw e;
+				}
+				logger.info("Replaying {} on {} after session loss: {}", operation, key, e.getCause().getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Non-blocking {@link #execute(NetconfDeviceKey, NetconfMessage)}. With an
+	 * open shared session that has room in its window and a free slot under
+	 * the device's limit, the request is written at once and the future
+	 * completes on the session's event loop. Otherwise (a session has to be
+	 * opened, the caller would queue behind the limit, or the session was lost
+	 * and the request may be replayed) the blocking path runs on a virtual
+	 * thread. The future fails with the cause itself, not an
+	 * {@link ExecutionException}.
+	 */
+	public CompletableFuture<NetconfMessage> executeAsync(NetconfDeviceKey key, NetconfMessage request) {
+		DevicePool pool = devicePool(key);
+		TestingNetconfClient client = properties.isShareSessions() ? pool.availableShared() : null;
+		if (client == null || limits.isEnabled() && !pool.limiter.tryAcquire()) {
+			return executeBlocking(key, request, properties.getRequestTimeout());
+		}
+		String operation = NetconfMetrics.operation(request);
+		String latencyKey = AdaptiveLimiter.latencyKey(request);
+		Duration timeout = properties.getRequestTimeout();
+		if (limits.isEnabled()) {
+			timeout = pool.limiter.timeout(latencyKey, timeout);
+		}
+		long timeoutMs = timeout.toMillis();
+		long start = System.nanoTime();
+		long deadline = start + timeout.toNanos();
+		CompletableFuture<NetconfMessage> result = new CompletableFuture<>();
+		//timing out the session's own future frees its pipelining slot, as in sendMessage
+		client.sendRequestAsync(request).orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((reply, failure) -> {
+			Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+			if (limits.isEnabled()) {
+				if (cause == null) {
+					pool.limiter.onSuccess(latencyKey, System.nanoTime() - start);
+				} else if (cause instanceof TimeoutException) {
+					pool.limiter.onTimeout(latencyKey, System.nanoTime() - start);
+				} else {
+					pool.limiter.onFailure();
+				}
+			}
+			if (cause == null) {
+				result.complete(reply);
+				return;
+			}
+			if (!client.isAlive()) {
+				pool.retire(client);
+			}
+			if (cause instanceof TimeoutException) {
+				result.completeExceptionally(new TimeoutException(operation + " on " + key + " timed out after "
+						+ timeoutMs + " ms"));
+			} else if (properties.getReplayAttempts() > 0 && deadline - System.nanoTime() > 0
+					&& replayable(request, cause)) {
+				logger.info("Replaying {} on {} after session loss: {}", operation, key, cause.getMessage());
+				//within what is left of the first attempt's timeout, not a fresh one
+				executeBlocking(key, request, remaining(deadline)).whenComplete((replayed, replayFailure) -> {
+					if (replayFailure == null) {
+						result.complete(replayed);
+					} else {
+						result.completeExceptionally(replayFailure);
+					}
+				});
+			} else {
+				result.completeExceptionally(cause);
+			}
+		});
+		return result;
+	}
+
+	private CompletableFuture<NetconfMessage> executeBlocking(NetconfDeviceKey key, NetconfMessage request,
+			Duration timeout) {
+		CompletableFuture<NetconfMessage> result = new CompletableFuture<>();
+		blockingExecutor.execute(() -> {
+			try {
+				result.complete(execute(key, request, timeout));
+			} catch (ExecutionException e) {
+				result.completeExceptionally(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				result.completeExceptionally(e);
+			} catch (Exception e) {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
+	//waits for a slot under the device's limit, then feeds how the request ended back into it
+	private NetconfMessage limited(DevicePool pool, NetconfMessage request, String latencyKey, long deadline)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		if (!limits.isEnabled()) {
+			return send(pool, request, remaining(deadline));
+		}
+		pool.limiter.acquire(deadline - System.nanoTime());
+		long start = System.nanoTime();
+		boolean reported = false;
+		try {
+			NetconfMessage reply = send(pool, request, remaining(deadline));
+			pool.limiter.onSuccess(latencyKey, System.nanoTime() - start);
+			reported = true;
+			return reply;
+		} catch (TimeoutException e) {
+			pool.limiter.onTimeout(latencyKey, System.nanoTime() - start);
+			reported = true;
+			throw e;
+		} finally {
+			if (!reported) {
+				pool.limiter.onFailure();
+			}
+		}
+	}
+
+	private NetconfMessage send(DevicePool pool, NetconfMessage request, Duration timeout)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		return properties.isShareSessions() ? executeShared(pool, request, timeout)
+				: executeExclusive(pool, request, timeout);
+	}
+
+	private static Duration remaining(long deadline) {
+		return Duration.ofNanos(Math.max(TimeUnit.MILLISECONDS.toNanos(1), deadline - System.nanoTime()));
+	}
+
+	private NetconfMessage executeExclusive(DevicePool pool, NetconfMessage request, Duration timeout)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		TestingNetconfClient client = pool.borrow();
+		try {
+			NetconfMessage reply = client.sendMessage(request, (int) timeout.toMillis());
+			pool.release(client);
+			return reply;
+		} catch (TimeoutException | ExecutionException | RuntimeException e) {
+			pool.invalidate(client);
+			throw e;
+		} catch (InterruptedException e) {
+			pool.invalidate(client);
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	private static boolean replayable(NetconfMessage request, Throwable failure) {
+		return failure instanceof SessionDownException down
+				&& (!down.isSent() || IDEMPOTENT_OPERATIONS.contains(NetconfMetrics.operation(request)));
+	}
+
+	//what the device advertised when a session to it was last opened, possibly before a restart
+	public Optional<DeviceCapabilities> capabilities(NetconfDeviceKey key) {
+		return capabilityCache.get(key);
+	}
+
+	//capabilities of one session, which may predate a device upgrade seen on a newer one
+	public DeviceCapabilities capabilities(TestingNetconfClient client) {
+		return capabilityCache.parse(client.getCapabilities());
+	}
+
+	//notifications from every pooled session, tagged with the device they came from
+	public void addNotificationListener(BiConsumer<NetconfDeviceKey, NetconfMessage> listener) {
+		notificationListeners.add(listener);
+	}
+
+	//a timeout only fails this request; the session is dropped once the device is gone, not before
+	private NetconfMessage executeShared(DevicePool pool, NetconfMessage request, Duration timeout)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		TestingNetconfClient client = pool.acquireShared();
+		try {
+			return client.sendMessage(request, (int) timeout.toMillis());
+		} catch (ExecutionException | RuntimeException e) {
+			if (!client.isAlive()) {
+				pool.retire(client);
+			}
+			throw e;
+		}
+	}
+
+	private DevicePool devicePool(NetconfDeviceKey key) {
+		DevicePool pool = devices.get(key);
+		if (pool == null) {
+			throw new IllegalStateException("No credentials registered for " + key);
+		}
+		return pool;
+	}
+
+	public int sessionCount(NetconfDeviceKey key) {
+		DevicePool pool = devices.get(key);
+		return pool == null ? 0 : pool.total.get();
+	}
+
+	@Override
+	public void destroy() {
+		if (evictionTask != null) {
+			evictionTask.cancel();
+		}
+		devices.values().forEach(DevicePool::closeIdle);
+		devices.clear();
+		timer.stop();
+		blockingExecutor.shutdownNow();
+		eventLoopGroup.shutdownGracefully();
+	}
+
+	private void scheduleEviction() {
+		long interval = properties.getEvictionInterval().toMillis();
+		evictionTask = timer.newTimeout(timeout -> {
+			devices.values().forEach(DevicePool::evictIdle);
+			scheduleEviction();
+		}, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void publishNotification(NetconfDeviceKey key, NetconfMessage notification) {
+		for (BiConsumer<NetconfDeviceKey, NetconfMessage> listener : notificationListeners) {
+			try {
+				listener.accept(key, notification);
+			} catch (RuntimeException e) {
+				logger.warn("Notification listener failed for {}", key, e);
+			}
+		}
+	}
+
+	//get-config of running with a filter that selects nothing, so the reply stays tiny
+	private static NetconfMessage keepaliveRpc() {
+		return NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.getConfig("running", KEEPALIVE_NS, "keepalive"));
+	}
+
+	private TestingNetconfClient openClient(NetconfDeviceKey key, LoginPasswordHandler credentials)
+			throws InterruptedException {
+		PipelinedNetconfClientSessionListener listener = new PipelinedNetconfClientSessionListener(
+				properties.getMaxInFlightPerSession(), properties.getMaxQueuedPerSession());
+		listener.setNotificationHandler(notification -> publishNotification(key, notification));
+		try {
+			TestingNetconfClient client = new TestingNetconfClient(key.toString(), dispatcher,
+					TestingNetconfClient.getClientConfig(key.host(), key.port(), properties.isSsh(),
+							Optional.of(credentials), listener), metrics);
+			capabilityCache.record(key, client.getCapabilities());
+			metrics.sessionOpened(key.toString());
+			logger.info("Opened NETCONF session {} to {}", client.getSessionId(), key);
+			return client;
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			metrics.connectFailed(key.toString());
+			throw new IllegalStateException("Unable to open NETCONF session to " + key, e);
+		}
+	}
+
+	private static void closeQuietly(TestingNetconfClient client) {
+		try {
+			client.close();
+		} catch (IOException | RuntimeException e) {
+			logger.debug("Error closing {}", client, e);
+		}
+	}
+
+	private record IdleClient(TestingNetconfClient client, long idleSince) {
+	}
+
+	private final class DevicePool {
+		private final NetconfDeviceKey key;
+		private final Semaphore permits = new Semaphore(properties.getMaxSessionsPerDevice(), true);
+		//most recently returned first, so the tail holds the longest idle sessions
+		private final Deque<IdleClient> idle = new ConcurrentLinkedDeque<>();
+		private final AtomicInteger total = new AtomicInteger();
+		//sessions handed to many callers at once by execute, each holds a permit
+		private final Set<TestingNetconfClient> shared = ConcurrentHashMap.newKeySet();
+		private final ReentrantLock connectLock = new ReentrantLock();
+		private final AdaptiveLimiter limiter;
+		//consecutive failed connects and when the next one may start, written under connectLock or reset by a login
+		private volatile int connectFailures;
+		private volatile long reconnectAt;
+		private volatile LoginPasswordHandler auth;
+		//SHA-256 of the password in auth, to tell a later login with the same one
+		private volatile byte[] authDigest;
+		//only changed inside devices.compute, which serializes register and unregister per device
+		private int registrations;
+
+		DevicePool(NetconfDeviceKey key) {
+			this.key = key;
+			this.limiter = new AdaptiveLimiter(key, limits, metrics);
+			metrics.gauge("netconf.sessions.active", key.toString(), total, AtomicInteger::get);
+			metrics.gauge("netconf.sessions.idle", key.toString(), idle, Deque::size);
+			metrics.gauge("netconf.sessions.shared", key.toString(), shared, Set::size);
+		}
+
+		//least loaded shared session, opening another only when every one has a full window
+		TestingNetconfClient acquireShared() throws InterruptedException, TimeoutException {
+			TestingNetconfClient best = leastLoaded();
+			if (best != null && best.getInFlight() < properties.getMaxInFlightPerSession()) {
+				return best;
+			}
+			//the backoff is waited out before taking the lock, callers that find a session meanwhile need not wait
+			long wait = backoffRemaining();
+			if (wait > 0 && best != null) {
+				return best;
+			}
+			awaitBackoff(wait);
+			//one connect at a time per device; callers arriving meanwhile queue on an open session
+			boolean locked = best != null ? connectLock.tryLock()
+					: connectLock.tryLock(properties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS);
+			if (!locked) {
+				if (best != null) {
+					return best;
+				}
+				throw new TimeoutException("No NETCONF session available for " + key);
+			}
+			try {
+				best = leastLoaded();
+				if (best != null && best.getInFlight() < properties.getMaxInFlightPerSession()) {
+					return best;
+				}
+				boolean permit = best == null
+						? permits.tryAcquire(properties.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)
+						: permits.tryAcquire();
+				if (!permit) {
+					if (best != null) {
+						return best;
+					}
+					throw new TimeoutException("No NETCONF session available for " + key + " within "
+							+ properties.getBorrowTimeout().toMillis() + " ms");
+				}
+				try {
+					TestingNetconfClient client = connectLocked();
+					shared.add(client);
+					return client;
+				} catch (InterruptedException | RuntimeException e) {
+					permits.release();
+					if (best != null && !(e instanceof InterruptedException)) {
+						return best;
+					}
+					throw e;
+				}
+			} finally {
+				connectLock.unlock();
+			}
+		}
+
+		//an open shared session with room in its window, without connecting or waiting
+		TestingNetconfClient availableShared() {
+			TestingNetconfClient best = leastLoaded();
+			return best != null && best.getInFlight() < properties.getMaxInFlightPerSession() ? best : null;
+		}
+
+		void retire(TestingNetconfClient client) {
+			if (shared.remove(client)) {
+				discard(client);
+				permits.release();
+			}
+		}
+
+		private TestingNetconfClient leastLoaded() {
+			TestingNetconfClient best = null;
+			int bestLoad = Integer.MAX_VALUE;
+			for (TestingNetconfClient client : shared) {
+				if (!client.isAlive()) {
+					retire(client);
+					continue;
+				}
+				int load = client.getInFlight();
+				if (load < bestLoad) {
+					best = client;
+					bestLoad = load;
+				}
+			}
+			return best;
+		}
+
+		TestingNetconfClient borrow() throws InterruptedException, TimeoutException {
+			long waitMs = properties.getBorrowTimeout().toMillis();
+			if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+				throw new TimeoutException("No NETCONF session available for " + key + " within " + waitMs + " ms");
+			}
+			try {
+				IdleClient candidate;
+				while ((candidate = idle.pollFirst()) != null) {
+					if (!properties.isTestOnBorrow() || candidate.client().isAlive()) {
+						return candidate.client();
+					}
+					discard(candidate.client());
+				}
+				return connect();
+			} catch (InterruptedException | RuntimeException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		void release(TestingNetconfClient client) {
+			idle.offerFirst(new IdleClient(client, System.nanoTime()));
+			permits.release();
+		}
+
+		void invalidate(TestingNetconfClient client) {
+			discard(client);
+			permits.release();
+		}
+
+		void evictIdle() {
+			long idleLimit = properties.getIdleTimeout().toNanos();
+			long now = System.nanoTime();
+			Iterator<IdleClient> it = idle.descendingIterator();
+			while (it.hasNext()) {
+				IdleClient entry = it.next();
+				boolean expired = now - entry.idleSince() > idleLimit
+						&& total.get() > properties.getMinSessionsPerDevice();
+				if ((expired || !entry.client().isAlive()) && idle.removeLastOccurrence(entry)) {
+					discard(entry.client());
+				} else if (needsKeepalive(entry.client(), now)) {
+					keepalive(entry.client(), () -> {
+						if (idle.removeFirstOccurrence(entry)) {
+							discard(entry.client());
+						}
+					});
+				}
+			}
+			for (TestingNetconfClient client : shared) {
+				boolean unused = client.getInFlight() == 0 && now - client.getLastUse() > idleLimit
+						&& total.get() > properties.getMinSessionsPerDevice();
+				if (unused || !client.isAlive()) {
+					retire(client);
+				} else if (needsKeepalive(client, now)) {
+					keepalive(client, () -> retire(client));
+				}
+			}
+			if (total.get() < properties.getMinSessionsPerDevice()) {
+				blockingExecutor.execute(this::fillToMinimum);
+			}
+		}
+
+		//pre-opened sessions go where they will be used: with share-sessions to the shared ones, each
+		//holding a permit, otherwise to the idle ones borrow takes
+		void fillToMinimum() {
+			boolean share = properties.isShareSessions();
+			while (total.get() < properties.getMinSessionsPerDevice()) {
+				if (share && !permits.tryAcquire()) {
+					return;
+				}
+				TestingNetconfClient client = null;
+				try {
+					client = connect();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (RuntimeException e) {
+					logger.warn("Unable to pre-open NETCONF session to {}: {}", key, e.getMessage());
+				}
+				if (client == null) {
+					if (share) {
+						permits.release();
+					}
+					return;
+				}
+				if (share) {
+					shared.add(client);
+				} else {
+					idle.offerLast(new IdleClient(client, System.nanoTime()));
+				}
+			}
+		}
+
+		void closeIdle() {
+			IdleClient entry;
+			while ((entry = idle.pollFirst()) != null) {
+				discard(entry.client());
+			}
+			shared.forEach(this::retire);
+		}
+
+		private boolean needsKeepalive(TestingNetconfClient client, long now) {
+			long interval = properties.getKeepaliveInterval().toNanos();
+			return interval > 0 && client.getInFlight() == 0 && now - client.getLastActivity() > interval;
+		}
+
+		//any reply, even an rpc-error, shows the session is still usable
+		private void keepalive(TestingNetconfClient client, Runnable onFailure) {
+			CompletableFuture<NetconfMessage> reply = client.sendKeepaliveAsync(keepaliveRpc());
+			timer.newTimeout(timeout -> reply.completeExceptionally(new TimeoutException("Keepalive timed out")),
+					properties.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+			reply.whenComplete((response, failure) -> {
+				if (failure != null) {
+					logger.info("Keepalive on session {} to {} failed: {}", client.getSessionId(), key,
+							failure.getMessage());
+					onFailure.run();
+				}
+			});
+		}
+
+		//connects to one device run one at a time and back off after failures, so a device that
+		//reloads sees a trickle of jittered attempts instead of one per waiting caller
+		private TestingNetconfClient connect() throws InterruptedException {
+			awaitBackoff(backoffRemaining());
+			connectLock.lockInterruptibly();
+			try {
+				return connectLocked();
+			} finally {
+				connectLock.unlock();
+			}
+		}
+
+		//caller holds connectLock; fails at once while the device is still backed off
+		private TestingNetconfClient connectLocked() throws InterruptedException {
+			LoginPasswordHandler credentials = auth;
+			if (credentials == null) {
+				throw new IllegalStateException("No credentials registered for " + key);
+			}
+			int failures = connectFailures;
+			if (reconnectBackoff.exhausted(failures)) {
+				throw new IllegalStateException(key + " is unreachable, gave up after " + failures
+						+ " failed connects; log in again to retry");
+			}
+			long wait = backoffRemaining();
+			if (wait > 0) {
+				throw new IllegalStateException(key + " is unreachable, next connect attempt in "
+						+ TimeUnit.NANOSECONDS.toMillis(wait) + " ms");
+			}
+			TestingNetconfClient client;
+			try {
+				client = open(credentials);
+			} catch (IllegalStateException e) {
+				long delay = reconnectBackoff.delayMillis(failures);
+				reconnectAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+				connectFailures = failures + 1;
+				if (reconnectBackoff.exhausted(failures + 1)) {
+					logger.warn("Connect to {} failed {} time(s), giving up until the next login", key, failures + 1);
+				} else {
+					logger.warn("Connect to {} failed {} time(s), next attempt in {} ms", key, failures + 1, delay);
+				}
+				throw e;
+			}
+			connectFailures = 0;
+			return client;
+		}
+
+		//sleeps out a backoff the borrow timeout covers, longer ones fail in connectLocked
+		private void awaitBackoff(long waitNanos) throws InterruptedException {
+			if (waitNanos > 0 && waitNanos <= properties.getBorrowTimeout().toNanos()
+					&& !reconnectBackoff.exhausted(connectFailures)) {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			}
+		}
+
+		private long backoffRemaining() {
+			return connectFailures == 0 ? 0 : reconnectAt - System.nanoTime();
+		}
+
+		private TestingNetconfClient open(LoginPasswordHandler credentials) throws InterruptedException {
+			total.incrementAndGet();
+			try {
+				return openClient(key, credentials);
+			} catch (InterruptedException | RuntimeException e) {
+				total.decrementAndGet();
+				throw e;
+			}
+		}
+
+		//a session opened outside the pool, kept when there is a permit for it
+		void adopt(TestingNetconfClient client) {
+			total.incrementAndGet();
+			if (!permits.tryAcquire()) {
+				discard(client);
+			} else if (properties.isShareSessions()) {
+				shared.add(client);
+			} else {
+				idle.offerFirst(new IdleClient(client, System.nanoTime()));
+			}
+		}
+
+		//credentials a session has just been opened with, which also ends any backoff
+		void credentials(LoginPasswordHandler credentials, byte[] digest) {
+			auth = credentials;
+			authDigest = digest;
+			connectFailures = 0;
+		}
+
+		boolean opensWith(byte[] digest) {
+			byte[] current = authDigest;
+			return current != null && MessageDigest.isEqual(current, digest);
+		}
+
+		private void discard(TestingNetconfClient client) {
+			total.decrementAndGet();
+			metrics.sessionClosed(key.toString());
+			closeQuietly(client);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package com.example.netconf;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fans device notifications out to many subscribers through one bounded ring.
+ * Publishing never blocks or takes a lock, so it runs directly on the netty
+ * event loop: a producer claims a sequence number and writes its slot. Every
+ * subscription follows the ring with its own cursor on its own virtual thread,
+ * parked while it has caught up until the next publish unparks it.
+ * A subscriber that falls a full ring behind either skips ahead
+ * ({@link Overflow#DROP_OLDEST}) or is disconnected ({@link Overflow#DISCONNECT}).
+ */
+@Component
+public class NotificationBus implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(NotificationBus.class);
+
+	public enum Overflow {
+		DROP_OLDEST, DISCONNECT
+	}
+
+	private final AtomicReferenceArray<DeviceNotification> ring;
+	private final int mask;
+	//next sequence to hand out; everything below it has been claimed by a producer
+	private final AtomicLong claimed = new AtomicLong();
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+	private final NetconfMetrics metrics;
+
+	public NotificationBus(NetconfSessionPool sessionPool, NotificationProperties properties, NetconfMetrics metrics) {
+		int size = properties.getRingSize() <= 2 ? 2 : Integer.highestOneBit(properties.getRingSize() - 1) << 1;
+		this.ring = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+		this.metrics = metrics;
+		metrics.gauge("netconf.notifications.subscribers", subscriptions, Set::size);
+		sessionPool.addNotificationListener(this::publish);
+	}
+
+	public void publish(NetconfDeviceKey device, NetconfMessage message) {
+		DeviceNotification content = DeviceNotification.of(device, message);
+		long sequence = claimed.getAndIncrement();
+		DeviceNotification notification = content.withSequence(sequence);
+		//a slot only moves forward, so a producer that was lapped cannot overwrite a newer entry
+		ring.getAndUpdate((int) (sequence & mask),
+				current -> current == null || current.sequence() < sequence ? notification : current);
+		subscriptions.forEach(Subscription::wake);
+		metrics.notificationPublished(device.toString(), notification.type());
+	}
+
+	/**
+	 * Delivers notifications published from now on that match {@code filter}.
+	 * Close the returned subscription to stop.
+	 */
+	public Subscription subscribe(String name, Predicate<DeviceNotification> filter, Overflow overflow,
+			NotificationSubscriber subscriber) {
+		Subscription subscription = new Subscription(name, filter, overflow, subscriber, claimed.get());
+		subscriptions.add(subscription);
+		subscription.thread.start();
+		return subscription;
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	@Override
+	public void destroy() {
+		subscriptions.forEach(Subscription::close);
+	}
+
+	public final class Subscription implements AutoCloseable {
+		private final String name;
+		private final Predicate<DeviceNotification> filter;
+		private final Overflow overflow;
+		private final NotificationSubscriber subscriber;
+		private final Thread thread;
+		private volatile boolean open = true;
+		//set before the delivery thread parks, publish only unparks threads that may be parked
+		private volatile boolean idle;
+		private long cursor; //only touched by the delivery thread
+
+		private Subscription(String name, Predicate<DeviceNotification> filter, Overflow overflow,
+				NotificationSubscriber subscriber, long start) {
+			this.name = name;
+			this.filter = filter;
+			this.overflow = overflow;
+			this.subscriber = subscriber;
+			this.cursor = start;
+			this.thread = Thread.ofVirtual().name("notifications-" + name).unstarted(this::run);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isOpen() {
+			return open;
+		}
+
+		@Override
+		public void close() {
+			if (open) {
+				open = false;
+				LockSupport.unpark(thread);
+			}
+		}
+
+		private void wake() {
+			if (idle) {
+				LockSupport.unpark(thread);
+			}
+		}
+
+		private void run() {
+			try {
+				while (open) {
+					long available = claimed.get();
+					if (cursor >= available) {
+						//claimed is read again after idle is set, so a publish in between is not missed:
+						//either it is seen here or the publisher sees idle and unparks
+						idle = true;
+						if (open && claimed.get() <= cursor) {
+							LockSupport.park(this);
+						}
+						idle = false;
+						continue;
+					}
+					if (available - cursor > capacity()) {
+						lagged(available - capacity());
+						continue;
+					}
+					DeviceNotification notification = ring.get((int) (cursor & mask));
+					if (notification == null || notification.sequence() < cursor) {
+						//claimed but not written yet
+						Thread.onSpinWait();
+						continue;
+					}
+					if (notification.sequence() > cursor) {
+						lagged(Math.max(cursor + 1, claimed.get() - capacity()));
+						continue;
+					}
+					cursor++;
+					if (filter.test(notification)) {
+						deliver(notification);
+					}
+				}
+			} finally {
+				subscriptions.remove(this);
+				subscriber.onClosed();
+			}
+		}
+
+		private void lagged(long resumeAt) {
+			long skipped = resumeAt - cursor;
+			metrics.notificationsDropped(name, skipped);
+			if (overflow == Overflow.DISCONNECT) {
+				logger.info("Notification subscriber {} fell {} behind, disconnecting", name, skipped);
+				open = false;
+				return;
+			}
+			cursor = resumeAt;
+			subscriber.onDropped(skipped);
+		}
+
+		private void deliver(DeviceNotification notification) {
+			try {
+				subscriber.onNotification(notification);
+			} catch (RuntimeException e) {
+				logger.warn("Notification subscriber {} failed on {}", name, notification.type(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.notifications")
+public class NotificationProperties {
+	//notifications held for subscribers, rounded up to a power of two
+	private int ringSize = 8192;
+	private String defaultStream = "NETCONF";
+	//how often subscription sessions are checked and re-established after a device drops them
+	private Duration resubscribeInterval = Duration.ofSeconds(5);
+	private Duration sseTimeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,181 @@
+package com.example.netconf;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps one RFC 5277 subscription per device for as long as anybody listens.
+ * Each subscription runs on its own pooled session, since devices without
+ * {@code :interleave} stop answering RPCs on a session that has one. Its
+ * notifications reach the {@link NotificationBus} through the pool. Sessions
+ * the device drops are re-subscribed in the background.
+ */
+@Component
+public class NotificationService implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
+
+	private final NetconfSessionPool sessionPool;
+	private final NetconfPoolProperties poolProperties;
+	private final NotificationProperties properties;
+	private final ConcurrentMap<NetconfDeviceKey, DeviceSubscription> subscriptions = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService resubscriber;
+
+	public NotificationService(NetconfSessionPool sessionPool, NetconfPoolProperties poolProperties,
+			NotificationProperties properties) {
+		this.sessionPool = sessionPool;
+		this.poolProperties = poolProperties;
+		this.properties = properties;
+		this.resubscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "notification-resubscriber");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = properties.getResubscribeInterval().toMillis();
+		resubscriber.scheduleWithFixedDelay(this::resubscribe, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Registers a listener for the device's stream, subscribing on the device
+	 * if this is the first one. Pair every successful call with {@link #release}.
+	 */
+	public void acquire(NetconfDeviceKey device, String stream)
+			throws InterruptedException, TimeoutException, ExecutionException {
+		String name = stream == null || stream.isBlank() ? properties.getDefaultStream() : stream;
+		if (sessionPool.capabilities(device).map(known -> !known.supports(NetconfFeature.NOTIFICATION)).orElse(false)) {
+			throw new IllegalArgumentException(device + " does not support notifications");
+		}
+		while (true) {
+			DeviceSubscription subscription = subscriptions.computeIfAbsent(device,
+					key -> new DeviceSubscription(key, name));
+			subscription.lock.lock();
+			try {
+				//released and removed while we waited for the lock
+				if (subscriptions.get(device) != subscription) {
+					continue;
+				}
+				if (!subscription.stream.equals(name)) {
+					throw new IllegalArgumentException(
+							device + " is already subscribed to stream " + subscription.stream);
+				}
+				if (subscription.client == null || !subscription.client.isAlive()) {
+					try {
+						subscription.connect();
+					} catch (InterruptedException | TimeoutException | ExecutionException | RuntimeException e) {
+						if (subscription.listeners == 0) {
+							subscriptions.remove(device, subscription);
+						}
+						throw e;
+					}
+				}
+				subscription.listeners++;
+				return;
+			} finally {
+				subscription.lock.unlock();
+			}
+		}
+	}
+
+	public void release(NetconfDeviceKey device) {
+		DeviceSubscription subscription = subscriptions.get(device);
+		if (subscription == null) {
+			return;
+		}
+		subscription.lock.lock();
+		try {
+			if (--subscription.listeners > 0) {
+				return;
+			}
+			subscriptions.remove(device, subscription);
+			subscription.disconnect();
+		} finally {
+			subscription.lock.unlock();
+		}
+	}
+
+	public boolean isSubscribed(NetconfDeviceKey device) {
+		DeviceSubscription subscription = subscriptions.get(device);
+		return subscription != null && subscription.client != null && subscription.client.isAlive();
+	}
+
+	@Override
+	public void destroy() {
+		resubscriber.shutdownNow();
+		subscriptions.values().forEach(DeviceSubscription::disconnect);
+		subscriptions.clear();
+	}
+
+	private void resubscribe() {
+		for (DeviceSubscription subscription : subscriptions.values()) {
+			if (!subscription.lock.tryLock()) {
+				continue;
+			}
+			try {
+				if (subscription.listeners > 0 && (subscription.client == null || !subscription.client.isAlive())) {
+					subscription.connect();
+					logger.info("Re-subscribed to {} on {}", subscription.stream, subscription.device);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (TimeoutException | ExecutionException | RuntimeException e) {
+				logger.debug("Re-subscribing to {} failed: {}", subscription.device, e.getMessage());
+			} finally {
+				subscription.lock.unlock();
+			}
+		}
+	}
+
+	private final class DeviceSubscription {
+		private final NetconfDeviceKey device;
+		private final String stream;
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile TestingNetconfClient client; //written under lock
+		private int listeners; //guarded by lock
+
+		DeviceSubscription(NetconfDeviceKey device, String stream) {
+			this.device = device;
+			this.stream = stream;
+		}
+
+		void connect() throws InterruptedException, TimeoutException, ExecutionException {
+			if (client != null) {
+				sessionPool.invalidate(device, client);
+				client = null;
+			}
+			TestingNetconfClient session = sessionPool.borrow(device);
+			NetconfMessage reply;
+			try {
+				NetconfMessage rpc = NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.createSubscription(stream));
+				reply = session.sendMessage(rpc, (int) poolProperties.getRequestTimeout().toMillis());
+			} catch (TimeoutException | ExecutionException | InterruptedException | RuntimeException e) {
+				sessionPool.invalidate(device, session);
+				throw e;
+			}
+			if (NetconfReplyParser.hasError(reply)) {
+				sessionPool.release(device, session);
+				throw new IllegalStateException(device + " refused create-subscription for stream " + stream);
+			}
+			client = session;
+		}
+
+		//closing the session is the only way to end an RFC 5277 subscription
+		void disconnect() {
+			if (client != null) {
+				sessionPool.invalidate(device, client);
+				client = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.example.netconf;
+
+/**
+ * Receives notifications from the {@link NotificationBus} on the
+ * subscription's own thread, so a slow subscriber only delays itself.
+ */
+public interface NotificationSubscriber {
+
+	void onNotification(DeviceNotification notification);
+
+	//the subscriber fell more than a ring's worth behind and this many notifications were skipped
+	default void onDropped(long count) {
+	}
+
+	//the subscription ended: closed, disconnected for lagging, or the bus shut down
+	default void onClosed() {
+	}
+}
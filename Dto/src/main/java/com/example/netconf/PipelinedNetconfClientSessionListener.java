@@ -0,0 +1,241 @@
+package com.example.netconf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.NetconfTerminationReason;
+import org.opendaylight.netconf.client.NetconfClientSession;
+import org.opendaylight.netconf.client.NetconfClientSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Session listener that keeps up to {@code maxInFlight} RPCs outstanding on one
+ * session and matches replies to requests by {@code message-id}. Requests over
+ * the window wait in a FIFO queue of at most {@code maxQueued} and are sent as
+ * replies come back; once the queue is full further requests fail at once
+ * with a {@link DeviceOverloadedException}.
+ * <p>
+ * Callers sharing a session cannot keep their message-ids apart, so every
+ * request goes out as a copy carrying one of the session's own, and the reply
+ * is handed back with the caller's; requests without one keep the session's.
+ * The caller's document is never changed.
+ */
+public class PipelinedNetconfClientSessionListener implements NetconfClientSessionListener {
+	private static final Logger logger = LoggerFactory.getLogger(PipelinedNetconfClientSessionListener.class);
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+	public static final int DEFAULT_MAX_QUEUED = 256;
+
+	private final int maxInFlight;
+	private final int maxQueued;
+	private final AtomicLong messageIds = new AtomicLong();
+	//keyed by the message-id on the wire
+	private final ConcurrentMap<String, PendingRequest> inFlight = new ConcurrentHashMap<>();
+	private final Queue<PendingRequest> waiting = new ArrayDeque<>(); //guarded by this
+	private int outstanding; //guarded by this
+	//slots given back and not refilled yet, and whether a thread is refilling them; guarded by this
+	private int freed;
+	private boolean draining;
+	private NetconfClientSession session; //guarded by this
+	private volatile boolean up;
+	private volatile Consumer<NetconfMessage> notificationHandler = message -> {
+	};
+
+	public PipelinedNetconfClientSessionListener() {
+		this(DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_QUEUED);
+	}
+
+	public PipelinedNetconfClientSessionListener(int maxInFlight, int maxQueued) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+		}
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("maxQueued must not be negative, was " + maxQueued);
+		}
+		this.maxInFlight = maxInFlight;
+		this.maxQueued = maxQueued;
+	}
+
+	public CompletableFuture<NetconfMessage> sendRequest(NetconfMessage message) {
+		CompletableFuture<NetconfMessage> future = new CompletableFuture<>();
+		String callerId = message.getDocument().getDocumentElement().getAttribute("message-id");
+		PendingRequest request = new PendingRequest("p-" + messageIds.incrementAndGet(), callerId, message, future);
+		synchronized (this) {
+			if (session == null) {
+				future.completeExceptionally(new SessionDownException("Session is not up", false, null));
+				return future;
+			}
+			if (outstanding >= maxInFlight) {
+				if (waiting.size() >= maxQueued) {
+					future.completeExceptionally(new DeviceOverloadedException("Session " + session.getSessionId()
+							+ " has " + maxInFlight + " requests in flight and " + maxQueued + " queued"));
+				} else {
+					waiting.add(request);
+				}
+				return future;
+			}
+			outstanding++;
+		}
+		send(request);
+		return future;
+	}
+
+	//called on the event loop for every <notification>, so handlers must not block
+	public void setNotificationHandler(Consumer<NetconfMessage> notificationHandler) {
+		this.notificationHandler = notificationHandler;
+	}
+
+	public boolean isUp() {
+		return up;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+	public synchronized int getQueued() {
+		return waiting.size();
+	}
+
+	@Override
+	public void onSessionUp(NetconfClientSession clientSession) {
+		synchronized (this) {
+			session = clientSession;
+		}
+		up = true;
+	}
+
+	@Override
+	public void onSessionDown(NetconfClientSession clientSession, Exception cause) {
+		sessionGone("Session " + clientSession.getSessionId() + " went down", cause);
+	}
+
+	@Override
+	public void onSessionTerminated(NetconfClientSession clientSession, NetconfTerminationReason reason) {
+		sessionGone("Session " + clientSession.getSessionId() + " terminated: " + reason.getErrorMessage(), null);
+	}
+
+	@Override
+	public void onMessage(NetconfClientSession clientSession, NetconfMessage message) {
+		Element root = message.getDocument().getDocumentElement();
+		if ("notification".equals(root.getLocalName())) {
+			notificationHandler.accept(message);
+			return;
+		}
+		String messageId = root.getAttribute("message-id");
+		PendingRequest request = inFlight.get(messageId);
+		if (request == null) {
+			logger.debug("Dropping message with unknown message-id '{}' on session {}", messageId,
+					clientSession.getSessionId());
+			return;
+		}
+		if (!request.callerId().isEmpty()) {
+			root.setAttribute("message-id", request.callerId());
+		}
+		request.future().complete(message);
+	}
+
+	//takes up the slot counted for it; gives it back if the request cannot go out
+	private void send(PendingRequest request) {
+		NetconfClientSession target;
+		synchronized (this) {
+			target = session;
+		}
+		//cancelled or timed out while it was queued
+		if (request.future().isDone()) {
+			slotFreed();
+			return;
+		}
+		if (target == null) {
+			request.future().completeExceptionally(new SessionDownException("Session is not up", false, null));
+			slotFreed();
+			return;
+		}
+		inFlight.put(request.messageId(), request);
+		//whatever completes the future (reply, failure, caller timeout) gives the slot back
+		request.future().whenComplete((reply, failure) -> {
+			if (inFlight.remove(request.messageId(), request)) {
+				slotFreed();
+			}
+		});
+		//a copy, so a caller sending the same message again, e.g. on replay, never sees the session's id
+		Document copy = (Document) request.message().getDocument().cloneNode(true);
+		copy.getDocumentElement().setAttribute("message-id", request.messageId());
+		target.sendMessage(new NetconfMessage(copy)).addListener(sent -> {
+			if (!sent.isSuccess()) {
+				request.future().completeExceptionally(sent.cause());
+			}
+		});
+	}
+
+	//refills slots in a loop rather than by recursion: a slot freed while its thread sends, e.g. by a
+	//request that failed at once, is left to the thread already draining the queue
+	private void slotFreed() {
+		synchronized (this) {
+			freed++;
+			if (draining) {
+				return;
+			}
+			draining = true;
+		}
+		while (true) {
+			PendingRequest next;
+			synchronized (this) {
+				if (freed == 0) {
+					draining = false;
+					return;
+				}
+				freed--;
+				next = waiting.poll();
+				if (next == null) {
+					outstanding--;
+					continue;
+				}
+			}
+			send(next);
+		}
+	}
+
+	//queued requests never reached the device, in-flight ones may have
+	private void sessionGone(String message, Exception cause) {
+		up = false;
+		List<PendingRequest> queued;
+		synchronized (this) {
+			session = null;
+			queued = new ArrayList<>(waiting);
+			waiting.clear();
+			outstanding = 0;
+			freed = 0;
+		}
+		queued.forEach(request -> request.future()
+				.completeExceptionally(new SessionDownException(message, false, cause)));
+		List<PendingRequest> sent = new ArrayList<>(inFlight.values());
+		inFlight.clear();
+		sent.forEach(request -> request.future()
+				.completeExceptionally(new SessionDownException(message, true, cause)));
+	}
+
+	//messageId is the session's, callerId the one the caller set, empty if none
+	private record PendingRequest(String messageId, String callerId, NetconfMessage message,
+			CompletableFuture<NetconfMessage> future) {
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.netconf;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter. The jitter spreads reconnects from many
+ * devices that dropped at the same moment, e.g. during a mass reload.
+ *
+ * @param jitter fraction of each delay that is randomized, 0 to 1
+ * @param maxAttempts retries before giving up, negative for no limit
+ */
+public record ReconnectBackoff(Duration initialDelay, Duration maxDelay, double multiplier, double jitter,
+		int maxAttempts) {
+
+	public static final ReconnectBackoff DEFAULT = new ReconnectBackoff(Duration.ofMillis(250), Duration.ofSeconds(30),
+			2.0, 0.5, 5);
+
+	public ReconnectBackoff {
+		if (multiplier < 1.0 || jitter < 0.0 || jitter > 1.0) {
+			throw new IllegalArgumentException("multiplier must be >= 1 and jitter within [0, 1]");
+		}
+	}
+
+	//attempt counts from 0 for the first retry
+	public long delayMillis(int attempt) {
+		double base = Math.min(maxDelay.toMillis(), initialDelay.toMillis() * Math.pow(multiplier, attempt));
+		double spread = base * jitter;
+		return (long) (base - spread + ThreadLocalRandom.current().nextDouble() * spread);
+	}
+
+	public boolean exhausted(int attempts) {
+		return maxAttempts >= 0 && attempts >= maxAttempts;
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.netconf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Growable byte buffer recycled through a small shared pool. Use with
+ * try-with-resources; closing the buffer hands it back to the pool.
+ */
+public final class RpcBuffer extends ByteArrayOutputStream implements AutoCloseable {
+	private static final int INITIAL_SIZE = 4096;
+	//buffers that grew past this are left to the GC instead of being pooled
+	private static final int MAX_RETAINED_SIZE = 1 << 20;
+	private static final int MAX_POOLED = 64;
+
+	private static final Queue<RpcBuffer> POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED = new AtomicInteger();
+
+	private RpcBuffer() {
+		super(INITIAL_SIZE);
+	}
+
+	public static RpcBuffer acquire() {
+		RpcBuffer buffer = POOL.poll();
+		if (buffer == null) {
+			return new RpcBuffer();
+		}
+		POOLED.decrementAndGet();
+		return buffer;
+	}
+
+	public InputStream asInputStream() {
+		return new ByteArrayInputStream(buf, 0, count);
+	}
+
+	//copies straight from the backing array, no intermediate byte[]
+	public void copyTo(OutputStream out) throws IOException {
+		out.write(buf, 0, count);
+	}
+
+	@Override
+	public void close() {
+		reset();
+		if (buf.length <= MAX_RETAINED_SIZE && POOLED.incrementAndGet() <= MAX_POOLED) {
+			POOL.offer(this);
+		} else if (buf.length <= MAX_RETAINED_SIZE) {
+			POOLED.decrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.netconf;
+
+/**
+ * One {@code <rpc-error>} of a reply; fields the device left out are null.
+ *
+ * @param path the {@code error-path} instance identifier, e.g.
+ *            {@code /t:interfaces/t:interface[t:name='eth0']}
+ */
+public record RpcError(String tag, String severity, String path, String message) {
+
+	@Override
+	public String toString() {
+		return (tag == null ? "rpc-error" : tag) + (path == null ? "" : " at " + path)
+				+ (message == null ? "" : ": " + message);
+	}
+}
@@ -0,0 +1,213 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * An rpc whose structure is fixed and only a few values change per call. The
+ * body is compiled once into UTF-8 byte segments with parameter slots between
+ * them, {@code {{name}}} or {@code {{name:default}}}; rendering copies the
+ * segments and writes each value XML-escaped, so a value can never add or
+ * break elements. The {@code <rpc>} envelope and its {@code message-id} are
+ * added around the body.
+ * <p>
+ * Slots may appear in element text and attribute values, not in names.
+ */
+public final class RpcTemplate {
+	private static final Pattern SLOT_NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+	private static final byte[] RPC_START = ("<rpc xmlns=\"" + NetconfRpcEncoder.BASE_NS + "\">")
+			.getBytes(StandardCharsets.UTF_8);
+	private static final byte[] RPC_START_WITH_ID = ("<rpc xmlns=\"" + NetconfRpcEncoder.BASE_NS + "\" message-id=\"")
+			.getBytes(StandardCharsets.UTF_8);
+	private static final byte[] ATTRIBUTE_END = "\">".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] RPC_END = "</rpc>".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] QUOT = "&quot;".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] APOS = "&apos;".getBytes(StandardCharsets.US_ASCII);
+
+	private final String name;
+	//local name of the operation element, e.g. get-config
+	private final String operation;
+	//segments[i] precedes slots[i]; the last segment follows the last slot
+	private final byte[][] segments;
+	private final String[] slots;
+	//null for required parameters
+	private final String[] defaults;
+
+	private RpcTemplate(String name, byte[][] segments, String[] slots, String[] defaults) {
+		this.name = name;
+		this.segments = segments;
+		this.slots = slots;
+		this.defaults = defaults;
+		this.operation = verify();
+	}
+
+	/**
+	 * Compiles the body of an rpc, e.g.
+	 * {@code <get><filter type="subtree"><interfaces xmlns="{{namespace}}"/></filter></get>}.
+	 * The body is rendered once with placeholder values and parsed, so a
+	 * malformed template fails here rather than on its first use.
+	 */
+	public static RpcTemplate compile(String name, String body) {
+		if (body == null || body.isBlank()) {
+			throw new IllegalArgumentException("Rpc template " + name + " is empty");
+		}
+		List<byte[]> segments = new ArrayList<>();
+		List<String> slots = new ArrayList<>();
+		List<String> defaults = new ArrayList<>();
+		int position = 0;
+		int open;
+		while ((open = body.indexOf("{{", position)) >= 0) {
+			int close = body.indexOf("}}", open + 2);
+			if (close < 0) {
+				throw new IllegalArgumentException("Unterminated parameter in rpc template " + name + " at " + open);
+			}
+			String slot = body.substring(open + 2, close);
+			int separator = slot.indexOf(':');
+			String slotName = separator < 0 ? slot : slot.substring(0, separator);
+			if (!SLOT_NAME.matcher(slotName).matches()) {
+				throw new IllegalArgumentException("Invalid parameter {{" + slot + "}} in rpc template " + name);
+			}
+			segments.add(body.substring(position, open).getBytes(StandardCharsets.UTF_8));
+			slots.add(slotName);
+			defaults.add(separator < 0 ? null : slot.substring(separator + 1));
+			position = close + 2;
+		}
+		segments.add(body.substring(position).getBytes(StandardCharsets.UTF_8));
+		return new RpcTemplate(name, segments.toArray(new byte[0][]), slots.toArray(new String[0]),
+				defaults.toArray(new String[0]));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	//distinct parameter names in order of first use
+	public List<String> parameters() {
+		return Arrays.stream(slots).distinct().toList();
+	}
+
+	/**
+	 * Writes the complete rpc. Parameters without a value fall back to the
+	 * slot's default; a required one that is missing is rejected.
+	 */
+	public void render(OutputStream out, String messageId, Map<String, String> params) throws IOException {
+		//look every value up before writing anything
+		String[] values = new String[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			String value = params.get(slots[i]);
+			values[i] = value != null ? value : defaults[i];
+			if (values[i] == null) {
+				throw new IllegalArgumentException("Missing parameter " + slots[i] + " for rpc template " + name);
+			}
+		}
+		if (messageId != null && !messageId.isBlank()) {
+			out.write(RPC_START_WITH_ID);
+			writeEscaped(out, messageId);
+			out.write(ATTRIBUTE_END);
+		} else {
+			out.write(RPC_START);
+		}
+		for (int i = 0; i < slots.length; i++) {
+			out.write(segments[i]);
+			writeEscaped(out, values[i]);
+		}
+		out.write(segments[slots.length]);
+		out.write(RPC_END);
+	}
+
+	//ODL sessions only accept a DOM, so the rendered bytes are parsed once here
+	public NetconfMessage toMessage(String messageId, Map<String, String> params) {
+		try (RpcBuffer buffer = RpcBuffer.acquire()) {
+			render(buffer, messageId, params);
+			return NetconfRpcEncoder.toMessage(buffer);
+		} catch (SAXException | IOException e) {
+			throw new IllegalArgumentException("Unable to render rpc template " + name, e);
+		}
+	}
+
+	//the local name of the operation element, once the other fields are set
+	private String verify() {
+		Map<String, String> placeholders = new HashMap<>();
+		for (String slot : slots) {
+			placeholders.put(slot, "x");
+		}
+		Element rpc;
+		try {
+			rpc = toMessage("1", placeholders).getDocument().getDocumentElement();
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Rpc template " + name + " is not well-formed XML", e);
+		}
+		for (Node child = rpc.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element element) {
+				return element.getLocalName();
+			}
+		}
+		throw new IllegalArgumentException("Rpc template " + name + " has no operation element");
+	}
+
+	//escapes for both text and attribute values, encoding UTF-8 without an intermediate byte[]
+	private static void writeEscaped(OutputStream out, String value) throws IOException {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '&':
+				out.write(AMP);
+				break;
+			case '<':
+				out.write(LT);
+				break;
+			case '>':
+				out.write(GT);
+				break;
+			case '"':
+				out.write(QUOT);
+				break;
+			case '\'':
+				out.write(APOS);
+				break;
+			default:
+				if (c < 0x80) {
+					out.write(c);
+				} else if (c < 0x800) {
+					out.write(0xc0 | c >> 6);
+					out.write(0x80 | c & 0x3f);
+				} else if (Character.isHighSurrogate(c) && i + 1 < length
+						&& Character.isLowSurrogate(value.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, value.charAt(++i));
+					out.write(0xf0 | codePoint >> 18);
+					out.write(0x80 | codePoint >> 12 & 0x3f);
+					out.write(0x80 | codePoint >> 6 & 0x3f);
+					out.write(0x80 | codePoint & 0x3f);
+				} else if (Character.isSurrogate(c)) {
+					//a lone surrogate has no UTF-8 form
+					out.write('?');
+				} else {
+					out.write(0xe0 | c >> 12);
+					out.write(0x80 | c >> 6 & 0x3f);
+					out.write(0x80 | c & 0x3f);
+				}
+				break;
+			}
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.netconf;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.rpc")
+public class RpcTemplateProperties {
+	//template name to rpc body, see RpcTemplate for the parameter syntax
+	private Map<String, String> templates = new LinkedHashMap<>();
+	//optional directory of <name>.xml templates, for bodies too long for a property
+	private Path templateDirectory;
+}
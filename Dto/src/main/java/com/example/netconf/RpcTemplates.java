@@ -0,0 +1,63 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Named {@link RpcTemplate}s, compiled at startup from
+ * {@code netconf.rpc.templates} and the optional template directory. A
+ * template that does not compile fails the startup.
+ */
+@Component
+public class RpcTemplates {
+	private static final Logger logger = LoggerFactory.getLogger(RpcTemplates.class);
+
+	private final Map<String, RpcTemplate> templates = new ConcurrentHashMap<>();
+
+	public RpcTemplates(RpcTemplateProperties properties) {
+		properties.getTemplates().forEach(this::register);
+		if (properties.getTemplateDirectory() != null) {
+			load(properties.getTemplateDirectory());
+		}
+		logger.info("Compiled {} rpc templates", templates.size());
+	}
+
+	//replaces any template of the same name
+	public RpcTemplate register(String name, String body) {
+		RpcTemplate template = RpcTemplate.compile(name, body);
+		templates.put(name, template);
+		return template;
+	}
+
+	public Optional<RpcTemplate> get(String name) {
+		return Optional.ofNullable(templates.get(name));
+	}
+
+	public Set<String> names() {
+		return Set.copyOf(templates.keySet());
+	}
+
+	private void load(Path directory) {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.xml")) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+				register(fileName.substring(0, fileName.length() - ".xml".length()),
+						Files.readString(file, StandardCharsets.UTF_8));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read rpc templates from " + directory, e);
+		}
+	}
+}
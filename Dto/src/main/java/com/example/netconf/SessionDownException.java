@@ -0,0 +1,21 @@
+package com.example.netconf;
+
+/**
+ * A request failed because its session went away. {@link #isSent()} tells
+ * whether it may have reached the device; unsent requests are always safe to
+ * send again on another session.
+ */
+public class SessionDownException extends IllegalStateException {
+	private static final long serialVersionUID = 1L;
+
+	private final boolean sent;
+
+	public SessionDownException(String message, boolean sent, Throwable cause) {
+		super(message, cause);
+		this.sent = sent;
+	}
+
+	public boolean isSent() {
+		return sent;
+	}
+}
@@ -0,0 +1,188 @@
+package com.example.netconf;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.zip.GZIPOutputStream;
+
+import com.example.dto.BatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The output directory of a sweep. Results go to {@code results-NNNNN.ndjson.gz}
+ * files, each a series of gzip members that {@code zcat} reads as one NDJSON
+ * stream. After every member {@code sweep.checkpoint} gets a line with the
+ * file, its length and the input lines the member holds; both are forced to
+ * disk first. On reopening, anything written after the last complete line is
+ * cut off, so the files only ever hold checkpointed results.
+ * <p>
+ * The first checkpoint line records a digest of the input, and a directory is
+ * only resumed for the same input, since results are keyed by input line.
+ */
+final class SweepJournal implements Closeable {
+	static final String CHECKPOINT = "sweep.checkpoint";
+	private static final String INPUT = "input ";
+	private static final int BUFFER = 64 * 1024;
+
+	private final Path directory;
+	private final long segmentSize;
+	private final ObjectMapper objectMapper;
+	private final BitSet resumed;
+	private final FileChannel checkpoint;
+	//opened on the first append, so there are no empty files for zcat to trip over
+	private FileChannel segment;
+	private int segmentIndex;
+
+	private SweepJournal(Path directory, long segmentSize, ObjectMapper objectMapper, BitSet resumed,
+			FileChannel checkpoint, int segmentIndex) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.objectMapper = objectMapper;
+		this.resumed = resumed;
+		this.checkpoint = checkpoint;
+		this.segmentIndex = segmentIndex;
+	}
+
+	static SweepJournal open(Path directory, String inputDigest, long segmentSize, ObjectMapper objectMapper)
+			throws IOException {
+		Files.createDirectories(directory);
+		Path checkpointFile = directory.resolve(CHECKPOINT);
+		BitSet done = new BitSet();
+		int segmentIndex = 0;
+		long offset = 0;
+		int valid = 0;
+		if (Files.exists(checkpointFile)) {
+			String text = Files.readString(checkpointFile, StandardCharsets.US_ASCII);
+			//a line without its newline was being written when the sweep stopped
+			valid = text.lastIndexOf('\n') + 1;
+			String[] lines = text.substring(0, valid).split("\n");
+			if (valid > 0 && !lines[0].equals(INPUT + inputDigest)) {
+				throw new IllegalStateException(directory + " holds a sweep of a different input, use another directory");
+			}
+			for (int i = 1; i < lines.length; i++) {
+				String[] fields = lines[i].split(" ", 3);
+				segmentIndex = Integer.parseInt(fields[0]);
+				offset = Long.parseLong(fields[1]);
+				for (String line : fields[2].split(",")) {
+					done.set(Integer.parseInt(line));
+				}
+			}
+		}
+		//results written after the last checkpoint are collected again
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "results-*.ndjson.gz")) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (Integer.parseInt(name.substring("results-".length(), name.indexOf('.'))) > segmentIndex) {
+					Files.delete(file);
+				}
+			}
+		}
+		Path segmentFile = segmentFile(directory, segmentIndex);
+		if (Files.exists(segmentFile)) {
+			try (FileChannel segment = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+				segment.truncate(offset);
+			}
+		}
+		FileChannel checkpoint = FileChannel.open(checkpointFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			checkpoint.truncate(valid).position(valid);
+			SweepJournal journal = new SweepJournal(directory, segmentSize, objectMapper, done, checkpoint,
+					segmentIndex);
+			if (valid == 0) {
+				journal.writeCheckpoint(INPUT + inputDigest);
+			}
+			return journal;
+		} catch (IOException | RuntimeException e) {
+			checkpoint.close();
+			throw e;
+		}
+	}
+
+	//collected by an earlier run; never changes after open, so any thread may ask
+	boolean isResumed(int line) {
+		return resumed.get(line);
+	}
+
+	int resumedCount() {
+		return resumed.cardinality();
+	}
+
+	//writes one gzip member and checkpoints it; not thread-safe, the sweep has a single writer
+	void append(List<BatchResult> results) throws IOException {
+		if (segment == null) {
+			segment = FileChannel.open(segmentFile(directory, segmentIndex), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		StringJoiner lines = new StringJoiner(",");
+		try (OutputStream gzip = new GZIPOutputStream(
+				new BufferedOutputStream(new Unclosed(Channels.newOutputStream(segment)), BUFFER), BUFFER)) {
+			for (BatchResult result : results) {
+				gzip.write(objectMapper.writeValueAsBytes(result));
+				gzip.write('\n');
+				lines.add(Integer.toString(result.getIndex()));
+			}
+		}
+		segment.force(false);
+		long length = segment.size();
+		writeCheckpoint(segmentIndex + " " + length + " " + lines);
+		if (length >= segmentSize) {
+			segment.close();
+			segment = null;
+			segmentIndex++;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			if (segment != null) {
+				segment.close();
+			}
+		} finally {
+			checkpoint.close();
+		}
+	}
+
+	private void writeCheckpoint(String line) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+		while (bytes.hasRemaining()) {
+			checkpoint.write(bytes);
+		}
+		checkpoint.force(false);
+	}
+
+	static Path segmentFile(Path directory, int index) {
+		return directory.resolve(String.format("results-%05d.ndjson.gz", index));
+	}
+
+	//finishing a member must not close the segment's channel
+	private static final class Unclosed extends FilterOutputStream {
+
+		Unclosed(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.sweep")
+public class SweepProperties {
+	//devices collected at once
+	private int parallelism = 64;
+	//per attempt, a full get-config from a large device can take a while
+	private Duration entryTimeout = Duration.ofMinutes(2);
+	//attempts per device, retried with backoff after timeouts, connection failures and rpc-errors
+	private int maxAttempts = 3;
+	private Duration retryInitialDelay = Duration.ofSeconds(1);
+	private Duration retryMaxDelay = Duration.ofSeconds(30);
+	//results are checkpointed after this many, or after the interval, whichever comes first
+	private int flushEntries = 256;
+	private Duration flushInterval = Duration.ofSeconds(1);
+	//a new results file is started once the current one reaches this size
+	private DataSize segmentSize = DataSize.ofMegabytes(256);
+}
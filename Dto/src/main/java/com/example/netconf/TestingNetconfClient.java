@@ -1,4 +1,4 @@
-package aj;
+package com.example.netconf;
 
 /*
  * Copyright (c) 2013 Cisco Systems, Inc. and others.  All rights reserved.
@@ -9,13 +9,11 @@ package aj;
  */
 
 
-import static com.google.common.base.Preconditions.checkState;
-
-import com.google.common.collect.Sets;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
 
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
@@ -25,12 +23,16 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import org.w3c.dom.Element;
 import org.w3c.dom.Document;
 import javax.xml.parsers.DocumentBuilder;
@@ -47,6 +49,7 @@ import org.opendaylight.netconf.client.conf.NetconfClientConfiguration;
 import org.opendaylight.netconf.client.conf.NetconfClientConfiguration.NetconfClientProtocol;
 import org.opendaylight.netconf.client.conf.NetconfClientConfigurationBuilder;
 import org.opendaylight.netconf.nettyutil.NeverReconnectStrategy;
+import org.opendaylight.netconf.nettyutil.ReconnectStrategy;
 import org.opendaylight.netconf.nettyutil.handler.ssh.authentication.AuthenticationHandler;
 import org.opendaylight.netconf.nettyutil.handler.ssh.authentication.LoginPasswordHandler;
 import org.opendaylight.netconf.util.NetconfUtil;
@@ -62,26 +65,42 @@ public class TestingNetconfClient implements Closeable {
     private final String label; //client instance
     private final NetconfClientSession clientSession; //netconf communication
     private final NetconfClientSessionListener sessionListener; //handle session events
-    private static Long sessionId; //unique identifier |  Store session ID
+    private final long clientSessionId; //unique identifier of this client's session
+    private final Set<String> capabilities; //server hello, fixed for the life of the session
+    private final NetconfMetrics metrics;
+    private volatile long lastActivity = System.nanoTime(); //System.nanoTime() of the last send or reply
+    private volatile long lastUse = lastActivity; //the same, keepalives left out
+    private static Long sessionId; //Store session ID of the console login
     private static TestingNetconfClient client = null;  // Store active client session
+    private static NetconfClientDispatcherImpl sharedDispatcher = null; // one event loop and timer for every login
 //    private static String sessionId = null;  // Store session ID
 
     //Constructor
     public TestingNetconfClient(final String clientLabel, //client identifier
                                 final NetconfClientDispatcher netconfClientDispatcher, //create client session
                                 final NetconfClientConfiguration config) throws InterruptedException { //contain connection details and listener
+        this(clientLabel, netconfClientDispatcher, config, NetconfMetrics.NOOP);
+    }
+
+    //RPCs are timed and counted under the client label as device tag
+    public TestingNetconfClient(final String clientLabel,
+                                final NetconfClientDispatcher netconfClientDispatcher,
+                                final NetconfClientConfiguration config,
+                                final NetconfMetrics metrics) throws InterruptedException {
         this.label = clientLabel;
+        this.metrics = metrics;
         sessionListener = config.getSessionListener();
         Future<NetconfClientSession> clientFuture = netconfClientDispatcher.createClient(config);
         clientSession = get(clientFuture); //create client session asyn(retrieve the session)
-        this.sessionId = clientSession.getSessionId();
+        this.clientSessionId = clientSession.getSessionId();
+        this.capabilities = Set.copyOf(clientSession.getServerCapabilities());
     }
 
     //retrieve the result from the provider future
     private static NetconfClientSession get(final Future<NetconfClientSession> clientFuture)
             throws InterruptedException {
         try {
-            return clientFuture.get(); //retrieve the session
+            return toCompletableFuture(clientFuture).get(); //retrieve the session
         } catch (CancellationException e) {
             throw new RuntimeException("Cancelling " + TestingNetconfClient.class.getSimpleName(), e);
         } catch (ExecutionException e) {
@@ -89,15 +108,100 @@ public class TestingNetconfClient implements Closeable {
         }
     }
 
+    //netty's Future.get() waits in a synchronized block, which pins a virtual thread to its carrier;
+    //waiting on a CompletableFuture parks it instead
+    private static <T> CompletableFuture<T> toCompletableFuture(final Future<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.addListener(done -> {
+            if (done.isSuccess()) {
+                result.complete(future.getNow());
+            } else if (done.isCancelled()) {
+                result.cancel(false);
+            } else {
+                result.completeExceptionally(done.cause());
+            }
+        });
+        return result;
+    }
+
     //send netconf msg async
     public Future<NetconfMessage> sendRequest(final NetconfMessage message) {
-        return ((SimpleNetconfClientSessionListener) sessionListener).sendRequest(message);
+        if (sessionListener instanceof PipelinedNetconfClientSessionListener) {
+            Promise<NetconfMessage> promise = GlobalEventExecutor.INSTANCE.newPromise();
+            sendRequestAsync(message).whenComplete((reply, failure) -> {
+                if (failure == null) {
+                    promise.trySuccess(reply);
+                } else {
+                    promise.tryFailure(failure);
+                }
+            });
+            return promise;
+        }
+        Future<NetconfMessage> reply = ((SimpleNetconfClientSessionListener) sessionListener).sendRequest(message);
+        observe(message, toCompletableFuture(reply), true);
+        return reply;
+    }
+
+    //send netconf msg async, many requests may be outstanding with a pipelined listener
+    public CompletableFuture<NetconfMessage> sendRequestAsync(final NetconfMessage message) {
+        if (sessionListener instanceof PipelinedNetconfClientSessionListener pipelined) {
+            return observe(message, pipelined.sendRequest(message), true);
+        }
+        return toCompletableFuture(sendRequest(message));
+    }
+
+    //a keepalive counts as activity but not as use, so a session nobody uses still goes idle
+    public CompletableFuture<NetconfMessage> sendKeepaliveAsync(final NetconfMessage message) {
+        if (sessionListener instanceof PipelinedNetconfClientSessionListener pipelined) {
+            return observe(message, pipelined.sendRequest(message), false);
+        }
+        return observe(message,
+                toCompletableFuture(((SimpleNetconfClientSessionListener) sessionListener).sendRequest(message)), false);
+    }
+
+    //starts an RFC 5277 subscription on this session; notifications then go to the handler
+    public CompletableFuture<NetconfMessage> subscribe(final String stream,
+            final Consumer<NetconfMessage> notificationHandler) {
+        if (!(sessionListener instanceof PipelinedNetconfClientSessionListener pipelined)) {
+            throw new IllegalStateException("Notifications need a " + PipelinedNetconfClientSessionListener.class.getSimpleName());
+        }
+        pipelined.setNotificationHandler(notificationHandler);
+        return sendRequestAsync(NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.createSubscription(stream)));
     }
 
     //waiting for the response
     public NetconfMessage sendMessage(final NetconfMessage message, final int attemptMsDelay) throws ExecutionException,
             InterruptedException, TimeoutException {
-        return sendRequest(message).get(attemptMsDelay, TimeUnit.MILLISECONDS);
+        CompletableFuture<NetconfMessage> reply = sendRequestAsync(message);
+        try {
+            return reply.get(attemptMsDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            reply.completeExceptionally(e); //frees the pipelining slot, recorded as a timeout
+            throw e;
+        } catch (InterruptedException e) {
+            reply.cancel(false);
+            throw e;
+        }
+    }
+
+    //times the request from send to reply; the caller keeps the original future
+    private CompletableFuture<NetconfMessage> observe(final NetconfMessage message,
+            final CompletableFuture<NetconfMessage> reply, final boolean use) {
+        final String operation = NetconfMetrics.operation(message);
+        final long start = System.nanoTime();
+        lastActivity = start;
+        if (use) {
+            lastUse = start;
+        }
+        metrics.rpcStarted(label, message);
+        reply.whenComplete((response, failure) -> {
+            lastActivity = System.nanoTime();
+            if (use) {
+                lastUse = lastActivity;
+            }
+            metrics.rpcCompleted(label, operation, NetconfMetrics.outcome(response, failure), lastActivity - start);
+        });
+        return reply;
     }
 
     //use the default timeout
@@ -117,20 +221,44 @@ public class TestingNetconfClient implements Closeable {
     public String toString() {
         final StringBuilder sb = new StringBuilder("TestingNetconfClient{");
         sb.append("label=").append(label);
-        sb.append(", sessionId=").append(sessionId);
+        sb.append(", sessionId=").append(clientSessionId);
         sb.append('}');
         return sb.toString();
     }
 
     //getter method
     public long getSessionId() {
-        return sessionId;
+        return clientSessionId;
+    }
+
+    //false once the device has dropped or terminated the session
+    public boolean isAlive() {
+        if (sessionListener instanceof PipelinedNetconfClientSessionListener pipelined) {
+            return pipelined.isUp();
+        }
+        return true;
+    }
+
+    //requests sent and not yet answered, including ones queued behind the pipelining window
+    public int getInFlight() {
+        if (sessionListener instanceof PipelinedNetconfClientSessionListener pipelined) {
+            return pipelined.getInFlight() + pipelined.getQueued();
+        }
+        return 0;
+    }
+
+    public long getLastActivity() {
+        return lastActivity;
+    }
+
+    //System.nanoTime() of the last request or reply other than a keepalive
+    public long getLastUse() {
+        return lastUse;
     }
 
-    //returns the sets of capabilities (server)
+    //returns the sets of capabilities (server), read once from the hello; see CapabilityCache
     public Set<String> getCapabilities() {
-        checkState(clientSession != null, "Client was not initialized successfully");
-        return Sets.newHashSet(clientSession.getServerCapabilities());
+        return capabilities;
     }
 
     
@@ -184,36 +312,8 @@ public class TestingNetconfClient implements Closeable {
         java.io.Console console = System.console();
 
          String msgId = console.readLine("Enter message ID : ");
-//         String operation = console.readLine("Enter operation : ");
-//         String nameSpace = console.readLine("Enter namespace : ");
-//         String container = console.readLine("Enter container : ");
-
-
-         
-    	Document doc = XmlUtil.newDocument();
-    	Element rpcElement = doc.createElementNS("urn:ietf:params:xml:ns:netconf:base:1.0","rpc");
-//    	rpcElement.setAttribute("message-id","100");
-    	rpcElement.setAttribute("message-id",msgId);
-    	doc.appendChild(rpcElement);
-    	
-    	Element getConfigElement = doc.createElement("get");
-//    	Element getConfigElement = doc.createElement(operation);
-    	rpcElement.appendChild(getConfigElement);
-    	
-//    	Element sourceElement =doc.createElement("filter");
-//    	sourceElement.setAttribute("type","subtree");
-//    	getConfigElement.appendChild(sourceElement);
-//    	
-////    	Element runningElement = doc.createElement("interfaces");
-//    	Element runningElement = doc.createElement(container);
-////    	runningElement.setAttribute("xmlns","urn:test");
-//    	runningElement.setAttribute("xmlns",nameSpace);
-//    	sourceElement.appendChild(runningElement);
-    	
-    	NetconfMessage request = new NetconfMessage(doc);
-    	return request;
-    	
-    	
+
+        return NetconfRpcEncoder.toMessage(msgId, NetconfRpcEncoder.get(null, null));
     }
     
     public static NetconfMessage GetConfigMessage()
@@ -221,160 +321,47 @@ public class TestingNetconfClient implements Closeable {
         java.io.Console console = System.console();
 
          String msgId = console.readLine("Enter message ID : ");
-//         String operation = console.readLine("Enter operation : ");
          String nameSpace = console.readLine("Enter namespace : ");
          String container = console.readLine("Enter container : ");
 
-
-         
-    	Document doc = XmlUtil.newDocument();
-    	Element rpcElement = doc.createElementNS("urn:ietf:params:xml:ns:netconf:base:1.0","rpc");
-//    	rpcElement.setAttribute("message-id","100");
-    	rpcElement.setAttribute("message-id",msgId);
-    	doc.appendChild(rpcElement);
-    	
-    	Element getConfigElement = doc.createElement("get");
-//    	Element getConfigElement = doc.createElement(operation);
-    	rpcElement.appendChild(getConfigElement);
-    	
-    	Element sourceElement =doc.createElement("filter");
-    	sourceElement.setAttribute("type","subtree");
-    	getConfigElement.appendChild(sourceElement);
-    	
-//    	Element runningElement = doc.createElement("interfaces");
-    	Element runningElement = doc.createElement(container);
-//    	runningElement.setAttribute("xmlns","urn:test");
-    	runningElement.setAttribute("xmlns",nameSpace);
-    	sourceElement.appendChild(runningElement);
-    	
-    	NetconfMessage request = new NetconfMessage(doc);
-    	return request;
-    	
-    	
+        //subtree filtered <get>
+        return NetconfRpcEncoder.toMessage(msgId, NetconfRpcEncoder.get(nameSpace, container));
     }
     
-    
-    
-    
     public static NetconfMessage editConfigMessage()
     {
     	java.io.Console console = System.console();
 
         String msgId = console.readLine("Enter message ID : ");
-//        String operation = console.readLine("Enter operation : ");
         String nameSpace = console.readLine("Enter namespace : ");
         String container = console.readLine("Enter container : ");
         String list = console.readLine("Enter list : ");
     
-//    String nameSpace = console.readLine("Enter namespace : ");
         System.out.println("\nEnter the datas to update ");
     String ip = console.readLine("Enter ip : ");
     String name = console.readLine("Enter name : ");
     String enable = console.readLine("Enter enable(true/false) : ");
 
-        
-        
-    	Document doc = XmlUtil.newDocument();
-
-    	Element rpcElement = doc.createElementNS("urn:ietf:params:xml:ns:netconf:base:1.0","rpc");
-//    	rpcElement.setAttribute("message-id","100");
-    	rpcElement.setAttribute("message-id",msgId);
-    	doc.appendChild(rpcElement);
-    	
-    	Element editConfigElement = doc.createElement("edit-config");
-    	rpcElement.appendChild(editConfigElement);
-    	
-    	Element targetElement = doc.createElement("target");
-    	Element runningElement = doc.createElement("running");
-    	targetElement.appendChild(runningElement);
-    	editConfigElement.appendChild(targetElement);
-   	
-    	Element configElement = doc.createElement("config");
-    	editConfigElement.appendChild(configElement);
-    	
-    	Element interfacesElement = doc.createElement(container);
-    	interfacesElement.setAttribute("xmlns","urn:test");
-    	configElement.appendChild(interfacesElement);
-    	
-//    	Element interfaceElement = doc.createElement("interface");
-    	Element interfaceElement = doc.createElement(list);
-    	interfacesElement.appendChild(interfaceElement);
-    	
-    	Element nameElement = doc.createElement("name");
-    	nameElement.setTextContent(name);
-    	interfaceElement.appendChild(nameElement);
-    	
-    	Element enableElement = doc.createElement("enable");
-    	enableElement.setTextContent(enable);
-    	interfaceElement.appendChild(enableElement);
-    	
-    	Element ipAddressElement = doc.createElement("ip-address");
-    	ipAddressElement.setTextContent(ip);
-    	interfaceElement.appendChild(ipAddressElement);
-    	
-    	NetconfMessage request = new NetconfMessage(doc);
-    	return request;
+        return NetconfRpcEncoder.toMessage(msgId, NetconfRpcEncoder.editConfig("running",
+                NetconfRpcEncoder.listEntry("urn:test", container, list, null, interfaceLeaves(name, enable, ip))));
     }
     
-    
     public static NetconfMessage addConfigMessage()
     {
     	java.io.Console console = System.console();
 
         String msgId = console.readLine("Enter message ID : ");
-//        String operation = console.readLine("Enter operation : ");
         String nameSpace = console.readLine("Enter namespace : ");
         String container = console.readLine("Enter container : ");
         String list = console.readLine("Enter list : ");
     
-//    String nameSpace = console.readLine("Enter namespace : ");
         System.out.println("\nEnter the datas to add ");
     String ip = console.readLine("Enter ip : ");
     String name = console.readLine("Enter name : ");
     String enable = console.readLine("Enter enable(true/false) : ");
 
-        
-        
-    	Document doc = XmlUtil.newDocument();
-
-    	Element rpcElement = doc.createElementNS("urn:ietf:params:xml:ns:netconf:base:1.0","rpc");
-//    	rpcElement.setAttribute("message-id","100");
-    	rpcElement.setAttribute("message-id",msgId);
-    	doc.appendChild(rpcElement);
-    	
-    	Element editConfigElement = doc.createElement("edit-config");
-    	rpcElement.appendChild(editConfigElement);
-    	
-    	Element targetElement = doc.createElement("target");
-    	Element runningElement = doc.createElement("running");
-    	targetElement.appendChild(runningElement);
-    	editConfigElement.appendChild(targetElement);
-   	
-    	Element configElement = doc.createElement("config");
-    	editConfigElement.appendChild(configElement);
-    	
-    	Element interfacesElement = doc.createElement(container);
-    	interfacesElement.setAttribute("xmlns","urn:test");
-    	configElement.appendChild(interfacesElement);
-    	
-//    	Element interfaceElement = doc.createElement("interface");
-    	Element interfaceElement = doc.createElement(list);
-    	interfacesElement.appendChild(interfaceElement);
-    	
-    	Element nameElement = doc.createElement("name");
-    	nameElement.setTextContent(name);
-    	interfaceElement.appendChild(nameElement);
-    	
-    	Element enableElement = doc.createElement("enable");
-    	enableElement.setTextContent(enable);
-    	interfaceElement.appendChild(enableElement);
-    	
-    	Element ipAddressElement = doc.createElement("ip-address");
-    	ipAddressElement.setTextContent(ip);
-    	interfaceElement.appendChild(ipAddressElement);
-    	
-    	NetconfMessage request = new NetconfMessage(doc);
-    	return request;
+        return NetconfRpcEncoder.toMessage(msgId, NetconfRpcEncoder.editConfig("running",
+                NetconfRpcEncoder.listEntry("urn:test", container, list, null, interfaceLeaves(name, enable, ip))));
     }
     
     public static NetconfMessage deleteConfigMessage()
@@ -382,52 +369,23 @@ public class TestingNetconfClient implements Closeable {
     	java.io.Console console = System.console();
 
         String msgId = console.readLine("Enter message ID : ");
-//        String operation = console.readLine("Enter operation : ");
         String nameSpace = console.readLine("Enter namespace : ");
         String container = console.readLine("Enter container : ");
     
-//    String nameSpace = console.readLine("Enter namespace : ");
         System.out.println("\n Enter the key name ");
-//    String ip = console.readLine("Enter ip : ");
     String name = console.readLine("Enter name : ");
-//    String enable = console.readLine("Enter enable(true/false) : ");
 
-        
-        
-    	Document doc = XmlUtil.newDocument();
-
-    	Element rpcElement = doc.createElementNS("urn:ietf:params:xml:ns:netconf:base:1.0","rpc");
-//    	rpcElement.setAttribute("message-id","100");
-    	rpcElement.setAttribute("message-id",msgId);
-    	doc.appendChild(rpcElement);
-    	
-    	Element editConfigElement = doc.createElement("edit-config");
-    	rpcElement.appendChild(editConfigElement);
-    	
-    	Element targetElement = doc.createElement("target");
-    	Element runningElement = doc.createElement("running");
-    	targetElement.appendChild(runningElement);
-    	editConfigElement.appendChild(targetElement);
-   	
-    	Element configElement = doc.createElement("config");
-    	configElement.setAttribute("xmlns:urn", nameSpace);
-    	editConfigElement.appendChild(configElement);
-    	
-    	Element interfacesElement = doc.createElement(container);
-    	interfacesElement.setAttribute("xmlns",nameSpace);
-    	configElement.appendChild(interfacesElement);
-    	
-//    	Element interfaceElement = doc.createElement("interface");
-    	Element interfaceElement = doc.createElement("interface");
-    	interfaceElement.setAttribute("operation","delete");
-    	interfacesElement.appendChild(interfaceElement);
-    	
-      	Element nameElement = doc.createElement("name");
-    	nameElement.setTextContent(name);
-    	interfaceElement.appendChild(nameElement);
-    	
-    	NetconfMessage request = new NetconfMessage(doc);
-    	return request;
+        return NetconfRpcEncoder.toMessage(msgId, NetconfRpcEncoder.editConfig("running",
+                NetconfRpcEncoder.listEntry(nameSpace, container, "interface", "delete", Map.of("name", name))));
+    }
+
+    //leaf order of the test interface list
+    private static Map<String, String> interfaceLeaves(String name, String enable, String ip) {
+        Map<String, String> leaves = new LinkedHashMap<>();
+        leaves.put("name", name);
+        leaves.put("enable", enable);
+        leaves.put("ip-address", ip);
+        return leaves;
     }
     
 
@@ -559,18 +517,20 @@ public class TestingNetconfClient implements Closeable {
     
     private static void login(Console console) {
     	String ip = console.readLine("Enter IP Address: ");
+        String port = console.readLine("Enter Port (blank for 2022): ");
+        boolean ssh = !"n".equalsIgnoreCase(console.readLine("Use SSH? (Y/n): ").trim()); //plain TCP for the loopback test server
         String name = console.readLine("Enter Username: ");
         String password = console.readLine("Enter Password: ");
         
 
         try {
-            HashedWheelTimer hashedWheelTimer = new HashedWheelTimer();
-            NioEventLoopGroup nettyGroup = new NioEventLoopGroup();
-            NetconfClientDispatcherImpl netconfClientDispatcher = new NetconfClientDispatcherImpl(nettyGroup, nettyGroup, hashedWheelTimer);
             LoginPasswordHandler authHandler = new LoginPasswordHandler(name, password);
             
-            client = new TestingNetconfClient("client", netconfClientDispatcher, getClientConfig(ip, 2022, true, Optional.of(authHandler)));
-            sessionId = client.sessionId;  // Store session ID
+            client = new TestingNetconfClient("client", sharedDispatcher(), getClientConfig(ip,
+                    port.isBlank() ? 2022 : Integer.parseInt(port.trim()), ssh, Optional.of(authHandler),
+                    new SimpleNetconfClientSessionListener(), new BackoffReconnectStrategy(GlobalEventExecutor.INSTANCE,
+                            DEFAULT_CONNECT_TIMEOUT, ReconnectBackoff.DEFAULT)));
+            sessionId = client.getSessionId();  // Store session ID
             
             System.out.println("Login successful! Session ID: " + sessionId);
 //            System.out.println("Server Capabilities: " + client.getCapabilities());
@@ -581,6 +541,15 @@ public class TestingNetconfClient implements Closeable {
         }
     }
 
+    //event loop and timer are created once and reused by every login
+    private static synchronized NetconfClientDispatcherImpl sharedDispatcher() {
+        if (sharedDispatcher == null) {
+            NioEventLoopGroup nettyGroup = new NioEventLoopGroup();
+            sharedDispatcher = new NetconfClientDispatcherImpl(nettyGroup, nettyGroup, new HashedWheelTimer());
+        }
+        return sharedDispatcher;
+    }
+
     private static void logout() {
         if (client != null) {
         	try {
@@ -600,7 +569,8 @@ public class TestingNetconfClient implements Closeable {
         try {
             NetconfMessage getConf = GetMessage();
             Future<NetconfMessage> resp = client.sendRequest(getConf);
-            System.out.println(resp.get().toString());
+            NetconfReplyParser.writeTo(resp.get(), System.out);
+            System.out.println();
         } catch (Exception e) {
             System.out.println("Error in Get operation: " + e.getMessage());
         }
@@ -610,7 +580,8 @@ public class TestingNetconfClient implements Closeable {
         try {
             NetconfMessage getConfFilter = GetConfigMessage();
             Future<NetconfMessage> respFilter = client.sendRequest(getConfFilter);
-            System.out.println(respFilter.get().toString());
+            NetconfReplyParser.writeTo(respFilter.get(), System.out);
+            System.out.println();
         } catch (Exception e) {
             System.out.println("Error in Get with Filter: " + e.getMessage());
         }
@@ -620,7 +591,8 @@ public class TestingNetconfClient implements Closeable {
         try {
             NetconfMessage editConf = editConfigMessage();
             Future<NetconfMessage> respEdit = client.sendRequest(editConf);
-            System.out.println(respEdit.get().toString());
+            NetconfReplyParser.writeTo(respEdit.get(), System.out);
+            System.out.println();
         } catch (Exception e) {
             System.out.println("Error in Edit Config: " + e.getMessage());
         }
@@ -630,7 +602,8 @@ public class TestingNetconfClient implements Closeable {
         try {
             NetconfMessage addConf = addConfigMessage();
             Future<NetconfMessage> respAdd = client.sendRequest(addConf);
-            System.out.println(respAdd.get().toString());
+            NetconfReplyParser.writeTo(respAdd.get(), System.out);
+            System.out.println();
         } catch (Exception e) {
             System.out.println("Error in Add Config: " + e.getMessage());
         }
@@ -640,20 +613,35 @@ public class TestingNetconfClient implements Closeable {
         try {
             NetconfMessage deleteConf = deleteConfigMessage();
             Future<NetconfMessage> respDelete = client.sendRequest(deleteConf);
-            System.out.println(respDelete.get().toString());
+            NetconfReplyParser.writeTo(respDelete.get(), System.out);
+            System.out.println();
         } catch (Exception e) {
             System.out.println("Error in Delete Config: " + e.getMessage());
         }
     }
 
-    private static NetconfClientConfiguration getClientConfig(final String host, final int port, final boolean ssh,
+    static NetconfClientConfiguration getClientConfig(final String host, final int port, final boolean ssh,
             final Optional<? extends AuthenticationHandler> maybeAuthHandler) throws Exception {
+        return getClientConfig(host, port, ssh, maybeAuthHandler, new SimpleNetconfClientSessionListener());
+    }
+
+    static NetconfClientConfiguration getClientConfig(final String host, final int port, final boolean ssh,
+            final Optional<? extends AuthenticationHandler> maybeAuthHandler,
+            final NetconfClientSessionListener listener) throws Exception {
+        return getClientConfig(host, port, ssh, maybeAuthHandler, listener,
+                new NeverReconnectStrategy(GlobalEventExecutor.INSTANCE,
+                        NetconfClientConfigurationBuilder.DEFAULT_CONNECTION_TIMEOUT_MILLIS));
+    }
+
+    //the strategy decides whether and when a failed connect is retried
+    static NetconfClientConfiguration getClientConfig(final String host, final int port, final boolean ssh,
+            final Optional<? extends AuthenticationHandler> maybeAuthHandler,
+            final NetconfClientSessionListener listener, final ReconnectStrategy reconnectStrategy) throws Exception {
         InetSocketAddress netconfAddress = new InetSocketAddress(InetAddress.getByName(host), port);
         final NetconfClientConfigurationBuilder b = NetconfClientConfigurationBuilder.create();
         b.withAddress(netconfAddress);
-        b.withSessionListener(new SimpleNetconfClientSessionListener());
-        b.withReconnectStrategy(new NeverReconnectStrategy(GlobalEventExecutor.INSTANCE,
-                NetconfClientConfigurationBuilder.DEFAULT_CONNECTION_TIMEOUT_MILLIS));
+        b.withSessionListener(listener);
+        b.withReconnectStrategy(reconnectStrategy);
 
         if (ssh) {
             b.withProtocol(NetconfClientProtocol.SSH);
@@ -0,0 +1,304 @@
+package com.example.netconf;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.example.dto.TransactionResult;
+import com.example.dto.TransactionResult.DeviceResult;
+
+/**
+ * Applies one change across a group of devices as a single transaction, each
+ * phase running on all devices in parallel:
+ * <ol>
+ * <li>lock running (and candidate), edit candidate, validate;</li>
+ * <li>commit, as a confirmed commit when every device supports it;</li>
+ * <li>confirm.</li>
+ * </ol>
+ * If any device fails a phase, the others are rolled back: uncommitted
+ * candidates are discarded and pending confirmed commits cancelled. Devices
+ * without {@code :candidate} get the edit on running in the commit phase; a
+ * later failure elsewhere leaves them {@code IN_DOUBT}, as does any device
+ * whose plain commit already went through, or whose commit or edit of running
+ * was sent but never answered.
+ */
+@Component
+public class TransactionCoordinator implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(TransactionCoordinator.class);
+
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCache getConfigCache;
+	private final TransactionProperties properties;
+	private final NetconfMetrics metrics;
+	//every device of a phase waits on the network at once
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	public TransactionCoordinator(NetconfSessionPool sessionPool, GetConfigCache getConfigCache,
+			TransactionProperties properties, NetconfMetrics metrics) {
+		this.sessionPool = sessionPool;
+		this.getConfigCache = getConfigCache;
+		this.properties = properties;
+		this.metrics = metrics;
+	}
+
+	public TransactionProperties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Runs the transaction and blocks until every device is committed or
+	 * rolled back and its session returned.
+	 *
+	 * @param configs edit-config payload per device
+	 * @throws IllegalArgumentException if a payload is not well-formed XML
+	 */
+	public TransactionResult execute(Map<NetconfDeviceKey, String> configs, boolean confirmed)
+			throws InterruptedException {
+		long start = System.nanoTime();
+		TransactionResult result = new TransactionResult();
+		result.setId(UUID.randomUUID().toString());
+		List<Participant> participants = new ArrayList<>();
+		configs.forEach((device, config) -> participants.add(new Participant(device, config)));
+		boolean committed = false;
+		try {
+			committed = phase("lock", participants, Participant::prepare);
+			boolean confirm = confirmed && participants.stream().allMatch(Participant::confirmable);
+			Duration confirmTimeout = confirm ? properties.getConfirmTimeout() : null;
+			committed = committed && phase("commit", participants, participant -> participant.commit(confirmTimeout));
+			committed = committed && (!confirm || phase("confirm", participants, Participant::confirm));
+			if (!committed) {
+				phase("rollback", participants, Participant::rollback);
+			}
+		} finally {
+			for (Participant participant : participants) {
+				participant.finish();
+				getConfigCache.invalidate(participant.device, null);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		for (Participant participant : participants) {
+			DeviceResult device = participant.result;
+			if (device.getStatus() == null) {
+				device.setStatus(committed ? TransactionResult.Status.COMMITTED : TransactionResult.Status.ROLLED_BACK);
+				device.setPhase(null);
+			}
+			result.getDevices().add(device);
+			metrics.operationCompleted(participant.device.toString(), "transaction",
+					device.getStatus().name().toLowerCase(Locale.ROOT), elapsed);
+		}
+		result.setCommitted(committed);
+		result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsed));
+		logger.info("Transaction {} on {} devices {} in {} ms", result.getId(), participants.size(),
+				committed ? "committed" : "rolled back", result.getElapsedMs());
+		return result;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	@FunctionalInterface
+	private interface Step {
+		void run(Participant participant) throws Exception;
+	}
+
+	//runs the step on every participant still in good standing; true when none failed.
+	//a participant that failed or timed out is left alone, its session is closed in finish
+	private boolean phase(String name, List<Participant> participants, Step step) throws InterruptedException {
+		List<Participant> active = participants.stream()
+				.filter(participant -> "lock".equals(name) || participant.session != null && !participant.broken)
+				.toList();
+		List<Future<?>> futures = new ArrayList<>(active.size());
+		for (Participant participant : active) {
+			futures.add(executor.submit(() -> {
+				step.run(participant);
+				return null;
+			}));
+		}
+		long deadline = System.nanoTime() + properties.getPhaseTimeout().toNanos();
+		boolean ok = true;
+		for (int i = 0; i < active.size(); i++) {
+			Participant participant = active.get(i);
+			try {
+				futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				futures.get(i).cancel(true);
+				ok = participant.failed("Timed out after " + properties.getPhaseTimeout().toMillis() + " ms");
+			} catch (ExecutionException e) {
+				ok = participant.failed(e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				futures.forEach(future -> future.cancel(true));
+				throw e;
+			}
+		}
+		return ok;
+	}
+
+	private final class Participant {
+		private final NetconfDeviceKey device;
+		//parsed once, written for the candidate or for running
+		private final NetconfRpcEncoder.RpcBody config;
+		private final DeviceResult result;
+		//also read by the coordinating thread after a step timed out
+		private volatile TestingNetconfClient session;
+		private DeviceCapabilities capabilities;
+		private boolean candidate;
+		private boolean lockedRunning;
+		private boolean lockedCandidate;
+		private boolean pendingConfirm;
+		//written by the step, read by the coordinating thread when the step times out
+		private volatile boolean applied;
+		private volatile boolean unanswered;
+		private volatile boolean broken;
+
+		Participant(NetconfDeviceKey device, String config) {
+			this.device = device;
+			this.config = NetconfRpcEncoder.fragment(config);
+			this.result = new DeviceResult(device.toString());
+		}
+
+		//locks are held per session, so the participant keeps one session for the whole transaction
+		void prepare() throws Exception {
+			result.setPhase("lock");
+			session = sessionPool.borrow(device);
+			capabilities = sessionPool.capabilities(session);
+			candidate = capabilities.supports(NetconfFeature.CANDIDATE);
+			result.setMode(candidate ? "candidate" : "running");
+			if (!candidate && !properties.isAllowRunning()) {
+				throw new IllegalStateException(device + " has no candidate datastore");
+			}
+			rpc(NetconfRpcEncoder.lock("running"));
+			lockedRunning = true;
+			if (!candidate) {
+				return;
+			}
+			rpc(NetconfRpcEncoder.lock("candidate"));
+			lockedCandidate = true;
+			//start from running, not from what an earlier session left behind
+			rpc(NetconfRpcEncoder.discardChanges());
+			result.setPhase("edit");
+			rpc(NetconfRpcEncoder.editConfig("candidate", config));
+			if (capabilities.supports(NetconfFeature.VALIDATE)) {
+				result.setPhase("validate");
+				rpc(NetconfRpcEncoder.validate("candidate"));
+			}
+		}
+
+		boolean confirmable() {
+			return candidate && capabilities.supports(NetconfFeature.CONFIRMED_COMMIT);
+		}
+
+		void commit(Duration confirmTimeout) throws Exception {
+			result.setPhase("commit");
+			if (candidate && confirmTimeout != null) {
+				//reverted by closing the session if its answer is lost
+				rpc(NetconfRpcEncoder.commit(confirmTimeout));
+				pendingConfirm = true;
+			} else if (candidate) {
+				apply(NetconfRpcEncoder.commit(null));
+			} else {
+				String errorOption = capabilities.supports(NetconfFeature.ROLLBACK_ON_ERROR) ? "rollback-on-error" : null;
+				apply(NetconfRpcEncoder.editConfig("running", errorOption, config));
+			}
+		}
+
+		void confirm() throws Exception {
+			result.setPhase("confirm");
+			apply(NetconfRpcEncoder.commit(null));
+			pendingConfirm = false;
+		}
+
+		//a pending confirmed commit on :confirmed-commit:1.0 is reverted by closing the session in finish
+		void rollback() throws Exception {
+			if (pendingConfirm && capabilities.supports(NetconfFeature.CONFIRMED_COMMIT_1_1)) {
+				rpc(NetconfRpcEncoder.cancelCommit());
+				pendingConfirm = false;
+			}
+			if (lockedCandidate && !pendingConfirm) {
+				rpc(NetconfRpcEncoder.discardChanges());
+			}
+			if (applied) {
+				result.setStatus(TransactionResult.Status.IN_DOUBT);
+				result.setError("Already committed, not rolled back");
+			}
+		}
+
+		void finish() {
+			if (session == null) {
+				return;
+			}
+			if (broken || pendingConfirm) {
+				//closing the session releases its locks and reverts an unconfirmed commit
+				sessionPool.invalidate(device, session);
+				session = null;
+				return;
+			}
+			try {
+				if (lockedCandidate) {
+					rpc(NetconfRpcEncoder.unlock("candidate"));
+				}
+				if (lockedRunning) {
+					rpc(NetconfRpcEncoder.unlock("running"));
+				}
+				sessionPool.release(device, session);
+			} catch (Exception e) {
+				logger.warn("Unlocking {} after transaction failed: {}", device, e.getMessage());
+				sessionPool.invalidate(device, session);
+			}
+			session = null;
+		}
+
+		boolean failed(String error) {
+			broken = true;
+			if (result.getStatus() == null) {
+				boolean inDoubt = applied || unanswered;
+				result.setStatus(inDoubt ? TransactionResult.Status.IN_DOUBT : TransactionResult.Status.FAILED);
+				result.setError(unanswered ? error + ", the device may have applied it" : error);
+			}
+			logger.warn("Transaction step {} on {} failed: {}", result.getPhase(), device, error);
+			return false;
+		}
+
+		//a change the device keeps once it has it: until the reply says otherwise, it may have been applied
+		private void apply(NetconfRpcEncoder.RpcBody body) throws Exception {
+			unanswered = true;
+			NetconfMessage reply = send(body);
+			unanswered = false;
+			check(reply);
+			applied = true;
+		}
+
+		private void rpc(NetconfRpcEncoder.RpcBody body) throws Exception {
+			check(send(body));
+		}
+
+		private NetconfMessage send(NetconfRpcEncoder.RpcBody body) throws Exception {
+			return session.sendMessage(NetconfRpcEncoder.toMessage(null, body),
+					(int) properties.getPhaseTimeout().toMillis());
+		}
+
+		private void check(NetconfMessage reply) {
+			if (NetconfReplyParser.hasError(reply)) {
+				throw new IllegalStateException(NetconfReplyParser.rpcErrors(reply).stream().map(RpcError::toString)
+						.collect(Collectors.joining("; ")));
+			}
+		}
+	}
+}
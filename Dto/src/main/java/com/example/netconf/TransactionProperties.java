@@ -0,0 +1,25 @@
+package com.example.netconf;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "netconf.transaction")
+public class TransactionProperties {
+	//use confirmed-commit where every device supports it, so a failure anywhere reverts them all
+	private boolean confirmed = true;
+	//how long devices wait for the confirming commit before reverting on their own
+	private Duration confirmTimeout = Duration.ofSeconds(60);
+	//each phase (lock and edit, commit, confirm) across all devices of the transaction
+	private Duration phaseTimeout = Duration.ofSeconds(30);
+	//devices without :candidate get the edit on running in the commit phase; false rejects them
+	private boolean allowRunning = true;
+	private int maxDevices = 1000;
+}
@@ -0,0 +1,102 @@
+package com.example.netconf;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Shared StAX factories and event copying for the encoder and reply parser.
+ */
+final class XmlStreams {
+
+	static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+	//declares whatever namespaces a copied subtree needs
+	static final XMLOutputFactory REPAIRING_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+
+	static {
+		REPAIRING_OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private XmlStreams() {
+	}
+
+	static XMLStreamReader newReader(InputStream in) throws XMLStreamException {
+		return INPUT_FACTORY.createXMLStreamReader(in);
+	}
+
+	static XMLStreamReader newReader(Reader in) throws XMLStreamException {
+		return INPUT_FACTORY.createXMLStreamReader(in);
+	}
+
+	//copies the element the reader is positioned on, with its namespace declarations and attributes
+	static void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+		writer.writeStartElement(nullToEmpty(reader.getPrefix()), reader.getLocalName(),
+				nullToEmpty(reader.getNamespaceURI()));
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			if (prefix == null || prefix.isEmpty()) {
+				writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+			} else {
+				writer.writeNamespace(prefix, reader.getNamespaceURI(i));
+			}
+		}
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attributeNamespace = reader.getAttributeNamespace(i);
+			if (attributeNamespace == null || attributeNamespace.isEmpty()) {
+				writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+			} else {
+				writer.writeAttribute(nullToEmpty(reader.getAttributePrefix(i)), attributeNamespace,
+						reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+			}
+		}
+	}
+
+	//the same copy as a writer call, for an element written more than once
+	static NetconfRpcEncoder.RpcBody startElement(XMLStreamReader reader) {
+		String prefix = nullToEmpty(reader.getPrefix());
+		String localName = reader.getLocalName();
+		String namespace = nullToEmpty(reader.getNamespaceURI());
+		//prefix and URI of each declaration; prefix, namespace, local name and value of each attribute
+		String[] declarations = new String[2 * reader.getNamespaceCount()];
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			declarations[2 * i] = nullToEmpty(reader.getNamespacePrefix(i));
+			declarations[2 * i + 1] = reader.getNamespaceURI(i);
+		}
+		String[] attributes = new String[4 * reader.getAttributeCount()];
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			attributes[4 * i] = nullToEmpty(reader.getAttributePrefix(i));
+			attributes[4 * i + 1] = nullToEmpty(reader.getAttributeNamespace(i));
+			attributes[4 * i + 2] = reader.getAttributeLocalName(i);
+			attributes[4 * i + 3] = reader.getAttributeValue(i);
+		}
+		return writer -> {
+			writer.writeStartElement(prefix, localName, namespace);
+			for (int i = 0; i < declarations.length; i += 2) {
+				if (declarations[i].isEmpty()) {
+					writer.writeDefaultNamespace(declarations[i + 1]);
+				} else {
+					writer.writeNamespace(declarations[i], declarations[i + 1]);
+				}
+			}
+			for (int i = 0; i < attributes.length; i += 4) {
+				if (attributes[i + 1].isEmpty()) {
+					writer.writeAttribute(attributes[i + 2], attributes[i + 3]);
+				} else {
+					writer.writeAttribute(attributes[i], attributes[i + 1], attributes[i + 2], attributes[i + 3]);
+				}
+			}
+		};
+	}
+
+	static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+}
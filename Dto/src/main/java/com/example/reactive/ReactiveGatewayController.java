@@ -0,0 +1,185 @@
+package com.example.reactive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.example.controller.GatewayOperations;
+import com.example.dto.LoginRequest;
+import com.example.dto.LogoutRequest;
+import com.example.netconf.GetConfigCache;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfMetrics;
+import com.example.netconf.NetconfReplyParser;
+import com.example.netconf.NetconfSessionPool;
+import com.example.session.LoginService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The {@code AuthController} endpoints on WebFlux, for running the gateway
+ * with {@code spring.main.web-application-type=reactive} (profile
+ * {@code reactive}). No thread waits for a device: requests go out through
+ * {@link NetconfSessionPool#executeAsync} and the reply is serialized on a
+ * virtual thread into buffers that are flushed to the client as they fill.
+ */
+@RestController
+@RequestMapping("/")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveGatewayController implements DisposableBean {
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCache getConfigCache;
+	private final NetconfMetrics metrics;
+	private final LoginService loginService;
+	private final GatewayOperations gateway;
+	//serializing a DOM to bytes blocks on the output buffers and a login on connecting, so both stay off the event loop
+	private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+
+	public ReactiveGatewayController(NetconfSessionPool sessionPool, GetConfigCache getConfigCache,
+			NetconfMetrics metrics, LoginService loginService, GatewayOperations gateway) {
+		this.sessionPool = sessionPool;
+		this.getConfigCache = getConfigCache;
+		this.metrics = metrics;
+		this.loginService = loginService;
+		this.gateway = gateway;
+	}
+
+	@PostMapping("/login")
+	public Mono<ResponseEntity<Map<String, String>>> login(@RequestBody LoginRequest request) {
+		return Mono.fromCallable(() -> ResponseEntity.ok(loginService.login(request)))
+				.subscribeOn(Schedulers.fromExecutorService(writers))
+				.onErrorResume(IllegalStateException.class, e -> Mono.just(
+						ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(loginService.loginFailed(request, e))));
+	}
+
+	@PostMapping("/logout")
+	public String logout(@RequestBody LogoutRequest request) {
+		return loginService.logout(request.getSessionId());
+	}
+
+	@PostMapping(value = "/get", produces = MediaType.APPLICATION_XML_VALUE)
+	public Mono<ResponseEntity<Flux<DataBuffer>>> get(@RequestBody Map<String, String> request,
+			ServerWebExchange exchange) {
+		return process(exchange, request, "get");
+	}
+
+	@PostMapping(value = "/get-config", produces = MediaType.APPLICATION_XML_VALUE)
+	public Mono<ResponseEntity<Flux<DataBuffer>>> getConfig(@RequestBody Map<String, String> request,
+			ServerWebExchange exchange) {
+		return process(exchange, request, "get-config");
+	}
+
+	@PostMapping(value = "/edit-config", produces = MediaType.APPLICATION_XML_VALUE)
+	public Mono<ResponseEntity<Flux<DataBuffer>>> editConfig(@RequestBody Map<String, String> request,
+			ServerWebExchange exchange) {
+		return process(exchange, request, "edit-config");
+	}
+
+	@PostMapping(value = "/rpc/{name}", produces = MediaType.APPLICATION_XML_VALUE)
+	public Mono<ResponseEntity<Flux<DataBuffer>>> rpc(@PathVariable String name,
+			@RequestBody Map<String, String> request, ServerWebExchange exchange) {
+		return gateway.template(name, request).map(operation -> process(exchange, request, operation))
+				.orElseGet(() -> Mono.just(text(exchange.getResponse().bufferFactory(), HttpStatus.NOT_FOUND,
+						"Unknown rpc template " + name)));
+	}
+
+	@Override
+	public void destroy() {
+		writers.shutdownNow();
+	}
+
+	private Mono<ResponseEntity<Flux<DataBuffer>>> process(ServerWebExchange exchange, Map<String, String> request,
+			String operation) {
+		return process(exchange, request, gateway.operation(operation, request));
+	}
+
+	private Mono<ResponseEntity<Flux<DataBuffer>>> process(ServerWebExchange exchange, Map<String, String> request,
+			GatewayOperations.Operation operation) {
+		DataBufferFactory buffers = exchange.getResponse().bufferFactory();
+		String messageId = request.get("messageId");
+		NetconfDeviceKey device = gateway.device(request.get("sessionId"), operation.name()).orElse(null);
+		if (device == null) {
+			return Mono.just(text(buffers, HttpStatus.BAD_REQUEST, "Invalid session"));
+		}
+		long start = System.nanoTime();
+		CompletableFuture<Reply> reply;
+		try {
+			if ("get-config".equals(operation.name())) {
+				reply = getConfigCache.getConfigAsync(device, request).thenApply(cached -> new Reply(
+						cached.error() ? NetconfMetrics.RPC_ERROR : NetconfMetrics.OK, out -> cached.writeTo(out, messageId)));
+			} else {
+				reply = sessionPool.executeAsync(device, operation.rpc().get())
+						.whenComplete((message, failure) -> gateway.sent(device, operation))
+						.thenApply(message -> new Reply(NetconfMetrics.outcome(message, null),
+								out -> NetconfReplyParser.writeTo(message, out)));
+			}
+		} catch (IllegalArgumentException e) {
+			reply = CompletableFuture.failedFuture(e);
+		}
+		return Mono.fromFuture(reply).map(ready -> {
+			metrics.operationCompleted(device.toString(), operation.name(), ready.outcome(), System.nanoTime() - start);
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_XML).body(stream(buffers, device, ready));
+		}).onErrorResume(failure -> Mono.just(failed(buffers, device, operation.name(), start, failure)));
+	}
+
+	private Flux<DataBuffer> stream(DataBufferFactory buffers, NetconfDeviceKey device, Reply reply) {
+		return Flux.from(DataBufferUtils.outputStreamPublisher(out -> {
+			try (OutputStream counted = metrics.countReceived(device.toString(), out)) {
+				reply.writer().writeTo(counted);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, buffers, writers));
+	}
+
+	private ResponseEntity<Flux<DataBuffer>> failed(DataBufferFactory buffers, NetconfDeviceKey device,
+			String operation, long start, Throwable cause) {
+		GatewayOperations.Failure failure = gateway.failure(device, operation, cause);
+		metrics.operationCompleted(device.toString(), operation, failure.outcome(), System.nanoTime() - start);
+		ResponseEntity.BodyBuilder response = ResponseEntity.status(failure.status());
+		if (failure.retryLater()) {
+			response.header(HttpHeaders.RETRY_AFTER, "1");
+		}
+		return response.body(Flux.just(bytes(buffers, failure.message())));
+	}
+
+	private static ResponseEntity<Flux<DataBuffer>> text(DataBufferFactory buffers, HttpStatus status,
+			String message) {
+		return ResponseEntity.status(status).body(Flux.just(bytes(buffers, message)));
+	}
+
+	private static DataBuffer bytes(DataBufferFactory buffers, String message) {
+		return buffers.wrap(String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+	}
+
+	@FunctionalInterface
+	private interface ReplyWriter {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	private record Reply(String outcome, ReplyWriter writer) {
+	}
+}
@@ -0,0 +1,231 @@
+package com.example.session;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.dto.LoginData;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link ConcurrentHashMap} backed session store with idle expiry, a background
+ * reaper and a size cap. Lookups never take a lock; when the cap is exceeded
+ * the least recently used of a small random sample is evicted.
+ */
+@Component
+public class InMemorySessionStore implements SessionStore, DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(InMemorySessionStore.class);
+
+	static final int EVICTION_SAMPLE = 16;
+
+	private final ConcurrentHashMap<String, Entry> sessions = new ConcurrentHashMap<>();
+	private final long idleTtlNanos;
+	private final int maxSessions;
+	private final LongSupplier clock;
+	private final ScheduledExecutorService reaper;
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final List<Consumer<LoginData>> removalListeners = new CopyOnWriteArrayList<>();
+
+	@Autowired
+	public InMemorySessionStore(SessionStoreProperties properties, MeterRegistry registry) {
+		this(properties, System::nanoTime);
+		registerMeters(registry);
+		long interval = properties.getReapInterval().toMillis();
+		reaper.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	//package-private for tests that drive the clock and reaper by hand
+	InMemorySessionStore(SessionStoreProperties properties, LongSupplier clock) {
+		this.idleTtlNanos = properties.getIdleTtl().toNanos();
+		this.maxSessions = properties.getMaxSessions();
+		this.clock = clock;
+		this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "session-reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void put(String sessionId, LoginData loginData) {
+		sessions.put(sessionId, new Entry(loginData, clock.getAsLong()));
+		while (sessions.size() > maxSessions) {
+			evictOne();
+		}
+	}
+
+	@Override
+	public Optional<LoginData> get(String sessionId) {
+		lookups.increment();
+		if (sessionId == null) {
+			return Optional.empty();
+		}
+		Entry entry = sessions.get(sessionId);
+		if (entry == null) {
+			return Optional.empty();
+		}
+		long now = clock.getAsLong();
+		if (entry.isExpired(now, idleTtlNanos)) {
+			if (sessions.remove(sessionId, entry)) {
+				expirations.increment();
+				removed(entry);
+			}
+			return Optional.empty();
+		}
+		entry.lastAccess = now;
+		hits.increment();
+		return Optional.of(entry.loginData);
+	}
+
+	@Override
+	public Optional<LoginData> remove(String sessionId) {
+		if (sessionId == null) {
+			return Optional.empty();
+		}
+		Entry entry = sessions.remove(sessionId);
+		if (entry == null) {
+			return Optional.empty();
+		}
+		removed(entry);
+		return Optional.of(entry.loginData);
+	}
+
+	@Override
+	public int size() {
+		return sessions.size();
+	}
+
+	@Override
+	public SessionStoreStats stats() {
+		return new SessionStoreStats(sessions.size(), lookups.sum(), hits.sum(), expirations.sum(), evictions.sum());
+	}
+
+	//read from the adders on scrape, nothing is counted twice
+	void registerMeters(MeterRegistry registry) {
+		Gauge.builder("sessions.store.size", sessions, Map::size).register(registry);
+		FunctionCounter.builder("sessions.store.lookups", lookups, LongAdder::sum).register(registry);
+		FunctionCounter.builder("sessions.store.hits", hits, LongAdder::sum).register(registry);
+		FunctionCounter.builder("sessions.store.expirations", expirations, LongAdder::sum).register(registry);
+		FunctionCounter.builder("sessions.store.evictions", evictions, LongAdder::sum).register(registry);
+	}
+
+	@Override
+	public void addRemovalListener(Consumer<LoginData> listener) {
+		removalListeners.add(listener);
+	}
+
+	void reap() {
+		long now = clock.getAsLong();
+		int reaped = 0;
+		for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+			if (e.getValue().isExpired(now, idleTtlNanos) && sessions.remove(e.getKey(), e.getValue())) {
+				removed(e.getValue());
+				reaped++;
+			}
+		}
+		if (reaped > 0) {
+			expirations.add(reaped);
+			logger.info("Expired {} idle sessions", reaped);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		reaper.shutdownNow();
+	}
+
+	//the least recently used of a sample taken at random places in the table; always starting at
+	//the first bucket would keep evicting sessions that hash there, however recently they were used
+	private void evictOne() {
+		Map.Entry<String, Entry> oldest = null;
+		if (sessions.size() <= EVICTION_SAMPLE) {
+			for (Map.Entry<String, Entry> candidate : sessions.entrySet()) {
+				oldest = older(oldest, candidate);
+			}
+		} else {
+			int sampled = 0;
+			//a place may hold no session, give up after as many misses as the sample is large
+			for (int attempt = 0; sampled < EVICTION_SAMPLE && attempt < 2 * EVICTION_SAMPLE; attempt++) {
+				Iterator<Map.Entry<String, Entry>> it = Spliterators.iterator(randomPlace());
+				if (it.hasNext()) {
+					oldest = older(oldest, it.next());
+					sampled++;
+				}
+			}
+		}
+		//an empty sample leaves the size over the cap, and put samples again
+		if (oldest != null && sessions.remove(oldest.getKey(), oldest.getValue())) {
+			evictions.increment();
+			removed(oldest.getValue());
+		}
+	}
+
+	private static Map.Entry<String, Entry> older(Map.Entry<String, Entry> oldest, Map.Entry<String, Entry> candidate) {
+		return oldest == null || candidate.getValue().lastAccess - oldest.getValue().lastAccess < 0 ? candidate : oldest;
+	}
+
+	//each split halves the bucket range, a random half is kept until about one session is left in it
+	private Spliterator<Map.Entry<String, Entry>> randomPlace() {
+		Spliterator<Map.Entry<String, Entry>> part = sessions.entrySet().spliterator();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (part.estimateSize() > 1) {
+			Spliterator<Map.Entry<String, Entry>> prefix = part.trySplit();
+			if (prefix == null) {
+				break;
+			}
+			if (random.nextBoolean()) {
+				part = prefix;
+			}
+		}
+		return part;
+	}
+
+	//only the thread whose remove succeeded gets here, so each session is reported once
+	private void removed(Entry entry) {
+		for (Consumer<LoginData> listener : removalListeners) {
+			try {
+				listener.accept(entry.loginData);
+			} catch (RuntimeException e) {
+				logger.warn("Session removal listener failed", e);
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final LoginData loginData;
+		private volatile long lastAccess;
+
+		Entry(LoginData loginData, long now) {
+			this.loginData = loginData;
+			this.lastAccess = now;
+		}
+
+		boolean isExpired(long now, long ttlNanos) {
+			return now - lastAccess > ttlNanos;
+		}
+	}
+}
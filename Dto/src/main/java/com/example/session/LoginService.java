@@ -0,0 +1,83 @@
+package com.example.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.dto.LoginData;
+import com.example.dto.LoginRequest;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfSessionPool;
+
+/**
+ * REST logins, shared by the MVC and WebFlux controllers. Every login holds a
+ * registration of its device's credentials with the {@link NetconfSessionPool};
+ * it is given up when the session leaves the store, so a device's credentials
+ * go with its last session, whether logged out, expired or evicted.
+ */
+@Component
+public class LoginService {
+	private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+
+	private final SessionStore activeSessions;
+	private final NetconfSessionPool sessionPool;
+
+	public LoginService(SessionStore activeSessions, NetconfSessionPool sessionPool) {
+		this.activeSessions = activeSessions;
+		this.sessionPool = sessionPool;
+		activeSessions.addRemovalListener(loginData -> sessionPool.unregister(deviceKey(loginData)));
+	}
+
+	/**
+	 * Logs in once the device has taken the credentials: a session is opened
+	 * with them unless they are the ones its pooled sessions were opened with.
+	 *
+	 * @throws IllegalStateException if the device could not be reached or refused them
+	 */
+	public Map<String, String> login(LoginRequest request) throws InterruptedException {
+		String sessionId = UUID.randomUUID().toString();
+		LoginData loginData = new LoginData(request.getUsername(), "LOGIN", request.getIp(), request.getPort(),
+				sessionId);
+		//registered first, the removal listener may run as soon as the session is in the store
+		sessionPool.register(deviceKey(loginData), request.getPassword());
+		activeSessions.put(sessionId, loginData);
+		logger.info("User {} logged in with session ID {}", request.getUsername(), sessionId);
+
+		Map<String, String> response = new HashMap<>();
+		response.put("username", request.getUsername());
+		response.put("status", "LOGIN SUCCESS");
+		response.put("ip", request.getIp());
+		response.put("port", String.valueOf(request.getPort()));
+		response.put("sessionId", sessionId);
+		return response;
+	}
+
+	//the response to a login the device did not take
+	public Map<String, String> loginFailed(LoginRequest request, RuntimeException failure) {
+		logger.warn("Login of {} to {}:{} failed: {}", request.getUsername(), request.getIp(), request.getPort(),
+				failure.getMessage());
+		Map<String, String> response = new HashMap<>();
+		response.put("username", request.getUsername());
+		response.put("status", "LOGIN FAILED");
+		response.put("error", failure.getMessage());
+		return response;
+	}
+
+	public String logout(String sessionId) {
+		return activeSessions.remove(sessionId).isEmpty() ? "Invalid session" : "Logout successful";
+	}
+
+	//empty when the session is unknown or has expired
+	public Optional<NetconfDeviceKey> device(String sessionId) {
+		return activeSessions.get(sessionId).map(this::deviceKey);
+	}
+
+	public NetconfDeviceKey deviceKey(LoginData loginData) {
+		return sessionPool.deviceKey(loginData.getIp(), loginData.getPort(), loginData.getUsername());
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.session;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.example.dto.LoginData;
+
+/**
+ * Holds the REST logins between requests. Implementations must be safe for
+ * concurrent use by request threads.
+ */
+public interface SessionStore {
+
+	void put(String sessionId, LoginData loginData);
+
+	//empty when the session is unknown or has expired; a hit refreshes its idle time
+	Optional<LoginData> get(String sessionId);
+
+	Optional<LoginData> remove(String sessionId);
+
+	int size();
+
+	SessionStoreStats stats();
+
+	//called once for every session that leaves the store: removed, expired or evicted
+	void addRemovalListener(Consumer<LoginData> listener);
+}
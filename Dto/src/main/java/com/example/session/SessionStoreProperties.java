@@ -0,0 +1,20 @@
+package com.example.session;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "session.store")
+public class SessionStoreProperties {
+	//sessions unused for this long are dropped
+	private Duration idleTtl = Duration.ofMinutes(30);
+	private Duration reapInterval = Duration.ofMinutes(1);
+	private int maxSessions = 10_000;
+}
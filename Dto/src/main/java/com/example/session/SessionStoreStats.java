@@ -0,0 +1,4 @@
+package com.example.session;
+
+public record SessionStoreStats(int size, long lookups, long hits, long expirations, long evictions) {
+}
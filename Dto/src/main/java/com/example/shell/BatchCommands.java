@@ -0,0 +1,263 @@
+package com.example.shell;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import com.example.dto.BatchResult;
+import com.example.netconf.BatchExecutor;
+import com.example.netconf.BatchTask;
+import com.example.netconf.InventorySweep;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfSessionPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs NETCONF operations from a file or stdin without prompting, for
+ * automation. Operations go through the same {@link BatchExecutor} as
+ * {@code /batch} and results are written as NDJSON in completion order, each
+ * carrying the input line it came from as {@code index}. At most
+ * {@code netconf.batch.max-entries} operations are read ahead of their
+ * results, so files of any length run in bounded memory.
+ *
+ * <pre>
+ * java -jar dto.jar --spring.main.web-application-type=none batch --input ops.csv --output results.ndjson --parallelism 64
+ * </pre>
+ */
+@ShellComponent
+public class BatchCommands {
+	private static final Logger logger = LoggerFactory.getLogger(BatchCommands.class);
+	private static final String STDIO = "-";
+
+	private final NetconfSessionPool sessionPool;
+	private final BatchExecutor batchExecutor;
+	private final InventorySweep inventorySweep;
+	private final ObjectMapper objectMapper;
+
+	public BatchCommands(NetconfSessionPool sessionPool, BatchExecutor batchExecutor, InventorySweep inventorySweep,
+			ObjectMapper objectMapper) {
+		this.sessionPool = sessionPool;
+		this.batchExecutor = batchExecutor;
+		this.inventorySweep = inventorySweep;
+		this.objectMapper = objectMapper;
+	}
+
+	@ShellMethod(key = "batch", value = "Run operations read as JSON lines, CSV or YAML and write NDJSON results.")
+	public String batch(
+			@ShellOption(defaultValue = STDIO, help = "File of operations, - for stdin") String input,
+			@ShellOption(defaultValue = STDIO, help = "File for the results, - for stdout") String output,
+			@ShellOption(defaultValue = "auto", help = "json, csv, yaml or auto (by file extension)") String format,
+			@ShellOption(defaultValue = "0", help = "Operations running at once, 0 for netconf.batch.max-concurrency") int parallelism,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Username for entries without one") String username,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Password for entries without one") String password,
+			@ShellOption(defaultValue = "0", help = "Port for entries without one, 0 for netconf.pool.default-port") int port,
+			@ShellOption(defaultValue = "0", help = "Per operation timeout in ms, 0 for netconf.batch.entry-timeout") long entryTimeoutMs)
+			throws IOException, InterruptedException {
+		BatchInputReader.Format inputFormat = BatchInputReader.Format.of(format, input);
+		Duration entryTimeout = entryTimeoutMs > 0 ? Duration.ofMillis(entryTimeoutMs)
+				: batchExecutor.getProperties().getEntryTimeout();
+		int running = parallelism > 0 ? parallelism : batchExecutor.getProperties().getMaxConcurrency();
+		Defaults defaults = new Defaults(username, password, port);
+		Map<BatchResult.Status, Integer> counts = new EnumMap<>(BatchResult.Status.class);
+		long start = System.nanoTime();
+		Map<NetconfDeviceKey, CompletableFuture<Void>> logins = new HashMap<>();
+		try (BatchInputReader entries = new BatchInputReader(reader(input), inputFormat, objectMapper);
+				Writer results = writer(output)) {
+			Consumer<BatchResult> onResult = result -> {
+				counts.merge(result.getStatus(), 1, Integer::sum);
+				writeLine(results, result);
+			};
+			//a sliding window: the next entry is read as soon as any running one reports
+			BatchExecutor.Run run = batchExecutor.open(entryTimeout, batchExecutor.getProperties().getMaxEntries(),
+					running, onResult);
+			while (entries.hasNext()) {
+				BatchInputReader.Entry entry = entries.next();
+				String error = entry.error();
+				NetconfDeviceKey device = null;
+				if (error == null) {
+					device = device(entry, defaults, logins);
+					error = device == null ? "No ip, username or password for the device" : null;
+				}
+				if (error != null) {
+					onResult.accept(rejected(entry, error));
+				} else {
+					run.submit(new BatchTask(entry.line(), device, entry.operation(), entry.messageId(), entry.payload()),
+							logins.get(device));
+				}
+			}
+			run.finish();
+		} finally {
+			logout(logins);
+		}
+		String summary = counts.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue())
+				.collect(Collectors.joining(" "));
+		logger.info("Batch from {} finished in {} ms: {}", input, Duration.ofNanos(System.nanoTime() - start).toMillis(),
+				summary);
+		//results own stdout, the summary only goes to the terminal when they are written to a file
+		return STDIO.equals(output) ? null : summary;
+	}
+
+	/**
+	 * Collects every device in the list into {@code --output}, a directory of
+	 * gzip NDJSON results and a checkpoint. Running the same command again
+	 * after a crash or Ctrl-C skips the devices already written.
+	 */
+	@ShellMethod(key = "sweep", value = "Collect get or get-config from every device in a list, resumable.")
+	public String sweep(
+			@ShellOption(help = "File of devices: ip, port, username, password, optionally operation and filter fields") String input,
+			@ShellOption(help = "Directory for the results and checkpoint") String output,
+			@ShellOption(defaultValue = "auto", help = "json, csv, yaml or auto (by file extension)") String format,
+			@ShellOption(defaultValue = "get-config", help = "get or get-config for devices without an operation") String operation,
+			@ShellOption(defaultValue = "0", help = "Devices collected at once, 0 for netconf.sweep.parallelism") int parallelism,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Username for devices without one") String username,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Password for devices without one") String password,
+			@ShellOption(defaultValue = "0", help = "Port for devices without one, 0 for netconf.pool.default-port") int port)
+			throws IOException, InterruptedException {
+		Path devices = Path.of(input);
+		Defaults defaults = new Defaults(username, password, port);
+		long start = System.nanoTime();
+		InventorySweep.Summary summary;
+		Map<NetconfDeviceKey, CompletableFuture<Void>> logins = new HashMap<>();
+		try (InventorySweep.Run sweep = inventorySweep.open(Path.of(output), digest(devices), parallelism);
+				BatchInputReader entries = new BatchInputReader(Files.newBufferedReader(devices, StandardCharsets.UTF_8),
+						BatchInputReader.Format.of(format, input), objectMapper, operation)) {
+			while (entries.hasNext()) {
+				BatchInputReader.Entry entry = entries.next();
+				if (sweep.isResumed(entry.line())) {
+					continue;
+				}
+				String error = entry.error();
+				NetconfDeviceKey device = null;
+				if (error == null) {
+					device = device(entry, defaults, logins);
+					error = device == null ? "No ip, username or password for the device" : null;
+				}
+				if (error != null) {
+					sweep.reject(rejected(entry, error));
+				} else {
+					sweep.submit(new BatchTask(entry.line(), device, entry.operation(), entry.messageId(), entry.payload()),
+							logins.get(device));
+				}
+			}
+			summary = sweep.finish();
+		} finally {
+			logout(logins);
+		}
+		String result = summary.counts().entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue())
+				.collect(Collectors.joining(" ", "", summary.resumed() > 0 ? " resumed=" + summary.resumed() : ""));
+		logger.info("Sweep of {} into {} finished in {} ms: {}", input, output,
+				Duration.ofNanos(System.nanoTime() - start).toMillis(), result);
+		return result;
+	}
+
+	//logs in the first time a device is seen, later entries may leave the credentials out. Logins run
+	//concurrently, each entry waits for its device's before it is sent
+	private NetconfDeviceKey device(BatchInputReader.Entry entry, Defaults defaults,
+			Map<NetconfDeviceKey, CompletableFuture<Void>> logins) {
+		String username = entry.username() != null ? entry.username() : defaults.username();
+		int port = entry.port() != null ? entry.port() : defaults.port();
+		if (entry.ip() == null || username == null) {
+			return null;
+		}
+		NetconfDeviceKey device = sessionPool.deviceKey(entry.ip(), port, username);
+		String password = entry.password() != null ? entry.password() : defaults.password();
+		if (password != null && !logins.containsKey(device)) {
+			logins.put(device, sessionPool.registerAsync(device, password));
+		}
+		return logins.containsKey(device) ? device : null;
+	}
+
+	//gives back the registration of every login that went through, once the command is done with its devices
+	private void logout(Map<NetconfDeviceKey, CompletableFuture<Void>> logins) {
+		logins.forEach((device, login) -> {
+			try {
+				login.join();
+			} catch (CompletionException | CancellationException e) {
+				return;
+			}
+			sessionPool.unregister(device);
+		});
+	}
+
+	private static BatchResult rejected(BatchInputReader.Entry entry, String error) {
+		BatchResult result = new BatchResult(entry.line(), entry.ip(), entry.operation(), BatchResult.Status.REJECTED);
+		result.setError(error);
+		return result;
+	}
+
+	private void writeLine(Writer results, BatchResult result) {
+		try {
+			results.write(objectMapper.writeValueAsString(result));
+			results.write('\n');
+			results.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//stdin is left open for the shell
+	private static BufferedReader reader(String input) throws IOException {
+		if (STDIO.equals(input)) {
+			return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
+				@Override
+				public void close() {
+				}
+			};
+		}
+		return Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8);
+	}
+
+	//stdout is flushed but never closed
+	private static Writer writer(String output) throws IOException {
+		if (STDIO.equals(output)) {
+			return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+		}
+		return Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8);
+	}
+
+	//a sweep directory is only resumed for the device list it was started with
+	private static String digest(Path file) throws IOException {
+		try (DigestInputStream in = new DigestInputStream(Files.newInputStream(file),
+				MessageDigest.getInstance("SHA-256"))) {
+			in.transferTo(OutputStream.nullOutputStream());
+			return HexFormat.of().formatHex(in.getMessageDigest().digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record Defaults(String username, String password, int port) {
+	}
+}
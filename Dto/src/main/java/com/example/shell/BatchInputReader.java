@@ -0,0 +1,255 @@
+package com.example.shell;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads batch operations one at a time: a JSON object per line, a CSV row per
+ * line after a header row, or YAML documents holding one operation or a list
+ * of them. Blank lines and lines starting with {@code #} are skipped in JSON
+ * and CSV.
+ * <p>
+ * {@code ip}, {@code port}, {@code username}, {@code password},
+ * {@code operation} and {@code messageId} describe the operation; every other
+ * field, and the fields of a nested {@code payload} object, become its
+ * payload. A record that cannot be read is returned with an error instead of
+ * ending the input.
+ */
+final class BatchInputReader implements Iterator<BatchInputReader.Entry>, Closeable {
+
+	enum Format {
+		JSON, CSV, YAML;
+
+		//by file extension; stdin and unknown extensions are read as JSON lines
+		static Format of(String format, String input) {
+			if (format != null && !"auto".equalsIgnoreCase(format)) {
+				return valueOf(format.toUpperCase(Locale.ROOT));
+			}
+			String name = input.toLowerCase(Locale.ROOT);
+			if (name.endsWith(".csv")) {
+				return CSV;
+			}
+			if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+				return YAML;
+			}
+			return JSON;
+		}
+	}
+
+	/**
+	 * One operation; {@code line} is the input line (the record number for
+	 * YAML) and {@code error} is set when the record could not be read.
+	 */
+	record Entry(int line, String ip, Integer port, String username, String password, String operation,
+			String messageId, Map<String, String> payload, String error) {
+
+		static Entry failed(int line, String error) {
+			return new Entry(line, null, null, null, null, null, null, Map.of(), error);
+		}
+	}
+
+	private static final TypeReference<Map<String, Object>> RECORD = new TypeReference<>() {
+	};
+
+	private final BufferedReader reader;
+	private final Format format;
+	private final ObjectMapper objectMapper;
+	//for records without an operation, null to reject them
+	private final String defaultOperation;
+	private final Iterator<Object> documents;
+	private final List<Object> pendingItems = new ArrayList<>();
+	private List<String> header;
+	private int line;
+	private Entry next;
+	//the YAML parser cannot resume after a syntax error
+	private boolean broken;
+
+	BatchInputReader(BufferedReader reader, Format format, ObjectMapper objectMapper) {
+		this(reader, format, objectMapper, null);
+	}
+
+	BatchInputReader(BufferedReader reader, Format format, ObjectMapper objectMapper, String defaultOperation) {
+		this.reader = reader;
+		this.format = format;
+		this.objectMapper = objectMapper;
+		this.defaultOperation = defaultOperation;
+		this.documents = format == Format.YAML
+				? new Yaml(new SafeConstructor(new LoaderOptions())).loadAll(reader).iterator()
+				: null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			next = read();
+		}
+		return next != null;
+	}
+
+	@Override
+	public Entry next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Entry entry = next;
+		next = null;
+		return entry;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private Entry read() {
+		try {
+			return format == Format.YAML ? readYaml() : readLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Entry readLine() throws IOException {
+		String text;
+		while ((text = reader.readLine()) != null) {
+			line++;
+			String trimmed = text.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+				continue;
+			}
+			if (format == Format.JSON) {
+				try {
+					Map<String, Object> record = objectMapper.readValue(trimmed, RECORD);
+					return record == null ? Entry.failed(line, "Expected a JSON object") : entry(line, record);
+				} catch (JsonProcessingException e) {
+					return Entry.failed(line, "Malformed JSON: " + e.getOriginalMessage());
+				}
+			}
+			List<String> fields = csvFields(text);
+			if (header == null) {
+				header = fields;
+				continue;
+			}
+			if (fields.size() > header.size()) {
+				return Entry.failed(line, "Expected at most " + header.size() + " fields, found " + fields.size());
+			}
+			Map<String, Object> record = new LinkedHashMap<>();
+			for (int i = 0; i < fields.size(); i++) {
+				//empty cells are left out, so defaults still apply
+				if (!fields.get(i).isEmpty()) {
+					record.put(header.get(i), fields.get(i));
+				}
+			}
+			return entry(line, record);
+		}
+		return null;
+	}
+
+	private Entry readYaml() {
+		while (pendingItems.isEmpty()) {
+			if (broken) {
+				return null;
+			}
+			Object document;
+			try {
+				if (!documents.hasNext()) {
+					return null;
+				}
+				document = documents.next();
+			} catch (RuntimeException e) {
+				broken = true;
+				return Entry.failed(++line, "Malformed YAML: " + e.getMessage());
+			}
+			if (document instanceof List<?> items) {
+				pendingItems.addAll(items);
+			} else if (document != null) {
+				pendingItems.add(document);
+			}
+		}
+		line++;
+		Object item = pendingItems.remove(0);
+		if (!(item instanceof Map<?, ?> map)) {
+			return Entry.failed(line, "Expected a mapping, found " + item);
+		}
+		Map<String, Object> record = new LinkedHashMap<>();
+		map.forEach((key, value) -> record.put(String.valueOf(key), value));
+		return entry(line, record);
+	}
+
+	private Entry entry(int line, Map<String, Object> record) {
+		Map<String, String> payload = new LinkedHashMap<>();
+		if (record.remove("payload") instanceof Map<?, ?> nested) {
+			nested.forEach((key, value) -> payload.put(String.valueOf(key), text(value)));
+		}
+		String ip = text(record.remove("ip"));
+		String port = text(record.remove("port"));
+		String username = text(record.remove("username"));
+		String password = text(record.remove("password"));
+		String operation = text(record.remove("operation"));
+		if (operation == null) {
+			operation = defaultOperation;
+		}
+		String messageId = text(record.remove("messageId"));
+		record.forEach((key, value) -> payload.put(key, text(value)));
+		if (operation == null || operation.isBlank()) {
+			return Entry.failed(line, "No operation");
+		}
+		Integer portNumber;
+		try {
+			portNumber = port == null || port.isBlank() ? null : Integer.valueOf(port.trim());
+		} catch (NumberFormatException e) {
+			return Entry.failed(line, "Invalid port " + port);
+		}
+		return new Entry(line, ip, portNumber, username, password, operation, messageId, payload, null);
+	}
+
+	private static String text(Object value) {
+		return value == null ? null : String.valueOf(value);
+	}
+
+	//RFC 4180 fields on one line: comma separated, optionally quoted with "" for a quote
+	static List<String> csvFields(String text) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString().trim());
+		return fields;
+	}
+}
@@ -0,0 +1,350 @@
+package com.example.shell;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jline.terminal.Terminal;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.Availability;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellMethodAvailability;
+import org.springframework.shell.standard.ShellOption;
+
+import com.example.netconf.DeviceNotification;
+import com.example.netconf.GetConfigCache;
+import com.example.netconf.NetconfDeviceKey;
+import com.example.netconf.NetconfMetrics;
+import com.example.netconf.NetconfReplyParser;
+import com.example.netconf.NetconfRpcEncoder;
+import com.example.netconf.NetconfSessionPool;
+import com.example.netconf.NotificationBus;
+import com.example.netconf.NotificationService;
+import com.example.netconf.NotificationSubscriber;
+import com.example.netconf.RpcTemplate;
+import com.example.netconf.RpcTemplates;
+
+/**
+ * Interactive commands against one device at a time, on the same session
+ * pool, get-config cache and notification bus as the REST gateway. RPCs are
+ * sent through {@link NetconfSessionPool#executeAsync}; while a reply is
+ * outstanding the elapsed time is shown, and Ctrl-C stops waiting for it.
+ */
+@ShellComponent
+public class NetconfCommands {
+	private static final Logger logger = LoggerFactory.getLogger(NetconfCommands.class);
+	private static final long PROGRESS_INTERVAL_MS = 250;
+
+	private final NetconfSessionPool sessionPool;
+	private final GetConfigCache getConfigCache;
+	private final NotificationService notificationService;
+	private final NotificationBus notificationBus;
+	private final RpcTemplates rpcTemplates;
+	private final Terminal terminal;
+	private volatile NetconfDeviceKey device;
+
+	public NetconfCommands(NetconfSessionPool sessionPool, GetConfigCache getConfigCache,
+			NotificationService notificationService, NotificationBus notificationBus, RpcTemplates rpcTemplates,
+			Terminal terminal) {
+		this.sessionPool = sessionPool;
+		this.getConfigCache = getConfigCache;
+		this.notificationService = notificationService;
+		this.notificationBus = notificationBus;
+		this.rpcTemplates = rpcTemplates;
+		this.terminal = terminal;
+	}
+
+	@ShellMethod(key = "connect", value = "Open a session to a device; the other commands run against it.")
+	public String connect(@ShellOption String ip, @ShellOption(defaultValue = "0", help = "0 for netconf.pool.default-port") int port,
+			@ShellOption String username, @ShellOption String password) throws InterruptedException {
+		NetconfDeviceKey key = sessionPool.deviceKey(ip, port, username);
+		//register opens a session with the credentials, so bad ones are reported here instead of on the first
+		//rpc; a failed one registers nothing and the device connected before stays current
+		try {
+			sessionPool.register(key, password);
+		} catch (RuntimeException e) {
+			return "Unable to connect to " + key + ": " + e.getMessage();
+		}
+		NetconfDeviceKey previous = device;
+		device = key;
+		//each connect holds one registration, also when it names the same device again
+		if (previous != null) {
+			sessionPool.unregister(previous);
+		}
+		logger.info("Shell connected to {}", key);
+		return "Connected to " + key + sessionPool.capabilities(key)
+				.map(capabilities -> ", " + capabilities.capabilities().size() + " capabilities").orElse("");
+	}
+
+	@ShellMethod(key = "get", value = "Read state and configuration, optionally only one container.")
+	public String get(@ShellOption(defaultValue = ShellOption.NULL) String namespace,
+			@ShellOption(defaultValue = ShellOption.NULL) String container) {
+		NetconfMessage rpc = NetconfRpcEncoder.forOperation("get", null, filter(namespace, container));
+		return await("get", sessionPool.executeAsync(device, rpc).thenApply(NetconfCommands::text));
+	}
+
+	@ShellMethod(key = "get-config", value = "Read a datastore through the get-config cache, optionally only one container.")
+	public String getConfig(@ShellOption(defaultValue = "running") String datastore,
+			@ShellOption(defaultValue = ShellOption.NULL) String namespace,
+			@ShellOption(defaultValue = ShellOption.NULL) String container,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Print only these elements, one at a time, e.g. interface") String element) {
+		Map<String, String> params = filter(namespace, container);
+		params.put("datastore", datastore);
+		if (element != null) {
+			CompletableFuture<GetConfigCache.Reply> reply = getConfigCache.getConfigAsync(device, params);
+			//empty once the reply is in, the failure otherwise
+			String failure = await("get-config", reply.thenApply(ignored -> ""));
+			return failure.isEmpty() ? printElements(reply.join().xml(), namespace, element) : failure;
+		}
+		return await("get-config", getConfigCache.getConfigAsync(device, params)
+				.thenApply(reply -> new String(reply.xml(), StandardCharsets.UTF_8)));
+	}
+
+	@ShellMethod(key = "edit-config", value = "Apply a <config> fragment, given inline or read from a file.")
+	public String editConfig(@ShellOption(defaultValue = "running") String datastore,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "The <config> element") String config,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "File holding the <config> element") String file)
+			throws IOException {
+		if ((config == null) == (file == null)) {
+			return "Give either --config or --file";
+		}
+		Map<String, String> params = new HashMap<>();
+		params.put("datastore", datastore);
+		params.put("config", config != null ? config : Files.readString(Path.of(file)));
+		NetconfDeviceKey target = device;
+		NetconfMessage rpc = NetconfRpcEncoder.forOperation("edit-config", null, params);
+		//even a timed out or cancelled edit may have been applied
+		return await("edit-config", sessionPool.executeAsync(target, rpc)
+				.whenComplete((reply, failure) -> getConfigCache.invalidate(target, datastore))
+				.thenApply(NetconfCommands::text));
+	}
+
+	@ShellMethod(key = "watch", value = "Print the device's notifications until Ctrl-C.")
+	public String watch(@ShellOption(defaultValue = ShellOption.NULL, help = "Stream, netconf.notifications.default-stream if not given") String stream,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Only notifications of this type, e.g. netconf-config-change") String type,
+			@ShellOption(defaultValue = "0", help = "Stop after this many, 0 for no limit") int count)
+			throws TimeoutException, ExecutionException {
+		NetconfDeviceKey target = device;
+		try {
+			notificationService.acquire(target, stream);
+		} catch (InterruptedException e) {
+			return "Cancelled";
+		}
+		PrintWriter writer = terminal.writer();
+		AtomicInteger received = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+		try (NotificationBus.Subscription subscription = notificationBus.subscribe("shell",
+				notification -> notification.device().equals(target)
+						&& (type == null || type.equals(notification.type())),
+				NotificationBus.Overflow.DROP_OLDEST, new NotificationSubscriber() {
+					@Override
+					public void onNotification(DeviceNotification notification) {
+						writer.println(notification.eventTime() + " " + notification.type());
+						writer.println(notification.xml());
+						writer.flush();
+						if (received.incrementAndGet() == count) {
+							done.countDown();
+						}
+					}
+
+					@Override
+					public void onDropped(long dropped) {
+						writer.println("(" + dropped + " notifications dropped)");
+						writer.flush();
+					}
+
+					@Override
+					public void onClosed() {
+						done.countDown();
+					}
+				})) {
+			writer.println("Watching " + target + ", Ctrl-C to stop");
+			writer.flush();
+			done.await();
+		} catch (InterruptedException e) {
+			//Ctrl-C, the usual way out
+		} finally {
+			notificationService.release(target);
+		}
+		return received.get() + " notifications";
+	}
+
+	@ShellMethod(key = "bench", value = "Measure throughput and latency of an rpc against the device.")
+	public String bench(@ShellOption(defaultValue = "get", help = "get, get-config or an rpc template name") String operation,
+			@ShellOption(defaultValue = "1000") int requests,
+			@ShellOption(defaultValue = "16", help = "Requests outstanding at once") int concurrency,
+			@ShellOption(defaultValue = ShellOption.NULL, help = "Template parameters as name=value,name=value") String params) {
+		if (requests < 1 || concurrency < 1) {
+			return "--requests and --concurrency must be positive";
+		}
+		NetconfDeviceKey target = device;
+		Supplier<NetconfMessage> rpc;
+		try {
+			rpc = rpc(operation, params);
+			//surfaces a bad template or missing parameter before anything is sent
+			rpc.get();
+		} catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		Semaphore window = new Semaphore(concurrency);
+		long[] latencies = new long[requests];
+		AtomicInteger completed = new AtomicInteger();
+		Map<String, Integer> failures = new ConcurrentHashMap<>();
+		long start = System.nanoTime();
+		int sent = 0;
+		boolean cancelled = false;
+		try {
+			for (; sent < requests; sent++) {
+				while (!window.tryAcquire(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+					progress("bench " + completed.get() + "/" + requests);
+				}
+				int index = sent;
+				long issued = System.nanoTime();
+				//the get-config cache is bypassed, the point is to measure the device
+				sessionPool.executeAsync(target, rpc.get()).whenComplete((reply, failure) -> {
+					latencies[index] = System.nanoTime() - issued;
+					String outcome = NetconfMetrics.outcome(reply, failure);
+					if (!NetconfMetrics.OK.equals(outcome)) {
+						failures.merge(outcome, 1, Integer::sum);
+					}
+					completed.incrementAndGet();
+					window.release();
+				});
+				if (index % concurrency == 0) {
+					progress("bench " + completed.get() + "/" + requests);
+				}
+			}
+			while (!window.tryAcquire(concurrency, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+				progress("bench " + completed.get() + "/" + requests);
+			}
+		} catch (InterruptedException e) {
+			//requests still in flight are left to their timeouts and not counted
+			cancelled = true;
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		clearProgress();
+		long[] done = Arrays.stream(latencies).filter(nanos -> nanos > 0).sorted().toArray();
+		if (done.length == 0) {
+			return "No replies";
+		}
+		return String.format("%s%s on %s: %d requests in %d ms, %.1f req/s, p50=%.1f p90=%.1f p99=%.1f max=%.1f ms, failures %s",
+				cancelled ? "Cancelled after " + sent + " sent, " : "", operation, target, done.length,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), done.length * 1e9 / elapsedNanos, millis(done, 0.5),
+				millis(done, 0.9), millis(done, 0.99), millis(done, 1.0), new TreeMap<>(failures));
+	}
+
+	@ShellMethodAvailability({ "get", "get-config", "edit-config", "watch", "bench" })
+	public Availability connected() {
+		return device != null ? Availability.available() : Availability.unavailable("no device is connected, use connect");
+	}
+
+	private Supplier<NetconfMessage> rpc(String operation, String params) {
+		switch (operation) {
+		case "get":
+		case "get-config":
+			return () -> NetconfRpcEncoder.forOperation(operation, null, Map.of());
+		default:
+			RpcTemplate template = rpcTemplates.get(operation)
+					.orElseThrow(() -> new IllegalArgumentException("Unknown rpc template " + operation));
+			Map<String, String> values = new HashMap<>();
+			if (params != null && !params.isBlank()) {
+				for (String pair : params.split(",")) {
+					int eq = pair.indexOf('=');
+					if (eq < 1) {
+						throw new IllegalArgumentException("Expected name=value, found " + pair);
+					}
+					values.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+				}
+			}
+			return () -> template.toMessage(null, values);
+		}
+	}
+
+	//waits for the reply, showing the elapsed time; Ctrl-C interrupts the command and abandons the reply
+	private String await(String operation, CompletableFuture<String> reply) {
+		long start = System.nanoTime();
+		try {
+			while (true) {
+				try {
+					String text = reply.get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+					clearProgress();
+					return text;
+				} catch (TimeoutException e) {
+					progress(operation + " on " + device + " "
+							+ Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+				}
+			}
+		} catch (InterruptedException e) {
+			reply.cancel(true);
+			clearProgress();
+			return "Cancelled " + operation;
+		} catch (ExecutionException e) {
+			clearProgress();
+			return operation + " failed: " + e.getCause().getMessage();
+		}
+	}
+
+	//a large datastore is never held as one String, each element is printed as soon as it is parsed
+	private String printElements(byte[] xml, String namespace, String element) {
+		PrintWriter writer = terminal.writer();
+		try {
+			long count = NetconfReplyParser.forEachSubtree(new ByteArrayInputStream(xml), namespace, element,
+					writer::println);
+			writer.flush();
+			return count + " " + element + " elements";
+		} catch (XMLStreamException e) {
+			writer.flush();
+			return "get-config failed: " + e.getMessage();
+		}
+	}
+
+	private void progress(String status) {
+		terminal.writer().print("\r" + status + "\033[K");
+		terminal.writer().flush();
+	}
+
+	private void clearProgress() {
+		terminal.writer().print("\r\033[K");
+		terminal.writer().flush();
+	}
+
+	private static Map<String, String> filter(String namespace, String container) {
+		Map<String, String> params = new HashMap<>();
+		if (container != null) {
+			params.put("namespace", namespace);
+			params.put("container", container);
+		}
+		return params;
+	}
+
+	private static String text(NetconfMessage reply) {
+		return new String(NetconfReplyParser.toBytes(reply), StandardCharsets.UTF_8);
+	}
+
+	private static double millis(long[] sorted, double percentile) {
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
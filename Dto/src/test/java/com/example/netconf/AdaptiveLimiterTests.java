@@ -0,0 +1,159 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptiveLimiterTests {
+	private static final NetconfDeviceKey DEVICE = new NetconfDeviceKey("10.0.0.1", 830, "admin");
+	private static final Duration CEILING = Duration.ofSeconds(30);
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static AdaptiveLimiter limiter(NetconfLimitProperties properties) {
+		return new AdaptiveLimiter(DEVICE, properties, new NetconfMetrics(new SimpleMeterRegistry()));
+	}
+
+	private static NetconfLimitProperties properties(int initialLimit) {
+		NetconfLimitProperties properties = new NetconfLimitProperties();
+		properties.setInitialLimit(initialLimit);
+		properties.setMinSamples(5);
+		return properties;
+	}
+
+	//takes every free slot, then answers them all in latencyMs
+	private static int fullRound(AdaptiveLimiter limiter, long latencyMs) {
+		int taken = 0;
+		while (limiter.tryAcquire()) {
+			taken++;
+		}
+		for (int i = 0; i < taken; i++) {
+			limiter.onSuccess("get", latencyMs * MS);
+		}
+		return taken;
+	}
+
+	@Test
+	void growsByAboutOnePerRoundOfFullUse() {
+		AdaptiveLimiter limiter = limiter(properties(4));
+
+		assertEquals(4, fullRound(limiter, 10));
+		double afterOne = limiter.getLimit();
+		for (int round = 0; round < 9; round++) {
+			fullRound(limiter, 10);
+		}
+
+		assertTrue(afterOne > 4 && afterOne <= 5, "limit " + afterOne);
+		assertTrue(limiter.getLimit() > 6 && limiter.getLimit() <= 14, "limit " + limiter.getLimit());
+	}
+
+	@Test
+	void doesNotGrowWhileMostlyIdle() {
+		AdaptiveLimiter limiter = limiter(properties(8));
+
+		for (int i = 0; i < 20; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.onSuccess("get", 10 * MS);
+		}
+
+		assertEquals(8.0, limiter.getLimit());
+	}
+
+	@Test
+	void shrinksOnSlowRepliesAndHalvesOnTimeouts() {
+		NetconfLimitProperties properties = properties(20);
+		AdaptiveLimiter limiter = limiter(properties);
+		for (int i = 0; i < properties.getMinSamples(); i++) {
+			limiter.tryAcquire();
+			limiter.onSuccess("get", 10 * MS);
+		}
+
+		limiter.tryAcquire();
+		limiter.onSuccess("get", 100 * MS);
+		assertEquals(20 * properties.getBackoffRatio(), limiter.getLimit(), 1e-9);
+
+		limiter.tryAcquire();
+		limiter.onTimeout("get", CEILING.toNanos());
+		assertEquals(20 * properties.getBackoffRatio() * 0.5, limiter.getLimit(), 1e-9);
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire();
+			limiter.onTimeout("get", CEILING.toNanos());
+		}
+		assertEquals(properties.getMinLimit(), limiter.getLimit(), 1e-9);
+	}
+
+	@Test
+	void rejectsWhenTheQueueIsFullOrDoesNotMove() throws InterruptedException {
+		NetconfLimitProperties properties = properties(1);
+		properties.setMaxQueued(0);
+		AdaptiveLimiter limiter = limiter(properties);
+
+		limiter.acquire(MS);
+		assertFalse(limiter.tryAcquire());
+		assertThrows(DeviceOverloadedException.class, () -> limiter.acquire(CEILING.toNanos()));
+
+		properties.setMaxQueued(1);
+		properties.setQueueTimeout(Duration.ofMillis(20));
+		long start = System.nanoTime();
+		assertThrows(DeviceOverloadedException.class, () -> limiter.acquire(CEILING.toNanos()));
+		assertTrue(System.nanoTime() - start >= 20 * MS);
+
+		limiter.onFailure();
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	void timeoutFollowsTheRepliesOfTheSameShape() {
+		NetconfLimitProperties properties = properties(8);
+		AdaptiveLimiter limiter = limiter(properties);
+
+		//no history: the ceiling
+		assertEquals(CEILING, limiter.timeout("get interfaces", CEILING));
+		for (int i = 0; i < properties.getMinSamples(); i++) {
+			limiter.tryAcquire();
+			limiter.onSuccess("get interfaces", 1000 * MS);
+		}
+		assertEquals(Duration.ofSeconds(3), limiter.timeout("get interfaces", CEILING));
+		assertEquals(Duration.ofSeconds(2), limiter.timeout("get interfaces", Duration.ofSeconds(2)));
+		//an unfiltered get has no history of its own
+		assertEquals(CEILING, limiter.timeout("get", CEILING));
+
+		for (int i = 0; i < properties.getMinSamples(); i++) {
+			limiter.tryAcquire();
+			limiter.onSuccess("get-config", MS);
+		}
+		assertEquals(properties.getMinTimeout(), limiter.timeout("get-config", CEILING));
+	}
+
+	@Test
+	void latencyKeyNamesOperationSelectionAndSize() {
+		assertEquals("get", AdaptiveLimiter.latencyKey(NetconfRpcEncoder.toMessage("1",
+				NetconfRpcEncoder.get(null, null))));
+		assertEquals("get-config interfaces", AdaptiveLimiter.latencyKey(NetconfRpcEncoder.toMessage("1",
+				NetconfRpcEncoder.getConfig("running", "urn:test", "interfaces"))));
+		assertEquals("edit-config interfaces/interface/name", AdaptiveLimiter.latencyKey(
+				NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.editConfig("running",
+						NetconfRpcEncoder.listEntry("urn:test", "interfaces", "interface", "merge",
+								Map.of("name", "eth0"))))));
+
+		List<ConfigChange> changes = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			changes.add(new ConfigChange("urn:test", "interfaces", "interface", "name", "merge",
+					Map.of("name", "eth" + i)));
+		}
+		assertEquals("edit-config interfaces/interface/name x8", AdaptiveLimiter.latencyKey(
+				NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.editConfig("running",
+						NetconfRpcEncoder.changes(changes)))));
+	}
+}
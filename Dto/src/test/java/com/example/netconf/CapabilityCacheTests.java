@@ -0,0 +1,126 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CapabilityCacheTests {
+	private static final String BASE = "urn:ietf:params:netconf:base:1.0";
+	private static final String CANDIDATE = "urn:ietf:params:netconf:capability:candidate:1.0";
+	private static final String MODULE = "urn:test?module=test&revision=2024-01-01";
+	private static final NetconfDeviceKey FIRST = new NetconfDeviceKey("10.0.0.1", 830, "admin");
+	private static final NetconfDeviceKey SECOND = new NetconfDeviceKey("10.0.0.2", 830, "admin");
+	private static final NetconfDeviceKey THIRD = new NetconfDeviceKey("10.0.0.3", 2022, "oper");
+
+	@TempDir
+	Path directory;
+
+	//written only on destroy
+	private CapabilityCache cache() {
+		CapabilityCacheProperties properties = new CapabilityCacheProperties();
+		properties.setFile(directory.resolve("capabilities.bin"));
+		properties.setFlushInterval(Duration.ofHours(1));
+		return new CapabilityCache(properties);
+	}
+
+	private void recordThree() {
+		CapabilityCache cache = cache();
+		cache.record(FIRST, List.of(BASE, CANDIDATE, MODULE));
+		//the same set in another order
+		cache.record(SECOND, List.of(MODULE, BASE, CANDIDATE));
+		cache.record(THIRD, List.of(BASE));
+		cache.destroy();
+	}
+
+	@Test
+	void snapshotSurvivesARestart() {
+		recordThree();
+
+		CapabilityCache cache = cache();
+
+		assertEquals(3, cache.size());
+		DeviceCapabilities first = cache.get(FIRST).orElseThrow();
+		assertSame(first, cache.get(SECOND).orElseThrow());
+		assertEquals(List.of(BASE, CANDIDATE, MODULE).stream().sorted().toList(), first.capabilities());
+		assertEquals("2024-01-01", first.module("test").revision());
+		assertTrue(cache.supports(FIRST, NetconfFeature.CANDIDATE));
+		assertFalse(cache.supports(THIRD, NetconfFeature.CANDIDATE));
+		//a reloaded set is shared with devices that advertise it later
+		assertSame(first, cache.parse(List.of(CANDIDATE, MODULE, BASE)));
+
+		cache.forget(SECOND);
+		cache.destroy();
+		CapabilityCache reloaded = cache();
+		assertEquals(2, reloaded.size());
+		assertTrue(reloaded.get(SECOND).isEmpty());
+		reloaded.destroy();
+	}
+
+	@Test
+	void longUrisSurviveAndUnusedSetsAreDropped() {
+		String huge = "urn:test:" + "x".repeat(70_000);
+		CapabilityCache cache = cache();
+		cache.record(FIRST, List.of(BASE, huge));
+		cache.record(SECOND, List.of(BASE));
+		cache.destroy();
+
+		CapabilityCache reloaded = cache();
+		DeviceCapabilities first = reloaded.get(FIRST).orElseThrow();
+		assertEquals(List.of(huge, BASE).stream().sorted().toList(), first.capabilities());
+		//the last device pointing at a set takes it along when it goes
+		DeviceCapabilities shared = reloaded.get(SECOND).orElseThrow();
+		reloaded.record(SECOND, List.of(BASE, CANDIDATE));
+		assertNotSame(shared, reloaded.parse(List.of(BASE)));
+		reloaded.forget(FIRST);
+		assertNotSame(first, reloaded.parse(List.of(BASE, huge)));
+		reloaded.destroy();
+	}
+
+	@Test
+	void corruptOrForeignFilesAreIgnored() throws IOException {
+		Path file = directory.resolve("capabilities.bin");
+		recordThree();
+		byte[] snapshot = Files.readAllBytes(file);
+
+		//cut off in the middle of the devices
+		Files.write(file, Arrays.copyOf(snapshot, snapshot.length - 10));
+		CapabilityCache truncated = cache();
+		assertEquals(0, truncated.size());
+		assertTrue(truncated.get(FIRST).isEmpty());
+		truncated.destroy();
+
+		Files.writeString(file, "not a capability cache", StandardCharsets.UTF_8);
+		CapabilityCache foreign = cache();
+		assertEquals(0, foreign.size());
+		//learned again as devices connect, and written over the bad file
+		foreign.record(FIRST, List.of(BASE));
+		foreign.destroy();
+		CapabilityCache rewritten = cache();
+		assertEquals(1, rewritten.size());
+		assertEquals(List.of(BASE), rewritten.get(FIRST).orElseThrow().capabilities());
+		rewritten.destroy();
+	}
+
+	@Test
+	void missingFileStartsEmpty() {
+		CapabilityCache cache = cache();
+
+		assertEquals(0, cache.size());
+		//nothing recorded, nothing written
+		cache.destroy();
+		assertFalse(Files.exists(directory.resolve("capabilities.bin")));
+	}
+}
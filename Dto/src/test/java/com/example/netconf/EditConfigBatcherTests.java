@@ -0,0 +1,152 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class EditConfigBatcherTests {
+	private static final int ENTRIES = 8;
+
+	private LoopbackPool pool;
+	private EditConfigBatcher batcher;
+
+	@AfterEach
+	void tearDown() {
+		if (batcher != null) {
+			batcher.destroy();
+		}
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	private void start(LoopbackNetconfServer server, String errorOption) throws InterruptedException {
+		pool = LoopbackPool.of(server.start());
+		EditConfigBatchProperties properties = new EditConfigBatchProperties();
+		properties.setErrorOption(errorOption);
+		//every entry goes into one batch, sent as soon as the last one is submitted
+		properties.setMaxEntries(ENTRIES);
+		properties.setWindow(Duration.ofMinutes(1));
+		batcher = new EditConfigBatcher(pool.sessionPool, pool.getConfigCache(), properties, pool.metrics,
+				new BatchPermits(new BatchProperties()));
+	}
+
+	private CompletableFuture<EditConfigBatcher.ChangeResult> submit(String name) {
+		return batcher.submit(pool.device, null, new ConfigChange(LoopbackNetconfServer.TEST_NS, "interfaces",
+				"interface", "name", "merge", Map.of("name", name)), Duration.ofSeconds(10));
+	}
+
+	private List<EditConfigBatcher.ChangeResult> submitAll() throws Exception {
+		List<CompletableFuture<EditConfigBatcher.ChangeResult>> futures = new ArrayList<>();
+		for (int i = 0; i < ENTRIES; i++) {
+			futures.add(submit("eth" + i));
+		}
+		List<EditConfigBatcher.ChangeResult> results = new ArrayList<>();
+		for (CompletableFuture<EditConfigBatcher.ChangeResult> future : futures) {
+			results.add(future.get(10, TimeUnit.SECONDS));
+		}
+		return results;
+	}
+
+	private static void assertFailed(List<EditConfigBatcher.ChangeResult> results, int... failed) {
+		for (int i = 0; i < results.size(); i++) {
+			boolean expected = false;
+			for (int index : failed) {
+				expected |= index == i;
+			}
+			assertEquals(!expected, results.get(i).applied(), "eth" + i);
+		}
+	}
+
+	@Test
+	void rollbackResendsTheRestAfterAttributedErrors() throws Exception {
+		start(new LoopbackNetconfServer().rollbackOnError(true).rejectKeys("eth2", "eth5"), "rollback-on-error");
+
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		assertFailed(results, 2, 5);
+		assertTrue(results.get(2).error().contains("eth2"));
+		//the device reports the first failure only: all 8, the 7 without eth2, the 6 without eth5
+		assertEquals(3, pool.server.getEditCount());
+		assertEquals(List.of("eth0", "eth1", "eth3", "eth4", "eth6", "eth7"), pool.server.getAppliedKeys());
+	}
+
+	@Test
+	void aSecondChangeToAnEntryGoesInTheNextBatch() throws Exception {
+		start(new LoopbackNetconfServer(), "rollback-on-error");
+
+		CompletableFuture<EditConfigBatcher.ChangeResult> first = submit("eth0");
+		submit("eth1");
+		//sends the batch so far
+		CompletableFuture<EditConfigBatcher.ChangeResult> again = submit("eth0");
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		assertTrue(first.get(10, TimeUnit.SECONDS).applied());
+		assertTrue(again.get(10, TimeUnit.SECONDS).applied());
+		assertFailed(results);
+		//eth0 ends the second batch too, and each waits for the one before
+		assertEquals(3, pool.server.getEditCount());
+		assertEquals(List.of("eth0", "eth1", "eth0", "eth0", "eth1", "eth2", "eth3", "eth4", "eth5", "eth6", "eth7"),
+				pool.server.getAppliedKeys());
+	}
+
+	@Test
+	void rollbackSplitsUnattributedErrorsDownToTheCulprit() throws Exception {
+		start(new LoopbackNetconfServer().rollbackOnError(true).rejectKeys("eth5").errorPaths(false),
+				"rollback-on-error");
+
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		assertFailed(results, 5);
+		//0-7, then 0-3 and 4-7, then 4-5 and 6-7, then 4 and 5
+		assertEquals(7, pool.server.getEditCount());
+		assertEquals(7, pool.server.getAppliedKeys().size());
+		assertFalse(pool.server.getAppliedKeys().contains("eth5"));
+	}
+
+	@Test
+	void unknownCapabilitiesStopAtTheFirstError() throws Exception {
+		start(new LoopbackNetconfServer().rollbackOnError(true).rejectKeys("eth2"), "rollback-on-error");
+		//as if the login's session had not told us either
+		pool.capabilityCache.forget(pool.device);
+
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		//rollback-on-error was not asked for and nothing is split
+		assertFailed(results, 2, 3, 4, 5, 6, 7);
+		assertTrue(results.get(3).error().startsWith("Not applied"));
+		assertEquals(1, pool.server.getEditCount());
+		assertEquals(List.of("eth0", "eth1"), pool.server.getAppliedKeys());
+	}
+
+	@Test
+	void devicesWithoutRollbackStopAtTheFirstError() throws Exception {
+		start(new LoopbackNetconfServer().rejectKeys("eth6"), "rollback-on-error");
+
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		assertFailed(results, 6, 7);
+		assertEquals(1, pool.server.getEditCount());
+	}
+
+	@Test
+	void continueOnErrorFailsOnlyTheNamedEntries() throws Exception {
+		start(new LoopbackNetconfServer().rejectKeys("eth1", "eth3"), "continue-on-error");
+
+		List<EditConfigBatcher.ChangeResult> results = submitAll();
+
+		assertFailed(results, 1, 3);
+		assertEquals(1, pool.server.getEditCount());
+		assertEquals(6, pool.server.getAppliedKeys().size());
+	}
+}
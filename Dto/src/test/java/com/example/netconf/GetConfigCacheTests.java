@@ -0,0 +1,119 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GetConfigCacheTests {
+	private static final Map<String, String> INTERFACES = Map.of("namespace", LoopbackNetconfServer.TEST_NS,
+			"container", "interfaces");
+
+	private LoopbackPool pool;
+	private GetConfigCache cache;
+
+	@AfterEach
+	void tearDown() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	private void start(LoopbackNetconfServer server) throws InterruptedException {
+		pool = LoopbackPool.of(server.datastoreEntries(3).start());
+		cache = pool.getConfigCache();
+	}
+
+	private static Map<String, String> params(String datastore) {
+		return Map.of("datastore", datastore, "namespace", LoopbackNetconfServer.TEST_NS, "container", "interfaces");
+	}
+
+	private static String written(GetConfigCache.Reply reply, String messageId) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		reply.writeTo(out, messageId);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void answersRepeatedReadsFromTheCache() throws Exception {
+		start(new LoopbackNetconfServer());
+
+		GetConfigCache.Reply first = cache.getConfig(pool.device, INTERFACES);
+		long rpcs = pool.server.getRpcCount();
+		GetConfigCache.Reply second = cache.getConfig(pool.device, INTERFACES);
+
+		assertEquals(rpcs, pool.server.getRpcCount());
+		assertArrayEquals(first.xml(), second.xml());
+		assertFalse(second.error());
+		//each caller gets its own message-id back
+		assertTrue(written(second, "7").startsWith("<rpc-reply"));
+		assertTrue(written(second, "7").contains(" message-id=\"7\""));
+		assertFalse(written(second, null).contains("message-id"));
+		//running is the default datastore
+		cache.getConfig(pool.device, params("running"));
+		assertEquals(rpcs, pool.server.getRpcCount());
+	}
+
+	@Test
+	void editsDropTheDatastoreTheyChanged() throws Exception {
+		start(new LoopbackNetconfServer());
+		cache.getConfig(pool.device, params("running"));
+		cache.getConfig(pool.device, params("candidate"));
+		long rpcs = pool.server.getRpcCount();
+
+		cache.invalidate(pool.device, "candidate");
+		cache.getConfig(pool.device, params("running"));
+		assertEquals(rpcs, pool.server.getRpcCount());
+		cache.getConfig(pool.device, params("candidate"));
+		assertEquals(rpcs + 1, pool.server.getRpcCount());
+
+		//null drops every datastore of the device
+		cache.invalidate(pool.device, null);
+		cache.getConfig(pool.device, params("running"));
+		cache.getConfig(pool.device, params("candidate"));
+		assertEquals(rpcs + 3, pool.server.getRpcCount());
+
+		cache.invalidateAll();
+		cache.getConfig(pool.device, params("running"));
+		assertEquals(rpcs + 4, pool.server.getRpcCount());
+	}
+
+	@Test
+	void concurrentMissesShareOneDeviceCall() throws Exception {
+		start(new LoopbackNetconfServer().latency(Duration.ofMillis(200)));
+		//opens the session, so only the reads below are counted
+		cache.getConfig(pool.device, params("candidate"));
+		long rpcs = pool.server.getRpcCount();
+
+		CompletableFuture<GetConfigCache.Reply> first = cache.getConfigAsync(pool.device, INTERFACES);
+		CompletableFuture<GetConfigCache.Reply> second = cache.getConfigAsync(pool.device, INTERFACES);
+		GetConfigCache.Reply blocking = cache.getConfig(pool.device, INTERFACES);
+
+		assertArrayEquals(blocking.xml(), first.get(10, TimeUnit.SECONDS).xml());
+		assertArrayEquals(blocking.xml(), second.get(10, TimeUnit.SECONDS).xml());
+		assertEquals(rpcs + 1, pool.server.getRpcCount());
+	}
+
+	@Test
+	void repliesWithErrorsAreNotKept() throws Exception {
+		start(new LoopbackNetconfServer().errorRate(1.0));
+		cache.getConfig(pool.device, INTERFACES);
+		long rpcs = pool.server.getRpcCount();
+
+		GetConfigCache.Reply reply = cache.getConfig(pool.device, INTERFACES);
+
+		assertTrue(reply.error());
+		assertTrue(written(reply, "7").contains("Injected error"));
+		assertEquals(rpcs + 1, pool.server.getRpcCount());
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.dto.BatchResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class InventorySweepTests {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void rpcErrorRepliesAreRetriedAndWrittenAsErrors() throws Exception {
+		try (LoopbackPool pool = LoopbackPool.of(new LoopbackNetconfServer().errorRate(1.0).start())) {
+			SweepProperties properties = new SweepProperties();
+			properties.setRetryInitialDelay(Duration.ofMillis(1));
+			properties.setRetryMaxDelay(Duration.ofMillis(1));
+			InventorySweep sweep = new InventorySweep(pool.sessionPool, properties, pool.metrics, objectMapper);
+
+			InventorySweep.Summary summary;
+			try (InventorySweep.Run run = sweep.open(directory, "digest", 1)) {
+				run.submit(new BatchTask(1, pool.device, "get-config", null, Map.of()));
+				summary = run.finish();
+			}
+
+			assertEquals(Map.of(BatchResult.Status.ERROR, 1), summary.counts());
+			assertEquals(properties.getMaxAttempts(), pool.server.getRpcCount());
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(Files.newInputStream(SweepJournal.segmentFile(directory, 0))),
+					StandardCharsets.UTF_8))) {
+				JsonNode result = objectMapper.readTree(reader.readLine());
+				assertEquals("ERROR", result.get("status").asText());
+				assertTrue(result.get("error").asText().startsWith("operation-failed: Injected error"),
+						result.get("error").asText());
+				assertTrue(result.get("error").asText().endsWith("(after 3 attempts)"), result.get("error").asText());
+			}
+		}
+	}
+}
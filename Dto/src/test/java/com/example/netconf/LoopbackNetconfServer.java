@@ -0,0 +1,438 @@
+package com.example.netconf;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+/**
+ * In-process NETCONF over TCP stand-in for a device. Answers hello, get,
+ * get-config, edit-config and close-session, plus lock/unlock/validate/commit/
+ * discard-changes with a plain ok. Datastore size, per-RPC latency and error
+ * injection are configurable, as is base:1.1 chunked framing, so tests and load generators can drive
+ * {@link TestingNetconfClient} and the REST endpoints without hardware.
+ * <p>
+ * edit-config list entries (elements with an {@code operation} attribute)
+ * whose {@code name} is one of {@link #rejectKeys} fail, and the others are
+ * applied or not as the request's {@code error-option} says.
+ * {@link #unresponsiveSessions} and {@link #dropSessions} stand in for a
+ * device that hangs and then reloads.
+ *
+ * <pre>
+ * try (LoopbackNetconfServer server = new LoopbackNetconfServer().datastoreEntries(10_000).start()) {
+ *     ... connect over TCP to 127.0.0.1:server.getPort() ...
+ * }
+ * </pre>
+ */
+public class LoopbackNetconfServer implements Closeable {
+
+	public static final String TEST_NS = "urn:test";
+	private static final byte[] EOM = "]]>]]>".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] END_OF_CHUNKS = "\n##\n".getBytes(StandardCharsets.UTF_8);
+	private static final String BASE_1_1 = "urn:ietf:params:netconf:base:1.1";
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+
+	private int datastoreEntries = 100;
+	private Duration latency = Duration.ZERO;
+	private double errorRate;
+	private double dropRate;
+	private int ioThreads = 0;
+	private boolean chunkedFraming;
+	private boolean rollbackOnError;
+	private Set<String> rejectedKeys = Set.of();
+	private boolean errorPaths = true;
+	private int unresponsiveSessions;
+	private Set<String> unansweredOperations = Set.of();
+
+	private final AtomicLong sessionIds = new AtomicLong();
+	private final AtomicLong rpcs = new AtomicLong();
+	private final AtomicLong edits = new AtomicLong();
+	private final List<String> appliedKeys = Collections.synchronizedList(new ArrayList<>());
+	private final Set<Channel> sessions = ConcurrentHashMap.newKeySet();
+	private byte[] datastore;
+	private NioEventLoopGroup group;
+	private Channel serverChannel;
+
+	//number of interface list entries returned by get and get-config
+	public LoopbackNetconfServer datastoreEntries(int entries) {
+		this.datastoreEntries = entries;
+		return this;
+	}
+
+	//delay before each rpc-reply is written
+	public LoopbackNetconfServer latency(Duration latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	//fraction of RPCs answered with an rpc-error
+	public LoopbackNetconfServer errorRate(double errorRate) {
+		this.errorRate = errorRate;
+		return this;
+	}
+
+	//fraction of RPCs that are never answered, to exercise client timeouts
+	public LoopbackNetconfServer dropRate(double dropRate) {
+		this.dropRate = dropRate;
+		return this;
+	}
+
+	//advertise base:1.1 and switch to chunked framing when the client does too
+	public LoopbackNetconfServer chunkedFraming(boolean chunkedFraming) {
+		this.chunkedFraming = chunkedFraming;
+		return this;
+	}
+
+	//advertise :rollback-on-error
+	public LoopbackNetconfServer rollbackOnError(boolean rollbackOnError) {
+		this.rollbackOnError = rollbackOnError;
+		return this;
+	}
+
+	//edit-config entries with these names fail
+	public LoopbackNetconfServer rejectKeys(String... keys) {
+		this.rejectedKeys = Set.of(keys);
+		return this;
+	}
+
+	//false leaves error-path out of the rpc-errors of failed entries
+	public LoopbackNetconfServer errorPaths(boolean errorPaths) {
+		this.errorPaths = errorPaths;
+		return this;
+	}
+
+	//the first count sessions read RPCs but neither apply nor answer them, e.g. until dropSessions
+	public LoopbackNetconfServer unresponsiveSessions(int count) {
+		this.unresponsiveSessions = count;
+		return this;
+	}
+
+	//RPCs of these operations are carried out but never answered
+	public LoopbackNetconfServer unanswered(String... operations) {
+		this.unansweredOperations = Set.of(operations);
+		return this;
+	}
+
+	public LoopbackNetconfServer ioThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+		return this;
+	}
+
+	public LoopbackNetconfServer start() throws InterruptedException {
+		datastore = buildDatastore(datastoreEntries);
+		group = new NioEventLoopGroup(ioThreads);
+		ServerBootstrap bootstrap = new ServerBootstrap()
+				.group(group)
+				.channel(NioServerSocketChannel.class)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel ch) {
+						sessions.add(ch);
+						ch.closeFuture().addListener(future -> sessions.remove(ch));
+						ch.pipeline().addLast(new NetconfFrameDecoder());
+						ch.pipeline().addLast(new SessionHandler(sessionIds.incrementAndGet()));
+					}
+				});
+		serverChannel = bootstrap.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+		return this;
+	}
+
+	public String getHost() {
+		return InetAddress.getLoopbackAddress().getHostAddress();
+	}
+
+	public int getPort() {
+		return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+	}
+
+	public long getRpcCount() {
+		return rpcs.get();
+	}
+
+	public long getEditCount() {
+		return edits.get();
+	}
+
+	//names of the edit-config entries applied so far, in order
+	public List<String> getAppliedKeys() {
+		synchronized (appliedKeys) {
+			return List.copyOf(appliedKeys);
+		}
+	}
+
+	//closes every open session as a device reload would, without a reply or close-session
+	public void dropSessions() {
+		sessions.forEach(session -> session.close().syncUninterruptibly());
+	}
+
+	@Override
+	public void close() {
+		if (serverChannel != null) {
+			serverChannel.close().syncUninterruptibly();
+		}
+		if (group != null) {
+			group.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+		}
+	}
+
+	static byte[] buildDatastore(int entries) {
+		StringBuilder xml = new StringBuilder(entries * 110 + 64);
+		xml.append("<interfaces xmlns=\"").append(TEST_NS).append("\">");
+		for (int i = 0; i < entries; i++) {
+			xml.append("<interface><name>eth").append(i).append("</name><enable>true</enable><ip-address>10.")
+					.append((i >> 16) & 0xff).append('.').append((i >> 8) & 0xff).append('.').append(i & 0xff)
+					.append("</ip-address></interface>");
+		}
+		xml.append("</interfaces>");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private record Request(String root, String messageId, String operation) {
+	}
+
+	private record Edit(String errorOption, List<String> keys) {
+	}
+
+	private static XMLStreamReader reader(ByteBuf frame) throws XMLStreamException {
+		while (frame.isReadable() && Character.isWhitespace(frame.getByte(frame.readerIndex()))) {
+			frame.skipBytes(1);
+		}
+		return INPUT_FACTORY.createXMLStreamReader(new ByteBufInputStream(frame));
+	}
+
+	private static Request parse(ByteBuf frame) throws XMLStreamException {
+		XMLStreamReader reader = reader(frame);
+		try {
+			String root = null;
+			String messageId = null;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				if (root == null) {
+					root = reader.getLocalName();
+					messageId = reader.getAttributeValue(null, "message-id");
+				} else {
+					return new Request(root, messageId, reader.getLocalName());
+				}
+			}
+			return new Request(root, messageId, null);
+		} finally {
+			reader.close();
+		}
+	}
+
+	//RFC 6241 makes stop-on-error the default
+	private static Edit parseEdit(ByteBuf frame) throws XMLStreamException {
+		XMLStreamReader reader = reader(frame);
+		try {
+			String errorOption = "stop-on-error";
+			List<String> keys = new ArrayList<>();
+			boolean entry = false;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				if ("error-option".equals(reader.getLocalName())) {
+					errorOption = reader.getElementText().trim();
+				} else if (reader.getAttributeValue(NetconfRpcEncoder.BASE_NS, "operation") != null) {
+					entry = true;
+				} else if (entry && "name".equals(reader.getLocalName())) {
+					keys.add(reader.getElementText().trim());
+					entry = false;
+				}
+			}
+			return new Edit(errorOption, keys);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private final class SessionHandler extends SimpleChannelInboundHandler<NetconfFrame> {
+		private final long sessionId;
+		private boolean chunked;
+
+		SessionHandler(long sessionId) {
+			this.sessionId = sessionId;
+		}
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) {
+			ctx.writeAndFlush(frame("<hello xmlns=\"" + NetconfRpcEncoder.BASE_NS + "\"><capabilities>"
+					+ "<capability>urn:ietf:params:netconf:base:1.0</capability>"
+					+ (chunkedFraming ? "<capability>" + BASE_1_1 + "</capability>" : "")
+					+ "<capability>urn:ietf:params:netconf:capability:candidate:1.0</capability>"
+					+ "<capability>urn:ietf:params:netconf:capability:validate:1.0</capability>"
+					+ "<capability>urn:ietf:params:netconf:capability:notification:1.0</capability>"
+					+ (rollbackOnError ? "<capability>urn:ietf:params:netconf:capability:rollback-on-error:1.0</capability>" : "")
+					+ "<capability>" + TEST_NS + "?module=test&amp;revision=2024-01-01</capability>"
+					+ "</capabilities><session-id>" + sessionId + "</session-id></hello>"));
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, NetconfFrame msg) throws XMLStreamException {
+			Request request = parse(msg.content().duplicate());
+			if ("hello".equals(request.root())) {
+				if (chunkedFraming && msg.content().toString(StandardCharsets.UTF_8).contains(BASE_1_1)) {
+					ctx.pipeline().get(NetconfFrameDecoder.class).useChunkedFraming();
+					chunked = true;
+				}
+				return;
+			}
+			if (!"rpc".equals(request.root())) {
+				return;
+			}
+			rpcs.incrementAndGet();
+			if (sessionId <= unresponsiveSessions) {
+				return;
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			if (dropRate > 0 && random.nextDouble() < dropRate) {
+				return;
+			}
+			ByteBuf reply;
+			if (errorRate > 0 && random.nextDouble() < errorRate) {
+				reply = error(request.messageId(), "operation-failed", "Injected error");
+			} else if ("edit-config".equals(request.operation())) {
+				reply = edit(request, parseEdit(msg.content().duplicate()));
+			} else {
+				reply = reply(request);
+			}
+			if (unansweredOperations.contains(request.operation())) {
+				reply.release();
+				return;
+			}
+			boolean close = "close-session".equals(request.operation());
+			if (latency.isZero()) {
+				write(ctx, reply, close);
+			} else {
+				ctx.executor().schedule(() -> write(ctx, reply, close), latency.toNanos(), TimeUnit.NANOSECONDS);
+			}
+		}
+
+		private void write(ChannelHandlerContext ctx, ByteBuf reply, boolean close) {
+			if (close) {
+				ctx.writeAndFlush(reply).addListener(ChannelFutureListener.CLOSE);
+			} else {
+				ctx.writeAndFlush(reply);
+			}
+		}
+
+		private ByteBuf reply(Request request) {
+			String operation = request.operation() == null ? "" : request.operation();
+			switch (operation) {
+			case "get":
+			case "get-config":
+				return frame(Unpooled.wrappedBuffer(
+						header(request.messageId()).append("<data>").toString().getBytes(StandardCharsets.UTF_8),
+						datastore,
+						"</data></rpc-reply>".getBytes(StandardCharsets.UTF_8)));
+			case "close-session":
+			case "lock":
+			case "unlock":
+			case "validate":
+			case "commit":
+			case "discard-changes":
+			case "create-subscription":
+				return ok(request.messageId());
+			default:
+				return error(request.messageId(), "operation-not-supported", operation + " is not supported");
+			}
+		}
+
+		private ByteBuf edit(Request request, Edit edit) {
+			edits.incrementAndGet();
+			List<String> failed = edit.keys().stream().filter(rejectedKeys::contains).toList();
+			if (failed.isEmpty()) {
+				appliedKeys.addAll(edit.keys());
+				return ok(request.messageId());
+			}
+			switch (edit.errorOption()) {
+			case "rollback-on-error":
+				break;
+			case "continue-on-error":
+				edit.keys().stream().filter(key -> !rejectedKeys.contains(key)).forEach(appliedKeys::add);
+				break;
+			default:
+				appliedKeys.addAll(edit.keys().subList(0, edit.keys().indexOf(failed.get(0))));
+				break;
+			}
+			//continue-on-error goes on past the first failure, the others end there
+			List<String> reported = "continue-on-error".equals(edit.errorOption()) ? failed : failed.subList(0, 1);
+			StringBuilder xml = header(request.messageId());
+			for (String key : reported) {
+				xml.append("<rpc-error><error-type>application</error-type><error-tag>invalid-value</error-tag>")
+						.append("<error-severity>error</error-severity>");
+				if (errorPaths) {
+					xml.append("<error-path>/t:interfaces/t:interface[t:name='").append(escape(key))
+							.append("']</error-path>");
+				}
+				xml.append("<error-message>Rejected ").append(escape(key)).append("</error-message></rpc-error>");
+			}
+			return frame(xml.append("</rpc-reply>").toString());
+		}
+
+		private ByteBuf ok(String messageId) {
+			return frame(header(messageId).append("<ok/></rpc-reply>").toString());
+		}
+
+		private ByteBuf error(String messageId, String tag, String message) {
+			return frame(header(messageId).append("<rpc-error><error-type>application</error-type><error-tag>")
+					.append(tag).append("</error-tag><error-severity>error</error-severity><error-message>")
+					.append(message).append("</error-message></rpc-error></rpc-reply>").toString());
+		}
+
+		private StringBuilder header(String messageId) {
+			StringBuilder xml = new StringBuilder(128).append("<rpc-reply xmlns=\"").append(NetconfRpcEncoder.BASE_NS)
+					.append('"');
+			if (messageId != null) {
+				xml.append(" message-id=\"").append(escape(messageId)).append('"');
+			}
+			return xml.append('>');
+		}
+
+		private String escape(String value) {
+			return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+		}
+
+		private ByteBuf frame(String xml) {
+			return frame(Unpooled.wrappedBuffer(xml.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		//the whole message goes out as a single chunk
+		private ByteBuf frame(ByteBuf message) {
+			if (!chunked) {
+				return Unpooled.wrappedBuffer(message, Unpooled.wrappedBuffer(EOM));
+			}
+			byte[] header = ("\n#" + message.readableBytes() + "\n").getBytes(StandardCharsets.UTF_8);
+			return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(header), message, Unpooled.wrappedBuffer(END_OF_CHUNKS));
+		}
+	}
+}
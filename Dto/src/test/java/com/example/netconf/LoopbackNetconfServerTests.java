@@ -0,0 +1,99 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.client.NetconfClientDispatcherImpl;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+
+class LoopbackNetconfServerTests {
+
+	private NioEventLoopGroup group;
+	private HashedWheelTimer timer;
+	private NetconfClientDispatcherImpl dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		group = new NioEventLoopGroup(1);
+		timer = new HashedWheelTimer();
+		dispatcher = new NetconfClientDispatcherImpl(group, group, timer);
+	}
+
+	@AfterEach
+	void tearDown() {
+		timer.stop();
+		group.shutdownGracefully();
+	}
+
+	private TestingNetconfClient connect(LoopbackNetconfServer server) throws Exception {
+		return new TestingNetconfClient("loopback", dispatcher, TestingNetconfClient.getClientConfig(server.getHost(),
+				server.getPort(), false, Optional.empty(), new PipelinedNetconfClientSessionListener(8)));
+	}
+
+	@Test
+	void answersGetWithConfiguredDatastore() throws Exception {
+		try (LoopbackNetconfServer server = new LoopbackNetconfServer().datastoreEntries(25).start();
+				TestingNetconfClient client = connect(server)) {
+			NetconfMessage reply = client.sendMessage(NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.get(null, null)));
+
+			assertEquals("1", reply.getDocument().getDocumentElement().getAttribute("message-id"));
+			assertEquals(25, reply.getDocument().getElementsByTagNameNS(LoopbackNetconfServer.TEST_NS, "interface")
+					.getLength());
+			assertTrue(client.getCapabilities().contains("urn:ietf:params:netconf:capability:candidate:1.0"));
+		}
+	}
+
+	@Test
+	void negotiatesChunkedFraming() throws Exception {
+		try (LoopbackNetconfServer server = new LoopbackNetconfServer().datastoreEntries(500).chunkedFraming(true).start();
+				TestingNetconfClient client = connect(server)) {
+			NetconfMessage reply = client.sendMessage(NetconfRpcEncoder.toMessage("3", NetconfRpcEncoder.get(null, null)));
+
+			assertEquals(500, reply.getDocument().getElementsByTagNameNS(LoopbackNetconfServer.TEST_NS, "interface")
+					.getLength());
+			assertTrue(client.getCapabilities().contains("urn:ietf:params:netconf:base:1.1"));
+		}
+	}
+
+	@Test
+	void pipelinesRequestsAndInjectsErrors() throws Exception {
+		try (LoopbackNetconfServer server = new LoopbackNetconfServer().datastoreEntries(1).errorRate(1.0).start();
+				TestingNetconfClient client = connect(server)) {
+			List<CompletableFuture<NetconfMessage>> replies = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				replies.add(client.sendRequestAsync(NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.get(null, null))));
+			}
+			for (CompletableFuture<NetconfMessage> reply : replies) {
+				assertEquals(1, reply.get().getDocument().getElementsByTagNameNS(NetconfRpcEncoder.BASE_NS, "rpc-error")
+						.getLength());
+			}
+			assertEquals(50, server.getRpcCount());
+		}
+	}
+
+	@Test
+	void concurrentRequestsMayReuseMessageIds() throws Exception {
+		try (LoopbackNetconfServer server = new LoopbackNetconfServer().datastoreEntries(1).start();
+				TestingNetconfClient client = connect(server)) {
+			List<CompletableFuture<NetconfMessage>> replies = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				replies.add(client.sendRequestAsync(NetconfRpcEncoder.toMessage("7", NetconfRpcEncoder.get(null, null))));
+			}
+			for (CompletableFuture<NetconfMessage> reply : replies) {
+				assertEquals("7", reply.get().getDocument().getDocumentElement().getAttribute("message-id"));
+			}
+			assertEquals(4, server.getRpcCount());
+		}
+	}
+}
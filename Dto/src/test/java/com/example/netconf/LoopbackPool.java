@@ -0,0 +1,73 @@
+package com.example.netconf;
+
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A {@link NetconfSessionPool} with plain TCP sessions to one
+ * {@link LoopbackNetconfServer}, for tests of what is built on the pool.
+ * Closing it closes the server too.
+ */
+final class LoopbackPool implements AutoCloseable {
+	final LoopbackNetconfServer server;
+	final NetconfPoolProperties properties = new NetconfPoolProperties();
+	final NetconfLimitProperties limits = new NetconfLimitProperties();
+	final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	final NetconfMetrics metrics = new NetconfMetrics(registry);
+	final CapabilityCache capabilityCache;
+	final NetconfSessionPool sessionPool;
+	final NetconfDeviceKey device;
+	private NotificationBus notificationBus;
+
+	private LoopbackPool(LoopbackNetconfServer server, Consumer<LoopbackPool> configure) throws InterruptedException {
+		this.server = server;
+		properties.setSsh(false);
+		properties.setEventLoopThreads(1);
+		configure.accept(this);
+		CapabilityCacheProperties capabilityProperties = new CapabilityCacheProperties();
+		capabilityProperties.setPersistent(false);
+		this.capabilityCache = new CapabilityCache(capabilityProperties);
+		this.sessionPool = new NetconfSessionPool(properties, limits, metrics, capabilityCache);
+		this.device = sessionPool.deviceKey(server.getHost(), server.getPort(), "admin");
+		//opens the first session
+		try {
+			sessionPool.register(device, "admin");
+		} catch (InterruptedException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	//the server must be started; configure adjusts properties and limits before the pool is built
+	static LoopbackPool of(LoopbackNetconfServer server, Consumer<LoopbackPool> configure)
+			throws InterruptedException {
+		return new LoopbackPool(server, configure);
+	}
+
+	static LoopbackPool of(LoopbackNetconfServer server) throws InterruptedException {
+		return of(server, pool -> {
+		});
+	}
+
+	GetConfigCache getConfigCache() {
+		if (notificationBus == null) {
+			notificationBus = new NotificationBus(sessionPool, new NotificationProperties(), metrics);
+		}
+		return new GetConfigCache(sessionPool, properties, new GetConfigCacheProperties(), metrics, registry,
+				notificationBus);
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (notificationBus != null) {
+				notificationBus.destroy();
+			}
+			sessionPool.destroy();
+			capabilityCache.destroy();
+		} finally {
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.netconf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * One message as the {@link LoopbackNetconfServer} received it, without the
+ * framing. The content is a read-only view of the received buffers (a
+ * composite of the chunks for 1.1 framing); the DOM is only built when
+ * {@link #document()} is first called.
+ * <p>
+ * Frames are reference counted; whoever ends up holding one must release it.
+ */
+final class NetconfFrame extends DefaultByteBufHolder {
+	private volatile Document document;
+
+	public NetconfFrame(ByteBuf content) {
+		super(content.isReadOnly() ? content : content.asReadOnly());
+	}
+
+	public int length() {
+		return content().readableBytes();
+	}
+
+	//parsed on first use and kept for later callers
+	public Document document() {
+		Document parsed = document;
+		if (parsed == null) {
+			synchronized (this) {
+				parsed = document;
+				if (parsed == null) {
+					try {
+						parsed = XmlUtil.readXmlToDocument(new ByteBufInputStream(content().duplicate()));
+					} catch (SAXException | IOException e) {
+						throw new IllegalArgumentException("Malformed NETCONF message", e);
+					}
+					document = parsed;
+				}
+			}
+		}
+		return parsed;
+	}
+
+	public NetconfMessage toMessage() {
+		return new NetconfMessage(document());
+	}
+
+	//copies from the buffers to the stream, leaving the frame readable
+	public void writeTo(OutputStream out) throws IOException {
+		ByteBuf content = content();
+		content.getBytes(content.readerIndex(), out, content.readableBytes());
+	}
+
+	@Override
+	public NetconfFrame replace(ByteBuf content) {
+		return new NetconfFrame(content);
+	}
+
+	@Override
+	public NetconfFrame retain() {
+		super.retain();
+		return this;
+	}
+
+	@Override
+	public NetconfFrame retain(int increment) {
+		super.retain(increment);
+		return this;
+	}
+
+	@Override
+	public NetconfFrame touch() {
+		super.touch();
+		return this;
+	}
+
+	@Override
+	public NetconfFrame touch(Object hint) {
+		super.touch(hint);
+		return this;
+	}
+}
@@ -0,0 +1,191 @@
+package com.example.netconf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+
+/**
+ * The {@link LoopbackNetconfServer}'s inbound framing, test scaffolding only:
+ * client sessions keep the framing and DOM messages ODL installs in their
+ * pipeline. Splits the byte stream into {@link NetconfFrame}s, framed by
+ * {@code ]]>]]>} (RFC 6242 section 4.3, base:1.0) until
+ * {@link #useChunkedFraming()} switches to chunks (section 4.2, base:1.1)
+ * once both hellos advertised base:1.1.
+ * <p>
+ * Frames are retained slices of the received buffers and chunks are joined
+ * into a composite buffer.
+ */
+class NetconfFrameDecoder extends ByteToMessageDecoder {
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+	private static final byte[] EOM = "]]>]]>".getBytes(StandardCharsets.US_ASCII);
+	//"\n#" + up to 10 digits + "\n"
+	private static final int MAX_CHUNK_HEADER = 13;
+	private static final long MAX_CHUNK_SIZE = 4294967295L;
+	private static final int MAX_COMPONENTS = 1024;
+
+	private final int maxFrameLength;
+	private boolean chunked;
+	//bytes after the reader index already searched for the end of message marker
+	private int scanned;
+	//chunks of the message being received, and what is left of the current chunk
+	private CompositeByteBuf chunks;
+	private long chunkRemaining;
+
+	public NetconfFrameDecoder() {
+		this(DEFAULT_MAX_FRAME_LENGTH);
+	}
+
+	public NetconfFrameDecoder(int maxFrameLength) {
+		this.maxFrameLength = maxFrameLength;
+		//appends received buffers instead of copying them into one, so retained frames stay zero-copy
+		setCumulator(COMPOSITE_CUMULATOR);
+	}
+
+	//call on the event loop, from the handler that saw the hello, before the next message is decoded
+	public void useChunkedFraming() {
+		chunked = true;
+	}
+
+	public boolean isChunked() {
+		return chunked;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+		if (chunked) {
+			decodeChunks(ctx, in, out);
+		} else {
+			decodeEndOfMessage(in, out);
+		}
+	}
+
+	@Override
+	protected void handlerRemoved0(ChannelHandlerContext ctx) {
+		releaseChunks();
+	}
+
+	private void decodeEndOfMessage(ByteBuf in, List<Object> out) {
+		int end = indexOfEndOfMessage(in);
+		if (end < 0) {
+			if (in.readableBytes() > maxFrameLength + EOM.length) {
+				throw new TooLongFrameException("NETCONF message exceeds " + maxFrameLength + " bytes");
+			}
+			return;
+		}
+		out.add(new NetconfFrame(in.readRetainedSlice(end - in.readerIndex())));
+		in.skipBytes(EOM.length);
+		scanned = 0;
+	}
+
+	private int indexOfEndOfMessage(ByteBuf in) {
+		int last = in.writerIndex() - EOM.length;
+		int from = in.readerIndex() + scanned;
+		while (from <= last) {
+			int candidate = in.indexOf(from, last + 1, EOM[0]);
+			if (candidate < 0) {
+				break;
+			}
+			if (matchesEndOfMessage(in, candidate)) {
+				return candidate;
+			}
+			from = candidate + 1;
+		}
+		//the marker may start in the last few bytes, look at them again next time
+		scanned = Math.max(0, last + 1 - in.readerIndex());
+		return -1;
+	}
+
+	private static boolean matchesEndOfMessage(ByteBuf in, int index) {
+		for (int i = 1; i < EOM.length; i++) {
+			if (in.getByte(index + i) != EOM[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void decodeChunks(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+		while (in.isReadable()) {
+			if (chunkRemaining > 0) {
+				int length = (int) Math.min(chunkRemaining, in.readableBytes());
+				if (chunks == null) {
+					chunks = ctx.alloc().compositeBuffer(MAX_COMPONENTS);
+				}
+				chunks.addComponent(true, in.readRetainedSlice(length));
+				chunkRemaining -= length;
+				continue;
+			}
+			//the shortest header is "\n#1\n" or "\n##\n"
+			if (in.readableBytes() < 4) {
+				return;
+			}
+			if (in.getByte(in.readerIndex()) != '\n' || in.getByte(in.readerIndex() + 1) != '#') {
+				throw corrupted("Expected a chunk header");
+			}
+			int headerEnd = in.indexOf(in.readerIndex() + 2, Math.min(in.writerIndex(),
+					in.readerIndex() + MAX_CHUNK_HEADER), (byte) '\n');
+			if (headerEnd < 0) {
+				if (in.readableBytes() >= MAX_CHUNK_HEADER) {
+					throw corrupted("Chunk header too long");
+				}
+				return;
+			}
+			int sizeStart = in.readerIndex() + 2;
+			if (in.getByte(sizeStart) == '#') {
+				if (headerEnd != sizeStart + 1) {
+					throw corrupted("Malformed end of chunks");
+				}
+				in.readerIndex(headerEnd + 1);
+				if (chunks == null) {
+					throw corrupted("End of chunks without a chunk");
+				}
+				out.add(new NetconfFrame(chunks));
+				chunks = null;
+				continue;
+			}
+			long size = chunkSize(in, sizeStart, headerEnd);
+			int received = chunks == null ? 0 : chunks.readableBytes();
+			if (received + size > maxFrameLength) {
+				releaseChunks();
+				throw new TooLongFrameException("NETCONF message exceeds " + maxFrameLength + " bytes");
+			}
+			in.readerIndex(headerEnd + 1);
+			chunkRemaining = size;
+		}
+	}
+
+	private long chunkSize(ByteBuf in, int start, int end) {
+		long size = 0;
+		for (int i = start; i < end; i++) {
+			byte digit = in.getByte(i);
+			//no leading zero, the size is 1..4294967295
+			if (digit < '0' || digit > '9' || i == start && digit == '0') {
+				throw corrupted("Malformed chunk size");
+			}
+			size = size * 10 + digit - '0';
+		}
+		if (size == 0 || size > MAX_CHUNK_SIZE) {
+			throw corrupted("Malformed chunk size");
+		}
+		return size;
+	}
+
+	private CorruptedFrameException corrupted(String message) {
+		releaseChunks();
+		return new CorruptedFrameException(message);
+	}
+
+	private void releaseChunks() {
+		if (chunks != null) {
+			chunks.release();
+			chunks = null;
+		}
+		chunkRemaining = 0;
+	}
+}
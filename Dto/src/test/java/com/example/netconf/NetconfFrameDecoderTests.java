@@ -0,0 +1,76 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+
+class NetconfFrameDecoderTests {
+
+	private static ByteBuf bytes(String text) {
+		return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+	}
+
+	private static String read(EmbeddedChannel channel) {
+		NetconfFrame frame = channel.readInbound();
+		try {
+			return frame.content().toString(StandardCharsets.UTF_8);
+		} finally {
+			frame.release();
+		}
+	}
+
+	@Test
+	void splitsEndOfMessageFramesAcrossReads() {
+		EmbeddedChannel channel = new EmbeddedChannel(new NetconfFrameDecoder());
+		channel.writeInbound(bytes("<hello/>]]"));
+		assertNull(channel.readInbound());
+		channel.writeInbound(bytes(">]]><rpc message-id=\"1\"/>]]>]]><r"));
+
+		assertEquals("<hello/>", read(channel));
+		assertEquals("<rpc message-id=\"1\"/>", read(channel));
+		assertNull(channel.readInbound());
+		assertFalse(channel.finish());
+	}
+
+	@Test
+	void joinsChunksIntoOneFrame() {
+		NetconfFrameDecoder decoder = new NetconfFrameDecoder();
+		EmbeddedChannel channel = new EmbeddedChannel(decoder);
+		decoder.useChunkedFraming();
+		channel.writeInbound(bytes("\n#4\n<rpc\n#17\n message-id=\"2\"/"));
+		channel.writeInbound(bytes(">\n##\n\n#6\n<ok/>\n\n##\n"));
+
+		NetconfFrame frame = channel.readInbound();
+		assertTrue(frame.content().isReadOnly());
+		assertEquals("2", frame.document().getDocumentElement().getAttribute("message-id"));
+		assertEquals("<rpc message-id=\"2\"/>", frame.content().toString(StandardCharsets.UTF_8));
+		assertTrue(frame.release());
+		assertEquals("<ok/>\n", read(channel));
+		assertFalse(channel.finish());
+	}
+
+	@Test
+	void rejectsMalformedChunks() {
+		NetconfFrameDecoder decoder = new NetconfFrameDecoder();
+		EmbeddedChannel channel = new EmbeddedChannel(decoder);
+		decoder.useChunkedFraming();
+		assertThrows(DecoderException.class, () -> channel.writeInbound(bytes("\n#04\n<rpc")));
+	}
+
+	@Test
+	void rejectsFramesOverTheLimit() {
+		EmbeddedChannel channel = new EmbeddedChannel(new NetconfFrameDecoder(16));
+		assertThrows(DecoderException.class, () -> channel.writeInbound(bytes("<rpc>0123456789012345678901234")));
+	}
+}
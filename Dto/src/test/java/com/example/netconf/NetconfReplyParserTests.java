@@ -0,0 +1,76 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+
+class NetconfReplyParserTests {
+	private static final String REPLY = "<rpc-reply xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"1\">"
+			+ "<data><interfaces xmlns=\"urn:test\" xmlns:ip=\"urn:test:ip\">"
+			+ "<interface><name>eth0</name><ip:address>10.0.0.1</ip:address></interface>"
+			+ "<interface><name>a&amp;b</name><![CDATA[<raw>]]></interface>"
+			+ "</interfaces><interface xmlns=\"urn:other\"><name>other</name></interface></data></rpc-reply>";
+
+	private static List<String> subtrees(String xml, String namespace, String localName) throws XMLStreamException {
+		List<String> subtrees = new ArrayList<>();
+		long count = NetconfReplyParser.forEachSubtree(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+				namespace, localName, subtrees::add);
+		assertEquals(subtrees.size(), count);
+		return subtrees;
+	}
+
+	@Test
+	void emitsEachMatchWithTheNamespacesItUses() throws XMLStreamException {
+		List<String> interfaces = subtrees(REPLY, "urn:test", "interface");
+
+		assertEquals(2, interfaces.size());
+		assertEquals("<interface xmlns=\"urn:test\"><name>eth0</name>"
+				+ "<ip:address xmlns:ip=\"urn:test:ip\">10.0.0.1</ip:address></interface>", interfaces.get(0));
+		//CDATA comes back as escaped text, the content is the same
+		assertEquals("<interface xmlns=\"urn:test\"><name>a&amp;b</name>&lt;raw&gt;</interface>", interfaces.get(1));
+	}
+
+	@Test
+	void nullNamespaceMatchesAnyNamespace() throws XMLStreamException {
+		List<String> interfaces = subtrees(REPLY, null, "interface");
+
+		assertEquals(3, interfaces.size());
+		assertTrue(interfaces.get(2).contains("other"));
+		assertTrue(subtrees(REPLY, "urn:test", "missing").isEmpty());
+	}
+
+	@Test
+	void malformedReplyFails() {
+		assertThrows(XMLStreamException.class,
+				() -> subtrees("<rpc-reply><data><interface></data>", null, "interface"));
+	}
+
+	@Test
+	void readsRpcErrors() throws Exception {
+		NetconfMessage reply = new NetconfMessage(XmlUtil.readXmlToDocument(new ByteArrayInputStream((
+				"<rpc-reply xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"1\"><rpc-error>"
+						+ "<error-tag>invalid-value</error-tag><error-severity>error</error-severity>"
+						+ "<error-path> /t:interfaces </error-path><error-message>Bad</error-message>"
+						+ "</rpc-error></rpc-reply>").getBytes(StandardCharsets.UTF_8))));
+
+		assertTrue(NetconfReplyParser.hasError(reply));
+		List<RpcError> errors = NetconfReplyParser.rpcErrors(reply);
+		assertEquals(1, errors.size());
+		assertEquals("invalid-value", errors.get(0).tag());
+		assertEquals("/t:interfaces", errors.get(0).path());
+		assertFalse(NetconfReplyParser.hasError(new NetconfMessage(XmlUtil.readXmlToDocument(
+				new ByteArrayInputStream(REPLY.getBytes(StandardCharsets.UTF_8))))));
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.w3c.dom.Document;
+
+class NetconfRpcEncoderTests {
+
+	private static String encode(String messageId, NetconfRpcEncoder.RpcBody body) throws XMLStreamException {
+		try (RpcBuffer buffer = RpcBuffer.acquire()) {
+			NetconfRpcEncoder.encode(buffer, messageId, body);
+			return buffer.toString(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void getConfigWithFilter() throws XMLStreamException {
+		assertEquals("<rpc xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"7\">"
+				+ "<get-config><source><running/></source>"
+				+ "<filter type=\"subtree\"><interfaces xmlns=\"urn:test\"></interfaces></filter></get-config></rpc>",
+				encode("7", NetconfRpcEncoder.getConfig("running", "urn:test", "interfaces")));
+	}
+
+	@Test
+	void escapesValues() throws XMLStreamException {
+		assertEquals("<rpc xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"a&quot;b\">"
+				+ "<edit-config><target><running/></target><config>"
+				+ "<interfaces xmlns=\"urn:test\"><interface xmlns:xc=\"urn:ietf:params:xml:ns:netconf:base:1.0\" xc:operation=\"delete\">"
+				+ "<name>eth&lt;0&gt; &amp; co</name></interface></interfaces></config></edit-config></rpc>",
+				encode("a\"b", NetconfRpcEncoder.editConfig("running",
+						NetconfRpcEncoder.listEntry("urn:test", "interfaces", "interface", "delete",
+								Map.of("name", "eth<0> & co")))));
+	}
+
+	@Test
+	void rejectsMalformedFragment() {
+		//before anything is encoded
+		assertThrows(IllegalArgumentException.class, () -> NetconfRpcEncoder.fragment("<interfaces><open>"));
+	}
+
+	@Test
+	void namesTheDomRefusesAreBadArguments() {
+		assertThrows(IllegalArgumentException.class,
+				() -> NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.get("urn:test", "inter faces")));
+	}
+
+	@Test
+	void checksFragmentsOnTheirOwn() {
+		NetconfRpcEncoder.checkFragment("<interfaces xmlns=\"urn:test\"/><system xmlns=\"urn:test\"/>");
+		assertThrows(IllegalArgumentException.class, () -> NetconfRpcEncoder.checkFragment("<interfaces>"));
+		//would only be well-formed joined to the one before
+		assertThrows(IllegalArgumentException.class, () -> NetconfRpcEncoder.checkFragment("</interfaces>"));
+	}
+
+	@Test
+	void messageIsTheDocumentOfTheEncoding() throws Exception {
+		List<NetconfRpcEncoder.RpcBody> bodies = List.of(NetconfRpcEncoder.get("urn:test", "interfaces"),
+				NetconfRpcEncoder.createSubscription("NETCONF"),
+				NetconfRpcEncoder.editConfig("candidate", "rollback-on-error",
+						NetconfRpcEncoder.changes(List.of(new ConfigChange("urn:test", "interfaces", "interface",
+								"name", "delete", Map.of("name", "eth<0>"))))),
+				NetconfRpcEncoder.editConfig("running",
+						NetconfRpcEncoder.fragment("<system xmlns=\"urn:test\"><![CDATA[a<b]]></system>")));
+		for (NetconfRpcEncoder.RpcBody body : bodies) {
+			String encoded = encode("9", body);
+			NetconfMessage message = NetconfRpcEncoder.toMessage("9", body);
+
+			Document parsed = XmlUtil.readXmlToDocument(
+					new ByteArrayInputStream(encoded.getBytes(StandardCharsets.UTF_8)));
+			assertTrue(parsed.isEqualNode(message.getDocument()), encoded);
+			assertEquals(encoded.getBytes(StandardCharsets.UTF_8).length, NetconfRpcEncoder.encodedSize(message));
+		}
+	}
+
+	@Test
+	void rejectsFilterWithoutNamespace() {
+		assertThrows(IllegalArgumentException.class,
+				() -> NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.get(" ", "interfaces")));
+		assertThrows(IllegalArgumentException.class,
+				() -> NetconfRpcEncoder.toMessage("1", NetconfRpcEncoder.getConfig("running", null, "interfaces")));
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.opendaylight.netconf.api.NetconfMessage;
+
+class NetconfSessionPoolTests {
+	private static NetconfMessage get() {
+		return NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.get(null, null));
+	}
+
+	private static NetconfMessage edit(String name) {
+		return NetconfRpcEncoder.toMessage(null, NetconfRpcEncoder.editConfig("running",
+				NetconfRpcEncoder.listEntry(LoopbackNetconfServer.TEST_NS, "interfaces", "interface", "merge",
+						Map.of("name", name))));
+	}
+
+	private static void awaitRpcs(LoopbackNetconfServer server, long count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (server.getRpcCount() < count) {
+			if (System.nanoTime() > deadline) {
+				fail("server saw " + server.getRpcCount() + " of " + count + " rpcs");
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	//a request lost with its session is replayed on a new one when it was never sent or is a read;
+	//an edit-config the device may have applied fails instead
+	@Test
+	void replaysQueuedRequestsAndSentReadsAfterSessionLoss() throws Exception {
+		LoopbackNetconfServer server = new LoopbackNetconfServer().unresponsiveSessions(1).start();
+		try (LoopbackPool pool = LoopbackPool.of(server, configure -> {
+			configure.properties.setMaxSessionsPerDevice(1);
+			configure.properties.setMaxInFlightPerSession(2);
+			configure.properties.setRequestTimeout(Duration.ofSeconds(10));
+			configure.limits.setEnabled(false);
+		})) {
+			//sent in this order on the first session, which fills its window of 2
+			CompletableFuture<NetconfMessage> sentGet = pool.sessionPool.executeAsync(pool.device, get());
+			awaitRpcs(server, 1);
+			CompletableFuture<NetconfMessage> sentEdit = pool.sessionPool.executeAsync(pool.device, edit("eth-sent"));
+			awaitRpcs(server, 2);
+			//queued behind the full window, no other session may be opened
+			CompletableFuture<NetconfMessage> queuedGet = pool.sessionPool.executeAsync(pool.device, get());
+			CompletableFuture<NetconfMessage> queuedEdit = pool.sessionPool.executeAsync(pool.device,
+					edit("eth-queued"));
+			Thread.sleep(200);
+			assertEquals(2, server.getRpcCount());
+
+			server.dropSessions();
+
+			assertFalse(NetconfReplyParser.hasError(sentGet.get(10, TimeUnit.SECONDS)));
+			assertFalse(NetconfReplyParser.hasError(queuedGet.get(10, TimeUnit.SECONDS)));
+			assertFalse(NetconfReplyParser.hasError(queuedEdit.get(10, TimeUnit.SECONDS)));
+			try {
+				sentEdit.get(10, TimeUnit.SECONDS);
+				fail("a sent edit-config must not be replayed");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SessionDownException down && down.isSent(), e.toString());
+			}
+			assertEquals(List.of("eth-queued"), server.getAppliedKeys());
+			assertEquals(1, pool.sessionPool.sessionCount(pool.device));
+		}
+	}
+}
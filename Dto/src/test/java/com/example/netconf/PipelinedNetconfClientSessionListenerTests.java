@@ -0,0 +1,218 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.opendaylight.netconf.client.NetconfClientSession;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+class PipelinedNetconfClientSessionListenerTests {
+	private final EmbeddedChannel channel = new EmbeddedChannel();
+	//the message-id of every rpc as it went out, before the caller's is put back
+	private final List<String> sent = new ArrayList<>();
+	private NetconfClientSession session;
+
+	@BeforeEach
+	void setUp() {
+		session = mock(NetconfClientSession.class);
+		when(session.sendMessage(any())).thenAnswer(invocation -> {
+			NetconfMessage message = invocation.getArgument(0);
+			sent.add(message.getDocument().getDocumentElement().getAttribute("message-id"));
+			return channel.newSucceededFuture();
+		});
+	}
+
+	private PipelinedNetconfClientSessionListener listener(int maxInFlight) {
+		return listener(maxInFlight, PipelinedNetconfClientSessionListener.DEFAULT_MAX_QUEUED);
+	}
+
+	private PipelinedNetconfClientSessionListener listener(int maxInFlight, int maxQueued) {
+		PipelinedNetconfClientSessionListener listener = new PipelinedNetconfClientSessionListener(maxInFlight,
+				maxQueued);
+		listener.onSessionUp(session);
+		return listener;
+	}
+
+	private static NetconfMessage get(String messageId) {
+		return NetconfRpcEncoder.toMessage(messageId, NetconfRpcEncoder.get(null, null));
+	}
+
+	private void reply(PipelinedNetconfClientSessionListener listener, String messageId, String data) throws Exception {
+		listener.onMessage(session, new NetconfMessage(XmlUtil.readXmlToDocument(new ByteArrayInputStream((
+				"<rpc-reply xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"" + messageId
+						+ "\"><data>" + data + "</data></rpc-reply>").getBytes(StandardCharsets.UTF_8)))));
+	}
+
+	private static String messageId(CompletableFuture<NetconfMessage> future) {
+		return future.join().getDocument().getDocumentElement().getAttribute("message-id");
+	}
+
+	private static String data(CompletableFuture<NetconfMessage> future) {
+		return future.join().getDocument().getDocumentElement().getTextContent();
+	}
+
+	private static SessionDownException sessionDown(CompletableFuture<NetconfMessage> future) {
+		ExecutionException failure = assertThrows(ExecutionException.class, future::get);
+		return assertInstanceOf(SessionDownException.class, failure.getCause());
+	}
+
+	@Test
+	void queuesOverTheWindowAndSendsAsRepliesComeBack() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(2);
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(get("a"));
+		CompletableFuture<NetconfMessage> second = listener.sendRequest(get("b"));
+		CompletableFuture<NetconfMessage> third = listener.sendRequest(get("c"));
+
+		assertEquals(List.of("p-1", "p-2"), sent);
+		assertEquals(2, listener.getInFlight());
+		assertEquals(1, listener.getQueued());
+
+		reply(listener, "p-1", "one");
+		assertEquals("a", messageId(first));
+		assertEquals(List.of("p-1", "p-2", "p-3"), sent);
+		assertEquals(0, listener.getQueued());
+
+		reply(listener, "p-2", "two");
+		reply(listener, "p-3", "three");
+		assertEquals("three", data(third));
+		assertTrue(second.isDone());
+		assertEquals(0, listener.getInFlight());
+	}
+
+	@Test
+	void matchesRepliesThatComeBackOutOfOrder() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(4);
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(get("a"));
+		CompletableFuture<NetconfMessage> second = listener.sendRequest(get("b"));
+		CompletableFuture<NetconfMessage> third = listener.sendRequest(get(null));
+
+		reply(listener, "p-3", "three");
+		reply(listener, "p-2", "two");
+		assertFalse(first.isDone());
+		reply(listener, "p-1", "one");
+
+		assertEquals("one", data(first));
+		assertEquals("a", messageId(first));
+		assertEquals("two", data(second));
+		assertEquals("b", messageId(second));
+		//no id of its own: the reply keeps the session's
+		assertEquals("p-3", messageId(third));
+	}
+
+	@Test
+	void keepsCallersWithTheSameIdApartAndDropsRepeatedReplies() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(4);
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(get("1"));
+		CompletableFuture<NetconfMessage> second = listener.sendRequest(get("1"));
+		assertEquals(List.of("p-1", "p-2"), sent);
+
+		reply(listener, "p-2", "two");
+		reply(listener, "p-2", "again");
+		reply(listener, "p-9", "unknown");
+		reply(listener, "p-1", "one");
+
+		assertEquals("one", data(first));
+		assertEquals("two", data(second));
+		assertEquals("1", messageId(first));
+		assertEquals("1", messageId(second));
+		assertEquals(0, listener.getInFlight());
+	}
+
+	@Test
+	void sendsACopyAndLeavesTheCallersMessageAlone() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(4);
+		NetconfMessage message = get("a");
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(message);
+		CompletableFuture<NetconfMessage> again = listener.sendRequest(message);
+
+		assertEquals(List.of("p-1", "p-2"), sent);
+		assertEquals("a", message.getDocument().getDocumentElement().getAttribute("message-id"));
+		reply(listener, "p-2", "two");
+		reply(listener, "p-1", "one");
+		assertEquals("one", data(first));
+		assertEquals("two", data(again));
+	}
+
+	@Test
+	void aFullQueueTurnsRequestsAway() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(1, 1);
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(get("a"));
+		CompletableFuture<NetconfMessage> queued = listener.sendRequest(get("b"));
+		CompletableFuture<NetconfMessage> rejected = listener.sendRequest(get("c"));
+
+		ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+		assertInstanceOf(DeviceOverloadedException.class, failure.getCause());
+		assertEquals(List.of("p-1"), sent);
+		reply(listener, "p-1", "one");
+		reply(listener, "p-2", "two");
+		assertEquals("one", data(first));
+		assertEquals("two", data(queued));
+	}
+
+	@Test
+	void timeoutsGiveTheirSlotBack() throws Exception {
+		PipelinedNetconfClientSessionListener listener = listener(1);
+
+		CompletableFuture<NetconfMessage> first = listener.sendRequest(get("a"));
+		CompletableFuture<NetconfMessage> second = listener.sendRequest(get("b"));
+		CompletableFuture<NetconfMessage> third = listener.sendRequest(get("c"));
+		assertEquals(List.of("p-1"), sent);
+
+		//the caller gives up on the one in flight: the next queued request goes out
+		first.completeExceptionally(new TimeoutException("a"));
+		assertEquals(List.of("p-1", "p-2"), sent);
+		//one that timed out while queued is never sent
+		third.completeExceptionally(new TimeoutException("c"));
+		CompletableFuture<NetconfMessage> fourth = listener.sendRequest(get("d"));
+
+		reply(listener, "p-1", "late");
+		reply(listener, "p-2", "two");
+		assertEquals("two", data(second));
+		assertEquals(List.of("p-1", "p-2", "p-4"), sent);
+		reply(listener, "p-4", "four");
+		assertEquals("four", data(fourth));
+		assertEquals(0, listener.getInFlight());
+		assertEquals(0, listener.getQueued());
+	}
+
+	@Test
+	void sessionLossTellsSentRequestsFromQueuedOnes() {
+		PipelinedNetconfClientSessionListener listener = listener(1);
+
+		CompletableFuture<NetconfMessage> inFlight = listener.sendRequest(get("a"));
+		CompletableFuture<NetconfMessage> queued = listener.sendRequest(get("b"));
+		listener.onSessionDown(session, new IllegalStateException("closed"));
+
+		assertTrue(sessionDown(inFlight).isSent());
+		assertFalse(sessionDown(queued).isSent());
+		assertFalse(listener.isUp());
+		assertEquals(0, listener.getInFlight());
+		assertEquals(0, listener.getQueued());
+		assertFalse(sessionDown(listener.sendRequest(get("c"))).isSent());
+		assertEquals(List.of("p-1"), sent);
+	}
+}
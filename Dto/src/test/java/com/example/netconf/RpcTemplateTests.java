@@ -0,0 +1,59 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RpcTemplateTests {
+
+	private static final RpcTemplate GET_INTERFACE = RpcTemplate.compile("get-interface",
+			"<get><filter type=\"subtree\"><interfaces xmlns=\"{{namespace:urn:test}}\">"
+					+ "<interface><name>{{name}}</name></interface></interfaces></filter></get>");
+
+	private static String render(RpcTemplate template, String messageId, Map<String, String> params)
+			throws IOException {
+		try (RpcBuffer buffer = RpcBuffer.acquire()) {
+			template.render(buffer, messageId, params);
+			return buffer.toString(StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void bindsParametersAndDefaults() throws IOException {
+		assertEquals(List.of("namespace", "name"), GET_INTERFACE.parameters());
+		assertEquals("get", GET_INTERFACE.getOperation());
+		assertEquals("<rpc xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"7\">"
+				+ "<get><filter type=\"subtree\"><interfaces xmlns=\"urn:test\">"
+				+ "<interface><name>eth0</name></interface></interfaces></filter></get></rpc>",
+				render(GET_INTERFACE, "7", Map.of("name", "eth0")));
+	}
+
+	@Test
+	void escapesValues() throws IOException {
+		assertEquals("<rpc xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"a&quot;b\">"
+				+ "<get><filter type=\"subtree\"><interfaces xmlns=\"urn:x&apos;y\">"
+				+ "<interface><name>&lt;eth0/&gt; &amp; é😀</name></interface></interfaces></filter></get></rpc>",
+				render(GET_INTERFACE, "a\"b", Map.of("name", "<eth0/> & é😀", "namespace", "urn:x'y")));
+	}
+
+	@Test
+	void rejectsMissingParameterAndMalformedTemplate() {
+		assertThrows(IllegalArgumentException.class, () -> GET_INTERFACE.toMessage("1", Map.of()));
+		assertThrows(IllegalArgumentException.class, () -> RpcTemplate.compile("open", "<get><filter>{{x}}</get>"));
+		assertThrows(IllegalArgumentException.class, () -> RpcTemplate.compile("slot", "<get>{{x</get>"));
+	}
+
+	@Test
+	void operationIsTheFirstElementOfTheBody() {
+		assertEquals("commit", RpcTemplate.compile("commit", "<!-- confirmed --> <commit/>").getOperation());
+		assertEquals("edit-config", RpcTemplate.compile("edit",
+				"<edit-config><target><running/></target><config>{{config}}</config></edit-config>").getOperation());
+		assertThrows(IllegalArgumentException.class, () -> RpcTemplate.compile("text", "only text"));
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.dto.BatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class SweepJournalTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@TempDir
+	Path directory;
+
+	private static BatchResult result(int line) {
+		return new BatchResult(line, "admin@10.0.0." + line + ":830", "get-config", BatchResult.Status.OK);
+	}
+
+	//what zcat results-* would print
+	private List<Integer> written() throws IOException {
+		List<Integer> lines = new ArrayList<>();
+		for (int i = 0; Files.exists(SweepJournal.segmentFile(directory, i)); i++) {
+			//GZIPInputStream reads on across concatenated members
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new GZIPInputStream(Files.newInputStream(SweepJournal.segmentFile(directory, i))),
+					StandardCharsets.UTF_8))) {
+				String json;
+				while ((json = reader.readLine()) != null) {
+					lines.add(objectMapper.readTree(json).get("index").asInt());
+				}
+			}
+		}
+		return lines;
+	}
+
+	@Test
+	void resumesFromLastCheckpointAndDropsLaterWrites() throws IOException {
+		//small segments, so every member after the first starts a new file
+		try (SweepJournal journal = SweepJournal.open(directory, "digest", 1, objectMapper)) {
+			journal.append(List.of(result(1), result(2)));
+			journal.append(List.of(result(5)));
+		}
+		//a crash halfway through the next member and its checkpoint line
+		Files.write(SweepJournal.segmentFile(directory, 2), new byte[] { 0x1f, (byte) 0x8b, 8 });
+		Files.writeString(directory.resolve(SweepJournal.CHECKPOINT), "2 3 8", StandardOpenOption.APPEND);
+
+		try (SweepJournal journal = SweepJournal.open(directory, "digest", 1, objectMapper)) {
+			assertEquals(3, journal.resumedCount());
+			assertTrue(journal.isResumed(5));
+			assertFalse(journal.isResumed(8));
+			journal.append(List.of(result(8)));
+		}
+		assertEquals(List.of(1, 2, 5, 8), written());
+	}
+
+	@Test
+	void refusesDirectoryOfAnotherInput() throws IOException {
+		SweepJournal.open(directory, "digest", 80, objectMapper).close();
+
+		assertThrows(IllegalStateException.class, () -> SweepJournal.open(directory, "other", 80, objectMapper));
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.netconf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.dto.TransactionResult;
+import com.example.dto.TransactionResult.DeviceResult;
+
+class TransactionCoordinatorTests {
+	private static final String CONFIG = "<interfaces xmlns=\"" + LoopbackNetconfServer.TEST_NS + "\" xmlns:nc=\""
+			+ NetconfRpcEncoder.BASE_NS + "\"><interface nc:operation=\"merge\"><name>eth0</name></interface></interfaces>";
+
+	private final TransactionProperties properties = new TransactionProperties();
+	private LoopbackPool pool;
+	private LoopbackNetconfServer second;
+	private NetconfDeviceKey secondDevice;
+	private TransactionCoordinator coordinator;
+
+	@AfterEach
+	void tearDown() {
+		if (coordinator != null) {
+			coordinator.destroy();
+		}
+		if (pool != null) {
+			pool.close();
+		}
+		if (second != null) {
+			second.close();
+		}
+	}
+
+	//two loopback devices behind one pool
+	private void start(LoopbackNetconfServer first, LoopbackNetconfServer other) throws InterruptedException {
+		pool = LoopbackPool.of(first.start());
+		second = other.start();
+		secondDevice = pool.sessionPool.deviceKey(second.getHost(), second.getPort(), "admin");
+		pool.sessionPool.register(secondDevice, "admin");
+		coordinator = new TransactionCoordinator(pool.sessionPool, pool.getConfigCache(), properties, pool.metrics);
+	}
+
+	private TransactionResult execute() throws InterruptedException {
+		Map<NetconfDeviceKey, String> configs = new LinkedHashMap<>();
+		configs.put(pool.device, CONFIG);
+		configs.put(secondDevice, CONFIG);
+		return coordinator.execute(configs, true);
+	}
+
+	@Test
+	void commitsOnEveryDevice() throws Exception {
+		start(new LoopbackNetconfServer(), new LoopbackNetconfServer());
+
+		TransactionResult result = execute();
+
+		assertTrue(result.isCommitted());
+		for (DeviceResult device : result.getDevices()) {
+			assertEquals(TransactionResult.Status.COMMITTED, device.getStatus());
+			assertEquals("candidate", device.getMode());
+			assertNull(device.getPhase());
+		}
+		assertEquals(List.of("eth0"), pool.server.getAppliedKeys());
+		assertEquals(List.of("eth0"), second.getAppliedKeys());
+	}
+
+	@Test
+	void rollsTheOthersBackWhenOneDeviceRejectsTheEdit() throws Exception {
+		start(new LoopbackNetconfServer(), new LoopbackNetconfServer().rejectKeys("eth0"));
+
+		TransactionResult result = execute();
+
+		assertFalse(result.isCommitted());
+		assertEquals(TransactionResult.Status.ROLLED_BACK, result.getDevices().get(0).getStatus());
+		DeviceResult failed = result.getDevices().get(1);
+		assertEquals(TransactionResult.Status.FAILED, failed.getStatus());
+		assertEquals("edit", failed.getPhase());
+		assertTrue(failed.getError().contains("Rejected eth0"), failed.getError());
+		//the first device's edit reached its candidate only and was discarded, never committed
+		assertEquals(List.of("eth0"), pool.server.getAppliedKeys());
+		assertEquals(2, pool.server.getEditCount() + second.getEditCount());
+	}
+
+	@Test
+	void aDeviceThatStopsAnsweringFailsItsPhase() throws Exception {
+		properties.setPhaseTimeout(Duration.ofMillis(300));
+		//the login's session goes to the shared sessions, the transaction opens the second
+		start(new LoopbackNetconfServer(), new LoopbackNetconfServer().unresponsiveSessions(2));
+
+		long start = System.nanoTime();
+		TransactionResult result = execute();
+
+		assertFalse(result.isCommitted());
+		assertTrue(result.getElapsedMs() < 10_000, "elapsed " + result.getElapsedMs());
+		assertEquals(TransactionResult.Status.ROLLED_BACK, result.getDevices().get(0).getStatus());
+		DeviceResult failed = result.getDevices().get(1);
+		assertEquals(TransactionResult.Status.FAILED, failed.getStatus());
+		assertEquals("lock", failed.getPhase());
+		assertTrue(failed.getError().startsWith("Timed out"), failed.getError());
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(300).toNanos());
+	}
+
+	@Test
+	void aCommitThatIsNeverAnsweredLeavesTheDeviceInDoubt() throws Exception {
+		properties.setPhaseTimeout(Duration.ofMillis(300));
+		start(new LoopbackNetconfServer(), new LoopbackNetconfServer().unanswered("commit"));
+
+		TransactionResult result = execute();
+
+		assertFalse(result.isCommitted());
+		//the first device's commit went through, the second's may have
+		assertEquals(TransactionResult.Status.IN_DOUBT, result.getDevices().get(0).getStatus());
+		DeviceResult unanswered = result.getDevices().get(1);
+		assertEquals(TransactionResult.Status.IN_DOUBT, unanswered.getStatus());
+		assertEquals("commit", unanswered.getPhase());
+		assertTrue(unanswered.getError().contains("may have applied"), unanswered.getError());
+	}
+}
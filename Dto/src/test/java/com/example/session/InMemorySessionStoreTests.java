@@ -0,0 +1,122 @@
+package com.example.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.dto.LoginData;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InMemorySessionStoreTests {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private InMemorySessionStore store(Duration ttl, int maxSessions) {
+		SessionStoreProperties properties = new SessionStoreProperties();
+		properties.setIdleTtl(ttl);
+		properties.setMaxSessions(maxSessions);
+		return new InMemorySessionStore(properties, clock::get);
+	}
+
+	private static LoginData login(String sessionId) {
+		return new LoginData("admin", "LOGIN", "10.0.0.1", 2022, sessionId);
+	}
+
+	@Test
+	void idleSessionsExpireOnLookupAndReap() {
+		InMemorySessionStore store = store(Duration.ofSeconds(10), 100);
+		store.put("a", login("a"));
+		store.put("b", login("b"));
+
+		clock.addAndGet(Duration.ofSeconds(5).toNanos());
+		assertTrue(store.get("a").isPresent());
+
+		clock.addAndGet(Duration.ofSeconds(6).toNanos());
+		assertTrue(store.get("b").isEmpty());
+		store.reap();
+		assertTrue(store.get("a").isPresent());
+
+		SessionStoreStats stats = store.stats();
+		assertEquals(1, stats.size());
+		assertEquals(1, stats.expirations());
+		assertEquals(3, stats.lookups());
+		assertEquals(2, stats.hits());
+	}
+
+	@Test
+	void capEvictsLeastRecentlyUsed() {
+		InMemorySessionStore store = store(Duration.ofMinutes(1), 2);
+		store.put("a", login("a"));
+		clock.incrementAndGet();
+		store.put("b", login("b"));
+		clock.incrementAndGet();
+		store.get("a");
+		clock.incrementAndGet();
+		store.put("c", login("c"));
+
+		assertEquals(2, store.size());
+		assertTrue(store.get("b").isEmpty());
+		assertTrue(store.get("a").isPresent());
+		assertEquals(1, store.stats().evictions());
+	}
+
+	@Test
+	void statsAreExportedAsMeters() {
+		InMemorySessionStore store = store(Duration.ofMinutes(1), 1);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		store.registerMeters(registry);
+		store.put("a", login("a"));
+		store.put("b", login("b"));
+		store.get("a");
+		store.get("b");
+
+		assertEquals(1.0, registry.get("sessions.store.size").gauge().value());
+		assertEquals(2.0, registry.get("sessions.store.lookups").functionCounter().count());
+		assertEquals(1.0, registry.get("sessions.store.hits").functionCounter().count());
+		assertEquals(1.0, registry.get("sessions.store.evictions").functionCounter().count());
+	}
+
+	@Test
+	void removalListenerSeesEverySessionOnce() {
+		InMemorySessionStore store = store(Duration.ofSeconds(10), 2);
+		List<String> removed = new ArrayList<>();
+		store.addRemovalListener(loginData -> removed.add(loginData.getSessionId()));
+		store.put("a", login("a"));
+		clock.incrementAndGet();
+		store.put("b", login("b"));
+		clock.incrementAndGet();
+		store.put("c", login("c"));
+		store.remove("b");
+		store.remove("b");
+
+		clock.addAndGet(Duration.ofSeconds(11).toNanos());
+		store.get("c");
+		store.reap();
+
+		assertEquals(List.of("a", "b", "c"), removed);
+	}
+
+	@Test
+	void capKeepsRecentSessionsWhereverTheyHash() {
+		InMemorySessionStore store = store(Duration.ofMinutes(1), 1000);
+		for (int i = 0; i < 2000; i++) {
+			clock.incrementAndGet();
+			store.put("session-" + i, login("session-" + i));
+		}
+
+		int recent = 0;
+		for (int i = 1000; i < 2000; i++) {
+			recent += store.get("session-" + i).isPresent() ? 1 : 0;
+		}
+		//a sampled LRU keeps most of the newer half, evicting in bucket order kept less than half
+		assertEquals(1000, store.size());
+		assertTrue(recent > 850, recent + " recent sessions kept");
+	}
+}
@@ -0,0 +1,62 @@
+package com.example.shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class BatchInputReaderTests {
+
+	private static List<BatchInputReader.Entry> read(BatchInputReader.Format format, String text) throws Exception {
+		List<BatchInputReader.Entry> entries = new ArrayList<>();
+		try (BatchInputReader reader = new BatchInputReader(new BufferedReader(new StringReader(text)), format,
+				new ObjectMapper())) {
+			reader.forEachRemaining(entries::add);
+		}
+		return entries;
+	}
+
+	@Test
+	void readsJsonLinesAndKeepsMalformedLines() throws Exception {
+		List<BatchInputReader.Entry> entries = read(BatchInputReader.Format.JSON,
+				"{\"ip\":\"10.0.0.1\",\"port\":830,\"operation\":\"get-config\",\"payload\":{\"datastore\":\"candidate\"}}\n"
+						+ "\n# comment\n{not json\n");
+
+		assertEquals(2, entries.size());
+		assertEquals(830, entries.get(0).port());
+		assertEquals(Map.of("datastore", "candidate"), entries.get(0).payload());
+		assertNull(entries.get(0).error());
+		assertEquals(4, entries.get(1).line());
+		assertNotNull(entries.get(1).error());
+	}
+
+	@Test
+	void readsCsvWithHeaderAndQuotedFields() throws Exception {
+		List<BatchInputReader.Entry> entries = read(BatchInputReader.Format.CSV,
+				"ip,operation,filter\n10.0.0.2,get,\"<a x=\"\"1\"\"/>, b\"\n10.0.0.3,,\n");
+
+		assertEquals(2, entries.size());
+		assertEquals("<a x=\"1\"/>, b", entries.get(0).payload().get("filter"));
+		assertEquals("No operation", entries.get(1).error());
+	}
+
+	@Test
+	void readsYamlDocumentsAndLists() throws Exception {
+		List<BatchInputReader.Entry> entries = read(BatchInputReader.Format.YAML,
+				"ip: 10.0.0.4\noperation: get\n---\n- {ip: 10.0.0.5, operation: edit-config, config: <x/>}\n"
+						+ "- {ip: 10.0.0.6, operation: get, port: abc}\n");
+
+		assertEquals(3, entries.size());
+		assertEquals("<x/>", entries.get(1).payload().get("config"));
+		assertEquals("Invalid port abc", entries.get(2).error());
+	}
+}
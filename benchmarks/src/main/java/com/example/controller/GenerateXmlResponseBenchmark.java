@@ -0,0 +1,114 @@
+package com.example.controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.xml.sax.SAXException;
+
+import com.example.netconf.NetconfRpcEncoder;
+
+/**
+ * The REST controller's rpc generation against NetconfRpcEncoder.forOperation,
+ * which replaced it.
+ * <p>
+ * {@code stringConcatenation} is the original generateXmlResponse. It is only
+ * a floor: its output is not a valid rpc (no namespace, a
+ * {@code messageId} attribute) and stays a String, while forOperation builds
+ * the DOM a session sends. {@code stringConcatenationParsed} is the like for
+ * like comparison: the same concatenation fixed to produce exactly the
+ * encoder's rpc, then parsed into a {@link NetconfMessage}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerateXmlResponseBenchmark {
+
+	@Param({ "get", "get-config", "edit-config" })
+	public String operation;
+
+	private final Map<String, String> request = new HashMap<>();
+
+	@Benchmark
+	public String stringConcatenation() {
+		return generateXmlResponse(operation, "101");
+	}
+
+	@Benchmark
+	public NetconfMessage stringConcatenationParsed() throws SAXException, IOException {
+		return new NetconfMessage(XmlUtil.readXmlToDocument(validRpc(operation, "101")));
+	}
+
+	@Benchmark
+	public NetconfMessage forOperation() {
+		return NetconfRpcEncoder.forOperation(operation, "101", request);
+	}
+
+	//the document forOperation builds for a request without parameters
+	private static String validRpc(String operation, String messageId) {
+		String rpc = "<rpc xmlns=\"" + NetconfRpcEncoder.BASE_NS + "\" message-id=\"" + messageId + "\">";
+		switch (operation) {
+		case "get":
+			return rpc + "<get/></rpc>";
+		case "get-config":
+			return rpc + "<get-config><source><running/></source></get-config></rpc>";
+		case "edit-config":
+			return rpc + "<edit-config><target><running/></target><config/></edit-config></rpc>";
+		default:
+			throw new IllegalArgumentException("Invalid operation " + operation);
+		}
+	}
+
+	//AuthController.generateXmlResponse as it was before the encoder
+	private static String generateXmlResponse(String operation, String messageId) {
+		switch (operation) {
+		case "get":
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<rpc messageId = \"" + messageId + "\">\n" +
+					"<get>\n" +
+					"<filter type =\"subtree\"></filter>\n" +
+					"</get>\n" +
+					"</rpc>";
+		case "get-config":
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<rpc messageId = \"" + messageId + "\">\n" +
+					"<get-config>\n" +
+					"<source>\n" +
+					"<running/>\n" +
+					"</source>\n" +
+					"</get-config>\n" +
+					"</rpc>";
+		case "edit-config":
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<rpc messageId = \"" + messageId + "\">\n" +
+					"<edit-config>\n" +
+					"<target>\n" +
+					"<running/>\n" +
+					"</target>\n" +
+					"<config>\n" +
+					"<data>\n" +
+					"    " + "" + "\n" +
+					"</data>\n" +
+					"</edit-config>\n" +
+					"</rpc>";
+		default:
+			return "<error>Invalid operation</error>";
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.netconf;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.xml.sax.SAXException;
+
+/**
+ * Parsing and serializing {@code <get>} replies of 1 KB, 1 MB and 50 MB.
+ * Run with -prof gc to compare allocation between the DOM and streaming paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ReplyCodecBenchmark {
+
+	@Param({ "1024", "1048576", "52428800" })
+	public int replyBytes;
+
+	private byte[] reply;
+	private NetconfMessage parsed;
+
+	@Setup(Level.Trial)
+	public void setUp() throws SAXException, IOException {
+		reply = generateReply(replyBytes);
+		parsed = new NetconfMessage(XmlUtil.readXmlToDocument(new ByteArrayInputStream(reply)));
+	}
+
+	static byte[] generateReply(int size) {
+		StringBuilder xml = new StringBuilder(size + 256);
+		xml.append("<rpc-reply xmlns=\"urn:ietf:params:xml:ns:netconf:base:1.0\" message-id=\"1\"><data>")
+				.append("<interfaces xmlns=\"urn:test\">");
+		for (int i = 0; xml.length() < size; i++) {
+			xml.append("<interface><name>eth").append(i).append("</name><enable>true</enable><ip-address>10.")
+					.append((i >> 16) & 0xff).append('.').append((i >> 8) & 0xff).append('.').append(i & 0xff)
+					.append("</ip-address></interface>");
+		}
+		xml.append("</interfaces></data></rpc-reply>");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public NetconfMessage parseDom() throws SAXException, IOException {
+		return new NetconfMessage(XmlUtil.readXmlToDocument(new ByteArrayInputStream(reply)));
+	}
+
+	//what the CLI used to print: the whole reply as one String
+	@Benchmark
+	public String serializeDomToString() {
+		return parsed.toString();
+	}
+
+	@Benchmark
+	public void serializeDomToStream(Blackhole blackhole) {
+		NetconfReplyParser.writeTo(parsed, new OutputStream() {
+			@Override
+			public void write(int b) {
+				blackhole.consume(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				blackhole.consume(len);
+			}
+		});
+	}
+
+	@Benchmark
+	public long streamInterfaceEntries(Blackhole blackhole) throws XMLStreamException {
+		return NetconfReplyParser.forEachSubtree(new ByteArrayInputStream(reply), "urn:test", "interface",
+				blackhole::consume);
+	}
+}
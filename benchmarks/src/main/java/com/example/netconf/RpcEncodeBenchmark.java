@@ -0,0 +1,126 @@
+package com.example.netconf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opendaylight.netconf.api.NetconfMessage;
+import org.opendaylight.netconf.api.xml.XmlUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Building each RPC type: the DOM construction the CLI builders used to do,
+ * the streaming encoder writing bytes, and the encoder producing the
+ * NetconfMessage the ODL session needs, against encoding to bytes and
+ * parsing them back as it did before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RpcEncodeBenchmark {
+
+	@Param({ "get", "get-filter", "edit-config", "delete-config" })
+	public String rpc;
+
+	private NetconfRpcEncoder.RpcBody body;
+	private final Map<String, String> leaves = new LinkedHashMap<>();
+
+	@Setup
+	public void setUp() {
+		leaves.put("name", "eth0");
+		leaves.put("enable", "true");
+		leaves.put("ip-address", "10.0.0.1");
+		body = switch (rpc) {
+		case "get" -> NetconfRpcEncoder.get(null, null);
+		case "get-filter" -> NetconfRpcEncoder.get("urn:test", "interfaces");
+		case "edit-config" -> NetconfRpcEncoder.editConfig("running",
+				NetconfRpcEncoder.listEntry("urn:test", "interfaces", "interface", null, leaves));
+		case "delete-config" -> NetconfRpcEncoder.editConfig("running",
+				NetconfRpcEncoder.listEntry("urn:test", "interfaces", "interface", "delete", Map.of("name", "eth0")));
+		default -> throw new IllegalArgumentException(rpc);
+		};
+	}
+
+	@Benchmark
+	public Document domBuilder() {
+		Document doc = XmlUtil.newDocument();
+		Element rpcElement = doc.createElementNS(NetconfRpcEncoder.BASE_NS, "rpc");
+		rpcElement.setAttribute("message-id", "101");
+		doc.appendChild(rpcElement);
+		switch (rpc) {
+		case "get" -> rpcElement.appendChild(doc.createElement("get"));
+		case "get-filter" -> {
+			Element get = doc.createElement("get");
+			rpcElement.appendChild(get);
+			Element filter = doc.createElement("filter");
+			filter.setAttribute("type", "subtree");
+			get.appendChild(filter);
+			Element container = doc.createElement("interfaces");
+			container.setAttribute("xmlns", "urn:test");
+			filter.appendChild(container);
+		}
+		default -> {
+			Element editConfig = doc.createElement("edit-config");
+			rpcElement.appendChild(editConfig);
+			Element target = doc.createElement("target");
+			target.appendChild(doc.createElement("running"));
+			editConfig.appendChild(target);
+			Element config = doc.createElement("config");
+			editConfig.appendChild(config);
+			Element interfaces = doc.createElement("interfaces");
+			interfaces.setAttribute("xmlns", "urn:test");
+			config.appendChild(interfaces);
+			Element entry = doc.createElement("interface");
+			interfaces.appendChild(entry);
+			Map<String, String> values = rpc.equals("delete-config") ? Map.of("name", "eth0") : leaves;
+			if (rpc.equals("delete-config")) {
+				entry.setAttribute("operation", "delete");
+			}
+			for (Map.Entry<String, String> leaf : values.entrySet()) {
+				Element element = doc.createElement(leaf.getKey());
+				element.setTextContent(leaf.getValue());
+				entry.appendChild(element);
+			}
+		}
+		}
+		return doc;
+	}
+
+	@Benchmark
+	public int streamingEncoder() throws XMLStreamException {
+		try (RpcBuffer buffer = RpcBuffer.acquire()) {
+			NetconfRpcEncoder.encode(buffer, "101", body);
+			return buffer.size();
+		}
+	}
+
+	@Benchmark
+	public NetconfMessage streamingEncoderToMessage() {
+		return NetconfRpcEncoder.toMessage("101", body);
+	}
+
+	@Benchmark
+	public NetconfMessage streamingEncoderParsed() throws Exception {
+		try (RpcBuffer buffer = RpcBuffer.acquire()) {
+			NetconfRpcEncoder.encode(buffer, "101", body);
+			return new NetconfMessage(XmlUtil.readXmlToDocument(buffer.asInputStream()));
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.example.reactive;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.dto.DtoApplication;
+import com.example.netconf.LoopbackNetconfServer;
+
+/**
+ * Holds many concurrent {@code /get} requests open against one slow loopback
+ * device and compares throughput, latency, peak threads and peak heap of the
+ * gateway modes: {@code servlet} (Spring MVC on Tomcat's platform threads),
+ * {@code virtual} (the same with {@code spring.threads.virtual.enabled}) and
+ * {@code reactive} (WebFlux on Netty).
+ * <p>
+ * Each gateway runs alone in a child JVM with the given {@code -Xmx}; the
+ * loopback device and the HTTP client stay in this one, so the thread and
+ * heap figures are the gateway's own. Peak heap is the sum of the peaks of
+ * the heap pools while the requests were out, not what is left after a GC.
+ *
+ * <pre>
+ * mvn -B -P gateway verify -pl benchmarks -Dgateway.requests=5000 -Dgateway.device-delay=1000 -Dgateway.heap=512m
+ * </pre>
+ */
+public class GatewayConcurrencyBenchmark {
+	private static final String[] MODES = { "servlet", "virtual", "reactive" };
+	private static final Pattern SESSION_ID = Pattern.compile("\"sessionId\"\\s*:\\s*\"([^\"]+)\"");
+	//lines the child JVM writes for this one, everything else on its output is gateway logging
+	private static final String PORT = "gateway-port ";
+	private static final String PEAKS = "gateway-peaks ";
+
+	public static void main(String[] args) throws Exception {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+		long deviceDelayMs = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+		String heap = args.length > 2 ? args[2] : "512m";
+
+		try (LoopbackNetconfServer device = new LoopbackNetconfServer().datastoreEntries(20)
+				.latency(Duration.ofMillis(deviceDelayMs)).start()) {
+			HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+			System.out.printf("requests=%d deviceDelay=%dms -Xmx%s%n", requests, deviceDelayMs, heap);
+			System.out.printf("%-9s %8s %10s %9s %7s %7s %12s %12s%n", "mode", "failures", "elapsed", "req/s",
+					"p50", "p99", "peakThreads", "peakHeap");
+			for (String mode : MODES) {
+				run(mode, http, device, requests, deviceDelayMs, heap);
+			}
+		}
+	}
+
+	private static void run(String mode, HttpClient http, LoopbackNetconfServer device, int requests,
+			long deviceDelayMs, String heap) throws IOException, InterruptedException {
+		Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+		Process gateway = new ProcessBuilder(java.toString(), "-Xmx" + heap, "-cp",
+				System.getProperty("java.class.path"), Gateway.class.getName(), mode, device.getHost(),
+				String.valueOf(device.getPort()), String.valueOf(requests), String.valueOf(deviceDelayMs))
+				.redirectErrorStream(true).start();
+		try (BufferedReader output = new BufferedReader(
+				new InputStreamReader(gateway.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter input = new PrintWriter(gateway.getOutputStream(), true, StandardCharsets.UTF_8)) {
+			int port = Integer.parseInt(await(output, PORT));
+			String sessionId = login(http, port, device);
+			//one warm-up request opens the device session, then the gateway starts counting
+			post(http, port, "/get", "{\"sessionId\":\"" + sessionId + "\"}").join();
+			input.println("measure");
+
+			AtomicInteger failures = new AtomicInteger();
+			long[] latencies = new long[requests];
+			List<CompletableFuture<?>> pending = new ArrayList<>(requests);
+			long start = System.nanoTime();
+			for (int i = 0; i < requests; i++) {
+				int index = i;
+				long sent = System.nanoTime();
+				pending.add(post(http, port, "/get", "{\"sessionId\":\"" + sessionId + "\",\"messageId\":\"" + i
+						+ "\"}").whenComplete((response, failure) -> {
+							latencies[index] = System.nanoTime() - sent;
+							if (failure != null || response.statusCode() != 200) {
+								failures.incrementAndGet();
+							}
+						}));
+			}
+			CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(failure -> null).join();
+			long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			input.println("report");
+			String[] peaks = await(output, PEAKS).split(" ");
+
+			Arrays.sort(latencies);
+			System.out.printf("%-9s %8d %8dms %9.1f %5dms %5dms %12s %10sMB%n", mode, failures.get(), elapsedMs,
+					requests * 1000.0 / elapsedMs, TimeUnit.NANOSECONDS.toMillis(latencies[requests / 2]),
+					TimeUnit.NANOSECONDS.toMillis(latencies[(int) (requests * 0.99)]), peaks[0], peaks[1]);
+		} finally {
+			if (!gateway.waitFor(30, TimeUnit.SECONDS)) {
+				gateway.destroyForcibly();
+			}
+		}
+	}
+
+	//the rest of the first line starting with prefix
+	private static String await(BufferedReader output, String prefix) throws IOException {
+		String line;
+		while ((line = output.readLine()) != null) {
+			if (line.startsWith(prefix)) {
+				return line.substring(prefix.length());
+			}
+		}
+		throw new IllegalStateException("Gateway exited before reporting " + prefix.trim());
+	}
+
+	private static String login(HttpClient http, int port, LoopbackNetconfServer device) {
+		String body = post(http, port, "/login", "{\"username\":\"admin\",\"password\":\"admin\",\"ip\":\""
+				+ device.getHost() + "\",\"port\":" + device.getPort() + "}").join().body();
+		Matcher matcher = SESSION_ID.matcher(body);
+		if (!matcher.find()) {
+			throw new IllegalStateException("Login failed: " + body);
+		}
+		return matcher.group(1);
+	}
+
+	private static CompletableFuture<HttpResponse<String>> post(HttpClient http, int port, String path, String json) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+				.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json)).build();
+		return http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	/**
+	 * The child JVM: one gateway in the given mode. It prints its port, resets
+	 * the thread and heap peaks on {@code measure} and prints them on
+	 * {@code report}, then exits.
+	 */
+	public static class Gateway {
+
+		public static void main(String[] args) throws IOException {
+			String mode = args[0];
+			int requests = Integer.parseInt(args[3]);
+			long deviceDelayMs = Long.parseLong(args[4]);
+			WebApplicationType type = "reactive".equals(mode) ? WebApplicationType.REACTIVE
+					: WebApplicationType.SERVLET;
+			//arguments, not default properties, which application.properties would override
+			try (ConfigurableApplicationContext gateway = new SpringApplicationBuilder(DtoApplication.class).web(type)
+					.run("--server.port=0", "--logging.level.root=warn", "--spring.shell.interactive.enabled=false",
+							"--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+							"--netconf.pool.ssh=false", "--netconf.pool.max-sessions-per-device=8",
+							"--netconf.pool.max-in-flight-per-session=" + requests,
+							"--netconf.pool.request-timeout=" + (deviceDelayMs * 20) + "ms",
+							"--netconf.limit.enabled=false", "--netconf.capabilities.persistent=false");
+					BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+				System.out.println(PORT + ((WebServerApplicationContext) gateway).getWebServer().getPort());
+				String command;
+				while ((command = input.readLine()) != null) {
+					switch (command) {
+					case "measure":
+						ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+						heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+						break;
+					case "report":
+						long peakHeap = 0;
+						for (MemoryPoolMXBean pool : heapPools()) {
+							peakHeap += pool.getPeakUsage().getUsed();
+						}
+						System.out.println(PEAKS + ManagementFactory.getThreadMXBean().getPeakThreadCount() + " "
+								+ (peakHeap >> 20));
+						return;
+					default:
+						throw new IllegalArgumentException("Unknown command " + command);
+					}
+				}
+			}
+		}
+
+		private static List<MemoryPoolMXBean> heapPools() {
+			return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+					.toList();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.session;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.dto.LoginData;
+
+/**
+ * Session lookups under contention. The synchronized HashMap stands in for
+ * the original activeSessions map made thread-safe the simplest way; the
+ * grouped benchmarks mix lookups with a login/logout storm.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionStoreBenchmark {
+
+	private static final int SESSIONS = 10_000;
+
+	private InMemorySessionStore store;
+	private Map<String, LoginData> synchronizedMap;
+	private String[] ids;
+
+	@Setup
+	public void setUp() {
+		SessionStoreProperties properties = new SessionStoreProperties();
+		properties.setIdleTtl(Duration.ofHours(1));
+		properties.setMaxSessions(SESSIONS * 2);
+		store = new InMemorySessionStore(properties);
+		synchronizedMap = Collections.synchronizedMap(new HashMap<>());
+		ids = new String[SESSIONS];
+		for (int i = 0; i < SESSIONS; i++) {
+			ids[i] = UUID.randomUUID().toString();
+			LoginData loginData = new LoginData("user" + i, "LOGIN", "10.0.0." + (i % 250), 2022, ids[i]);
+			store.put(ids[i], loginData);
+			synchronizedMap.put(ids[i], loginData);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		store.destroy();
+	}
+
+	private String randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(SESSIONS)];
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Optional<LoginData> storeLookup() {
+		return store.get(randomId());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public LoginData synchronizedMapLookup() {
+		return synchronizedMap.get(randomId());
+	}
+
+	@Benchmark
+	@Group("storeMixed")
+	@GroupThreads(6)
+	public Optional<LoginData> storeMixedLookup() {
+		return store.get(randomId());
+	}
+
+	@Benchmark
+	@Group("storeMixed")
+	@GroupThreads(2)
+	public Optional<LoginData> storeMixedLoginLogout() {
+		String id = UUID.randomUUID().toString();
+		store.put(id, new LoginData("storm", "LOGIN", "10.0.0.1", 2022, id));
+		return store.remove(id);
+	}
+
+	@Benchmark
+	@Group("synchronizedMapMixed")
+	@GroupThreads(6)
+	public LoginData synchronizedMapMixedLookup() {
+		return synchronizedMap.get(randomId());
+	}
+
+	@Benchmark
+	@Group("synchronizedMapMixed")
+	@GroupThreads(2)
+	public LoginData synchronizedMapMixedLoginLogout() {
+		String id = UUID.randomUUID().toString();
+		synchronizedMap.put(id, new LoginData("storm", "LOGIN", "10.0.0.1", 2022, id));
+		return synchronizedMap.remove(id);
+	}
+}